@@ -5,6 +5,9 @@
 --
 
 -- drop existing tables if necessary.
+DROP TABLE IF EXISTS dmarc_schema_versions;
+DROP TABLE IF EXISTS dmarc_daily_rollups;
+DROP TABLE IF EXISTS dmarc_imports;
 DROP TABLE IF EXISTS dmarc_auth_results;
 DROP TABLE IF EXISTS dmarc_records;
 DROP TABLE IF EXISTS dmarc_feedbacks;
@@ -29,7 +32,10 @@ CREATE TABLE dmarc_feedbacks (
 	created_at DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP,
 	updated_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
 
-	PRIMARY KEY (org_name, report_id)
+	PRIMARY KEY (org_name, report_id),
+	INDEX dmarc_feedbacks_begin (begin, end, org_name, report_id),	-- default sort order and date range.
+	INDEX dmarc_feedbacks_end (end, begin),
+	INDEX dmarc_feedbacks_domain (domain)
 ) ENGINE=InnoDB, CHARACTER SET utf8mb4, COLLATE 'utf8mb4_bin';
 
 --
@@ -43,12 +49,19 @@ CREATE TABLE dmarc_records (
 	dkim VARCHAR(12) DEFAULT NULL,
 	spf VARCHAR(12) DEFAULT NULL,
 	header_from VARCHAR(128) NOT NULL,
+	dkim_count INT NOT NULL DEFAULT 0,	-- number of 'dkim' rows in dmarc_auth_results.
+	spf_count INT NOT NULL DEFAULT 0,	-- number of 'spf' rows in dmarc_auth_results.
+	source_ip_bin VARBINARY(16) DEFAULT NULL,	-- source_ip in 16 bytes, IPv4 as ::ffff:a.b.c.d. for CIDR search.
 
 	created_at DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP,
 	updated_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
 
 	PRIMARY KEY (org_name, report_id, source_ip),
-	FOREIGN KEY (org_name, report_id) REFERENCES dmarc_feedbacks (org_name, report_id)
+	FOREIGN KEY (org_name, report_id) REFERENCES dmarc_feedbacks (org_name, report_id),
+	INDEX dmarc_records_header_from (header_from),
+	INDEX dmarc_records_source_ip (source_ip),
+	INDEX dmarc_records_disposition (disposition),
+	INDEX dmarc_records_source_ip_bin (source_ip_bin)
 ) ENGINE=InnoDB, CHARACTER SET utf8mb4, COLLATE 'utf8mb4_bin';
 
 --
@@ -67,5 +80,61 @@ CREATE TABLE dmarc_auth_results (
 	updated_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
 
 	PRIMARY KEY (org_name, report_id, source_ip, type, row),
-	FOREIGN KEY (org_name, report_id, source_ip) REFERENCES dmarc_records (org_name, report_id, source_ip)
+	FOREIGN KEY (org_name, report_id, source_ip) REFERENCES dmarc_records (org_name, report_id, source_ip),
+	INDEX dmarc_auth_results_result (type, result, org_name, report_id, source_ip),	-- EXISTS filter by index only.
+	INDEX dmarc_auth_results_domain (type, domain, org_name, report_id, source_ip)
 ) ENGINE=InnoDB, CHARACTER SET utf8mb4, COLLATE 'utf8mb4_bin';
+
+--
+-- imported report files. a row per report, mail message may have some reports.
+CREATE TABLE dmarc_imports (
+	sha256 CHAR(64) NOT NULL,	-- SHA-256 of file as it is, in lower case hex.
+	org_name VARCHAR(128) NOT NULL,
+	report_id VARCHAR(64) NOT NULL,
+	row_count INT NOT NULL,
+
+	imported_at DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP,
+
+	PRIMARY KEY (sha256, org_name, report_id),
+	INDEX dmarc_imports_report (org_name, report_id)
+) ENGINE=InnoDB, CHARACTER SET utf8mb4, COLLATE 'utf8mb4_bin';
+
+--
+-- SUM(count) per day, maintained when records are stored. see DailyRollup.
+CREATE TABLE dmarc_daily_rollups (
+	day DATE NOT NULL,	-- UTC date of begin.
+	domain VARCHAR(128) NOT NULL,
+	header_from VARCHAR(128) NOT NULL,
+	source_ip VARCHAR(128) NOT NULL,
+	message_count BIGINT NOT NULL DEFAULT 0,	-- SUM(count).
+	record_count BIGINT NOT NULL DEFAULT 0,
+	none_count BIGINT NOT NULL DEFAULT 0,	-- by the strictest disposition.
+	quarantine_count BIGINT NOT NULL DEFAULT 0,
+	reject_count BIGINT NOT NULL DEFAULT 0,
+	dkim_pass_count BIGINT NOT NULL DEFAULT 0,
+	dkim_fail_count BIGINT NOT NULL DEFAULT 0,	-- anything but pass.
+	spf_pass_count BIGINT NOT NULL DEFAULT 0,
+	spf_fail_count BIGINT NOT NULL DEFAULT 0,
+
+	PRIMARY KEY (day, domain, header_from, source_ip),
+	INDEX dmarc_daily_rollups_domain (domain, day)
+) ENGINE=InnoDB, CHARACTER SET utf8mb4, COLLATE 'utf8mb4_bin';
+
+--
+-- applied schema versions. see SchemaMigrator.
+CREATE TABLE dmarc_schema_versions (
+	version INT NOT NULL,
+	description VARCHAR(256) NOT NULL,
+
+	applied_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+
+	PRIMARY KEY (version)
+) ENGINE=InnoDB, CHARACTER SET utf8mb4, COLLATE 'utf8mb4_bin';
+
+INSERT INTO dmarc_schema_versions (version, description) VALUES
+	(1, 'add dkim_count, spf_count to dmarc_records'),
+	(2, 'create dmarc_imports'),
+	(3, 'create indexes for search and sort'),
+	(4, 'add source_ip_bin to dmarc_records for CIDR search'),
+	(5, 'create dmarc_daily_rollups'),
+	(6, 'key dmarc_imports by file and report');
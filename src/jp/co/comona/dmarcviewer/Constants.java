@@ -12,6 +12,7 @@ public interface Constants {
 
 	// MARK: - Message
 	public static final String MESSAGE_END_MUST_GREATER = "end must be equal or greater than begin";
+	public static final String MESSAGE_INVALID_CIDR = "source_ip must be CIDR block like 192.0.2.0/24 or 2001:db8::/48";
 
 	// MARK: - Properties Keys
 	public static final String PROP_DATABASE_CLASS = "database_class";
@@ -20,6 +21,11 @@ public interface Constants {
 	public static final String PROP_DATABASE_PASSWORD = "database_password";
 	public static final String PROP_DATABASE_AUTH_REQUIRED = "database_auth_required";
 	public static final String PROP_STORE_DATABASE_AUTH = "store_database_auth";
+	public static final String PROP_DATABASE_READ_URL = "database_read_url";
+	public static final String PROP_DATABASE_POOL_SIZE = "database_pool_size";
+	public static final String PROP_DATABASE_POOL_IDLE_SECONDS = "database_pool_idle_seconds";
+	public static final String PROP_DATABASE_VALIDATION_TIMEOUT = "database_validation_timeout";
+	public static final String PROP_DATABASE_MIGRATE = "database_migrate";
 
 	public static final String PROP_MAIN_SCREEN_WIDTH = "MAIN_SCREEN_WIDTH";
 	public static final String PROP_MAIN_SCREEN_HEIGHT = "MAIN_SCREEN_HEIGHT";
@@ -30,13 +36,28 @@ public interface Constants {
 	public static final String PROP_RECORD_DETAIL_SCREEN_WIDTH = "RECORD_DETAIL_SCREEN_WIDTH";
 	public static final String PROP_RECORD_DETAIL_SCREEN_HEIGHT = "RECORD_DETAIL_SCREEN_HEIGHT";
 
+	public static final String PROP_AGGREGATION_SCREEN_WIDTH = "AGGREGATION_SCREEN_WIDTH";
+	public static final String PROP_AGGREGATION_SCREEN_HEIGHT = "AGGREGATION_SCREEN_HEIGHT";
+
 	public static final String PROP_WIDTH_SUFFIX = "_WIDTH";
 	public static final String PROP_MAIN_WINDOW_PREFIX = "MAIN_WINDOW_";
 	public static final String PROP_RECORD_LIST_PREFIX = "RECORD_LIST_";
 	public static final String PROP_RECORD_DETAIL_PREFIX = "RECORD_DETAIL_";
+	public static final String PROP_AGGREGATION_PREFIX = "AGGREGATION_";
 
 	public static final String PROP_DATE_TIME_FORMAT = "date_time_format";
 
+	public static final String PROP_STORE_BATCH_SIZE = "store_batch_size";
+	public static final String PROP_SELECT_PAGE_SIZE = "select_page_size";
+	public static final String PROP_SELECT_FETCH_SIZE = "select_fetch_size";
+	public static final String PROP_IMPORT_FILES_PER_COMMIT = "import_files_per_commit";
+	public static final String PROP_IMPORT_PARSE_THREADS = "import_parse_threads";
+	public static final String PROP_XML_PARSER = "xml_parser";
+	public static final String PROP_SEARCH_AUTH_FILTER = "search_auth_filter";
+	public static final String PROP_DAILY_ROLLUP = "daily_rollup";
+	public static final String PROP_WATCH_SETTLE_MILLIS = "watch_settle_millis";
+	public static final String PROP_AGGREGATION_LIMIT = "aggregation_limit";
+
 	// MARK: - Strings
 	public static final String STR_TRUE = "true";
 	public static final String STR_FALSE = "false";
@@ -61,8 +82,21 @@ public interface Constants {
 	public static final int MINIMUM_RECORD_DETAIL_SCREEN_WIDTH = DEFAULT_RECORD_DETAIL_SCREEN_WIDTH / 4;
 	public static final int DEFAULT_RECORD_DETAIL_SCREEN_HEIGHT = DEFAULT_MAIN_SCREEN_HEIGHT;
 	public static final int MINIMUM_RECORD_DETAIL_SCREEN_HEIGHT = DEFAULT_RECORD_DETAIL_SCREEN_HEIGHT - 80;
+	public static final int DEFAULT_AGGREGATION_SCREEN_WIDTH = DEFAULT_MAIN_SCREEN_WIDTH;
+	public static final int MINIMUM_AGGREGATION_SCREEN_WIDTH = DEFAULT_AGGREGATION_SCREEN_WIDTH / 2;
+	public static final int DEFAULT_AGGREGATION_SCREEN_HEIGHT = DEFAULT_MAIN_SCREEN_HEIGHT;
+	public static final int MINIMUM_AGGREGATION_SCREEN_HEIGHT = DEFAULT_AGGREGATION_SCREEN_HEIGHT / 2;
 	public static final int SEARCH_OPTION_BOX_WIDTH = 620;
 	public static final int SEARCH_OPTION_BOX_HEIGHT = 800;
+	public static final int DEFAULT_STORE_BATCH_SIZE = 1000;
+	public static final int DEFAULT_SELECT_PAGE_SIZE = 1000;
+	public static final int DEFAULT_SELECT_FETCH_SIZE = 200;
+	public static final int DEFAULT_IMPORT_FILES_PER_COMMIT = 100;
+	public static final int DEFAULT_WATCH_SETTLE_MILLIS = 2000;
+	public static final int DEFAULT_AGGREGATION_LIMIT = 10000;
+	public static final int DEFAULT_DATABASE_POOL_SIZE = 4;
+	public static final int DEFAULT_DATABASE_POOL_IDLE_SECONDS = 300;
+	public static final int DEFAULT_DATABASE_VALIDATION_TIMEOUT = 5;
 
 	// MARK: - Default Component Size
 	public static final int DEFAULT_X_MARGIN = 8;
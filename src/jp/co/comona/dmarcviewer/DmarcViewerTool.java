@@ -6,7 +6,6 @@ import java.io.FileOutputStream;
 import java.io.FileReader;
 import java.io.IOException;
 import java.sql.Connection;
-import java.sql.DriverManager;
 import java.sql.SQLException;
 import java.util.Properties;
 
@@ -14,7 +13,12 @@ import javax.crypto.Cipher;
 import javax.crypto.spec.SecretKeySpec;
 
 import jp.co.comona.dmarcviewer.cipher.SSHKeyTool;
+import jp.co.comona.dmarcviewer.record.DailyRollup;
+import jp.co.comona.dmarcviewer.record.Record;
+import jp.co.comona.dmarcviewer.record.SchemaMigrator;
 import jp.co.comona.dmarcviewer.util.CommandLineParser;
+import jp.co.comona.dmarcviewer.util.ConnectionPool;
+import jp.co.comona.dmarcviewer.xml.DmarcFeedback;
 
 /**
  * DMARC XML viewer tool.
@@ -26,8 +30,12 @@ public class DmarcViewerTool implements Constants {
 	// MARK: - Properties
 	private String propertiesPath = null;
 	private Properties properties = null;
-	private Connection connection = null;
+	private ConnectionPool writePool = null;
+	private ConnectionPool readPool = null;	// same as write pool if read URL is not set.
 	private String dbURL = null;
+	private String dbReadURL = null;
+	private boolean migrateData = true;	// false on viewer, not to freeze window while data is migrated.
+	private int pendingMigrationCount = 0;
 
 	// MARK: - Constructor
 	/**
@@ -48,6 +56,7 @@ public class DmarcViewerTool implements Constants {
 	 * @throws ClassNotFoundException 
 	 */
 	private int process() throws IOException, ClassNotFoundException, SQLException {
+		migrateData = false;	// data is migrated by DmarcImportTool.
 		prepareProperties();
 		prepareConnection();
 
@@ -56,7 +65,7 @@ public class DmarcViewerTool implements Constants {
 		MainWindow mainWnd = new MainWindow(this);
 		mainWnd.open();
 
-		if (connection != null) {
+		if (isConnected()) {
 			disconnectConnection();
 		}
 		writeProperties();
@@ -196,12 +205,15 @@ public class DmarcViewerTool implements Constants {
 	 * prepare properties file.
 	 * @throws IOException
 	 */
-	private void prepareProperties() throws IOException {
+	public void prepareProperties() throws IOException {
 		File file = new File(propertiesPath);
 		properties = new Properties();
 		FileReader reader = new FileReader(file);
 		properties.load(reader);
 		reader.close();
+		DmarcFeedback.setParser(getPropertyString(PROP_XML_PARSER, DmarcFeedback.PARSER_SAX));
+		Record.setAuthFilter(getPropertyString(PROP_SEARCH_AUTH_FILTER, Record.AUTH_FILTER_EXISTS));
+		DailyRollup.setEnabled(getPropertyBool(PROP_DAILY_ROLLUP, true));
 	}
 
 	/**
@@ -218,9 +230,10 @@ public class DmarcViewerTool implements Constants {
 	 * @throws ClassNotFoundException
 	 * @throws SQLException 
 	 */
-	private void prepareConnection() throws ClassNotFoundException, SQLException {
+	public void prepareConnection() throws ClassNotFoundException, SQLException {
 		String className = getPropertyString(PROP_DATABASE_CLASS, null);
 		dbURL = getPropertyString(PROP_DATABASE_URL, null);
+		dbReadURL = getPropertyString(PROP_DATABASE_READ_URL, null);
 		String dbUser = getPropertyString(PROP_DATABASE_USER, null);
 		String dbPassword = getPropertyPassword(PROP_DATABASE_PASSWORD);
 		boolean authRequired = getPropertyBool(PROP_DATABASE_AUTH_REQUIRED, false);
@@ -229,9 +242,9 @@ public class DmarcViewerTool implements Constants {
 		Class.forName(className);
 
 		if (authRequired == false) {
-			connection = DriverManager.getConnection(dbURL);	// SQLite3 must be here.
+			createPools(null, null);	// SQLite3 must be here.
 		}
-		if (connection == null) {
+		if (isConnected() == false) {
 			if ((dbUser != null) && (dbUser.length() > 0) && (dbPassword != null) && (dbPassword.length() > 0)) {
 				createAuthConnection(dbUser, dbPassword, storeDbAuth);
 			}
@@ -243,7 +256,7 @@ public class DmarcViewerTool implements Constants {
 	 * @throws SQLException
 	 */
 	public void createAuthConnection(String dbUser, String dbPassword, boolean storeDbAuth) throws SQLException {
-		connection = DriverManager.getConnection(dbURL, dbUser, dbPassword);
+		createPools(dbUser, dbPassword);
 
 		setPropertyBool(PROP_STORE_DATABASE_AUTH, storeDbAuth);
 		if (storeDbAuth) {
@@ -256,23 +269,93 @@ public class DmarcViewerTool implements Constants {
 		}
 	}
 
+	/**
+	 * create write and read connection pools. a connection is borrowed only to check database and migrate tables.
+	 * tables are upgraded by schema migrator unless database_migrate is false.
+	 * on viewer, versions which move data only add columns and tables, and are counted as pending.
+	 * @param dbUser database user, or null if authentication is not required.
+	 * @param dbPassword database password.
+	 * @throws SQLException
+	 */
+	private void createPools(String dbUser, String dbPassword) throws SQLException {
+		int poolSize = getPropertyInt(PROP_DATABASE_POOL_SIZE, DEFAULT_DATABASE_POOL_SIZE);
+		long idleMillis = getPropertyInt(PROP_DATABASE_POOL_IDLE_SECONDS, DEFAULT_DATABASE_POOL_IDLE_SECONDS) * 1000L;
+		int validationTimeout = getPropertyInt(PROP_DATABASE_VALIDATION_TIMEOUT, DEFAULT_DATABASE_VALIDATION_TIMEOUT);
+
+		ConnectionPool pool = new ConnectionPool(dbURL, dbUser, dbPassword, poolSize, validationTimeout, idleMillis);
+		Connection con = null;
+		try {
+			con = pool.borrow();	// fails here if database is not available.
+			if (getPropertyBool(PROP_DATABASE_MIGRATE, true)) {
+				if (migrateData) {
+					SchemaMigrator.migrate(con);	// upgrade tables before use.
+				}
+				else {
+					pendingMigrationCount = SchemaMigrator.migrateTables(con);
+				}
+			}
+		}
+		catch (SQLException e) {
+			pool.release(con);
+			con = null;
+			pool.close();
+			throw e;
+		}
+		finally {
+			pool.release(con);	// store paths borrow own connection per operation.
+		}
+		writePool = pool;
+		readPool = writePool;
+		if ((dbReadURL != null) && (dbReadURL.length() > 0)) {	// heavy searches go to replica.
+			readPool = new ConnectionPool(dbReadURL, dbUser, dbPassword, poolSize, validationTimeout, idleMillis);
+		}
+	}
+
 	/**
 	 * disconnect database connection.
 	 * @throws SQLException
 	 */
 	public void disconnectConnection() throws SQLException {
-		assert(connection != null);
-		connection.close();
-		connection = null;
+		assert(writePool != null);
+		if (readPool != writePool) {
+			readPool.close();
+		}
+		writePool.close();
+		readPool = null;
+		writePool = null;
 	}
 
 	// MARK: - Getters & Setters
 	/**
-	 * get database connection.
-	 * @return database connection.
+	 * check if database is connected.
+	 * @return true if connection pools are created.
+	 */
+	public boolean isConnected() {
+		return writePool != null;
+	}
+
+	/**
+	 * get number of schema versions whose data is not migrated.
+	 * @return number of versions to migrate by DmarcImportTool -u.
+	 */
+	public int getPendingMigrationCount() {
+		return pendingMigrationCount;
+	}
+
+	/**
+	 * get connection pool for searches. borrowed connection must be released to the pool.
+	 * @return read connection pool, or null if not connected.
+	 */
+	public ConnectionPool getReadPool() {
+		return readPool;
+	}
+
+	/**
+	 * get connection pool for storing. borrowed connection must be released to the pool.
+	 * @return write connection pool, or null if not connected.
 	 */
-	public Connection getConnection() {
-		return connection;
+	public ConnectionPool getWritePool() {
+		return writePool;
 	}
 
 	// MARK: - Entry Point
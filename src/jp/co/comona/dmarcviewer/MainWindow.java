@@ -3,7 +3,9 @@ package jp.co.comona.dmarcviewer;
 import java.io.File;
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import org.eclipse.swt.SWT;
 import org.eclipse.swt.custom.StyledText;
@@ -18,22 +20,30 @@ import org.eclipse.swt.widgets.Composite;
 import org.eclipse.swt.widgets.Display;
 import org.eclipse.swt.widgets.Event;
 import org.eclipse.swt.widgets.FileDialog;
+import org.eclipse.swt.widgets.Label;
 import org.eclipse.swt.widgets.Listener;
+import org.eclipse.swt.widgets.ProgressBar;
 import org.eclipse.swt.widgets.Shell;
 
+import jp.co.comona.dmarcviewer.record.AggregationWindow;
 import jp.co.comona.dmarcviewer.record.AuthResultRecordThread;
 import jp.co.comona.dmarcviewer.record.OrderBy;
 import jp.co.comona.dmarcviewer.record.Record;
+import jp.co.comona.dmarcviewer.record.RecordCollector;
 import jp.co.comona.dmarcviewer.record.RecordDetailWindow;
+import jp.co.comona.dmarcviewer.record.RecordKey;
 import jp.co.comona.dmarcviewer.record.RecordListTable;
 import jp.co.comona.dmarcviewer.record.RecordListTableContainer;
 import jp.co.comona.dmarcviewer.record.RecordListWindow;
+import jp.co.comona.dmarcviewer.record.RecordSearch;
+import jp.co.comona.dmarcviewer.record.RecordSearchExecutor;
+import jp.co.comona.dmarcviewer.record.RecordSearchListener;
 import jp.co.comona.dmarcviewer.record.where.SearchOptionDialog;
 import jp.co.comona.dmarcviewer.record.where.SearchOptions;
 import jp.co.comona.dmarcviewer.user.UserPasswordDialog;
 import jp.co.comona.dmarcviewer.user.UserPasswordInput;
 import jp.co.comona.dmarcviewer.util.MessageBox;
-import jp.co.comona.dmarcviewer.xml.DmarcFeedback;
+import jp.co.comona.dmarcviewer.util.UpdateCoalescer;
 
 /**
  * main window.
@@ -49,7 +59,10 @@ public class MainWindow extends SubWindow implements RecordListTableContainer {
 	private static final String CONNECT_BUTTON_TITLE = "Connect";
 	private static final String DISCONNECT_BUTTON_TITLE = "Disconnect";
 	private static final String DETAIL_BUTTON_TITLE = STR_DETAIL;
+	private static final String AGGREGATE_BUTTON_TITLE = "Aggregate";
 	private static final int SEARCH_OPTION_TEXT_HEIGHT = 58;
+	private static final int ELAPSED_TIME_INTERVAL = 100;	// milliseconds.
+	private static final int AUTH_RESULTS_UPDATE_INTERVAL = 50;	// milliseconds.
 
 	// MARK: - Properties
 	private Display display = null;
@@ -62,13 +75,22 @@ public class MainWindow extends SubWindow implements RecordListTableContainer {
 	private Button optionButton = null;
 	private Button openFileButton = null;
 	private Button detailButton = null;
+	private Button aggregateButton = null;
 	private Button connectDbButton = null;
+	private ProgressBar searchProgressBar = null;
+	private Label searchStatusLabel = null;
 	private RecordListWindow recordListWindow = null;
 	private RecordDetailWindow detailWindow = null;
+	private AggregationWindow aggregationWindow = null;
 
 	private List<Record> records = null;
-	private boolean exitFlag = false;
+	private Map<RecordKey, Integer> recordIndexes = null;
+	private UpdateCoalescer<Record> authResultsUpdater = null;
+	private volatile boolean exitFlag = false;
 	private boolean threadRunning = false;
+	private boolean hasMoreRecords = false;
+	private RecordSearchExecutor searchExecutor = null;
+	private RecordSearch currentSearch = null;
 	private AuthResultRecordThread authThread = null;
 	private OrderBy orderBy = null;
 	private SearchOptions searchOptions = null;
@@ -81,6 +103,8 @@ public class MainWindow extends SubWindow implements RecordListTableContainer {
 	protected MainWindow(DmarcViewerTool tool) {
 		super(tool, null);
 		records = new ArrayList<>();
+		recordIndexes = new HashMap<>();
+		searchExecutor = new RecordSearchExecutor();
 
 		widthPropKey = PROP_MAIN_SCREEN_WIDTH;
 		heightPropKey = PROP_MAIN_SCREEN_HEIGHT;
@@ -99,6 +123,12 @@ public class MainWindow extends SubWindow implements RecordListTableContainer {
 	public void open() {
 		Display.setAppName("DMARC Viewer Tool");
 		display = Display.getDefault();
+		authResultsUpdater = new UpdateCoalescer<>(display, AUTH_RESULTS_UPDATE_INTERVAL, new UpdateCoalescer.Flusher<Record>() {
+			@Override
+			public void flush(List<Record> items) {
+				updateAuthResultsCount(items);
+			}
+		});
 		createShell();
 
 		addComponents();
@@ -107,7 +137,8 @@ public class MainWindow extends SubWindow implements RecordListTableContainer {
 		shell.layout();
 		setIcon(shell);
 
-		if (tool.getConnection() != null) {
+		if (tool.isConnected()) {
+			showPendingMigration();
 			searchRecords();
 		}
 
@@ -118,6 +149,7 @@ public class MainWindow extends SubWindow implements RecordListTableContainer {
 		}
 
 		exitFlag = true;
+		searchExecutor.shutdown();
 		if (authThread != null) {
 			try {
 				authThread.join();
@@ -160,6 +192,9 @@ public class MainWindow extends SubWindow implements RecordListTableContainer {
 		if (detailWindow != null) {
 			return false;
 		}
+		if (aggregationWindow != null) {
+			return false;
+		}
 		return true;
 	}
 
@@ -201,6 +236,9 @@ public class MainWindow extends SubWindow implements RecordListTableContainer {
 		Display.getDefault().asyncExec(new Runnable() {
 			@Override
 			public void run() {
+				if (authThread != thread) {
+					return;	// another thread was started for next page.
+				}
 				String error = null;
 				try {
 					threadRunning = false;
@@ -250,10 +288,11 @@ public class MainWindow extends SubWindow implements RecordListTableContainer {
 
 		table = new RecordListTable(this, tool, shell, PROP_MAIN_WINDOW_PREFIX);
 		table.createTable();
+		table.setRecords(records);
 
 		searchButton = new Button(shell, SWT.PUSH);
 		searchButton.setText(SEARCH_BUTTON_TITLE);
-		searchButton.setEnabled(tool.getConnection() != null);
+		searchButton.setEnabled(tool.isConnected());
 		searchButton.addSelectionListener(new SelectionAdapter() {
 			/**
 			 * widget selected.
@@ -266,7 +305,7 @@ public class MainWindow extends SubWindow implements RecordListTableContainer {
 
 		optionButton = new Button(shell, SWT.PUSH);
 		optionButton.setText(SEARCH_OPTION_BUTTON_TITLE);
-		optionButton.setEnabled(tool.getConnection() != null);
+		optionButton.setEnabled(tool.isConnected());
 		optionButton.addSelectionListener(new SelectionAdapter() {
 			/**
 			 * widget selected.
@@ -290,6 +329,19 @@ public class MainWindow extends SubWindow implements RecordListTableContainer {
 			}
 		});
 
+		aggregateButton = new Button(shell, SWT.PUSH);
+		aggregateButton.setText(AGGREGATE_BUTTON_TITLE);
+		aggregateButton.setEnabled(tool.isConnected());
+		aggregateButton.addSelectionListener(new SelectionAdapter() {
+			/**
+			 * widget selected.
+			 */
+			@Override
+			public void widgetSelected(SelectionEvent e) {
+				onAggregateButton(e);
+			}
+		});
+
 		openFileButton = new Button(shell, SWT.PUSH);
 		openFileButton.setText(OPEN_BUTTON_TITLE);
 		openFileButton.setEnabled(true);
@@ -305,7 +357,7 @@ public class MainWindow extends SubWindow implements RecordListTableContainer {
 
 		if (tool.getPropertyBool(PROP_DATABASE_AUTH_REQUIRED, false)) {
 			connectDbButton = new Button(shell, SWT.PUSH);
-			connectDbButton.setText(tool.getConnection() != null ? DISCONNECT_BUTTON_TITLE : CONNECT_BUTTON_TITLE);
+			connectDbButton.setText(tool.isConnected() ? DISCONNECT_BUTTON_TITLE : CONNECT_BUTTON_TITLE);
 			connectDbButton.setEnabled(true);
 			connectDbButton.addSelectionListener(new SelectionAdapter() {
 				/**
@@ -318,6 +370,12 @@ public class MainWindow extends SubWindow implements RecordListTableContainer {
 			});
 		}
 
+		searchProgressBar = new ProgressBar(shell, SWT.HORIZONTAL | SWT.INDETERMINATE);
+		searchProgressBar.setVisible(false);
+
+		searchStatusLabel = new Label(shell, SWT.NONE);
+		searchStatusLabel.setText("");
+
 		setComponentsSize(null, shell.getClientArea(), shell.getBounds());
 	}
 
@@ -354,10 +412,22 @@ public class MainWindow extends SubWindow implements RecordListTableContainer {
 		rect = new Rectangle(x, y, DEFAULT_BUTTON_WIDTH, DEFAULT_BUTTON_HEIGHT);
 		detailButton.setBounds(rect);
 
+		y += DEFAULT_BUTTON_HEIGHT + DEFAULT_Y_MARGIN;
+		rect = new Rectangle(x, y, DEFAULT_BUTTON_WIDTH, DEFAULT_BUTTON_HEIGHT);
+		aggregateButton.setBounds(rect);
+
 		y += DEFAULT_BUTTON_HEIGHT + DEFAULT_Y_MARGIN;
 		rect = new Rectangle(x, y, DEFAULT_BUTTON_WIDTH, DEFAULT_BUTTON_HEIGHT);
 		openFileButton.setBounds(rect);
 
+		y += DEFAULT_BUTTON_HEIGHT + DEFAULT_Y_MARGIN;
+		rect = new Rectangle(x, y, DEFAULT_BUTTON_WIDTH, DEFAULT_LABEL_HEIGHT);
+		searchProgressBar.setBounds(rect);
+
+		y += DEFAULT_LABEL_HEIGHT;
+		rect = new Rectangle(x, y, DEFAULT_BUTTON_WIDTH, DEFAULT_LABEL_HEIGHT);
+		searchStatusLabel.setBounds(rect);
+
 		if (connectDbButton != null) {
 			y = clientArea.height - DEFAULT_BUTTON_HEIGHT - DEFAULT_Y_MARGIN;
 			rect = new Rectangle(x, y, DEFAULT_BUTTON_WIDTH, DEFAULT_BUTTON_HEIGHT);
@@ -378,8 +448,11 @@ public class MainWindow extends SubWindow implements RecordListTableContainer {
 	 * clear table.
 	 */
 	private void clearTable() {
+		cancelSearch();
 		table.removeAll();
 		records.clear();
+		recordIndexes.clear();
+		hasMoreRecords = false;
 		detailButton.setEnabled(false);
 	}
 
@@ -397,6 +470,10 @@ public class MainWindow extends SubWindow implements RecordListTableContainer {
 			detailWindow.closeFromOutside();
 			detailWindow = null;
 		}
+		else if (subWindow == aggregationWindow) {
+			aggregationWindow.closeFromOutside();
+			aggregationWindow = null;
+		}
 	}
 
 	// MARK: - Events
@@ -426,6 +503,34 @@ public class MainWindow extends SubWindow implements RecordListTableContainer {
 			clearTable();
 			resetOrderBy();
 			searchRecords();
+			if (aggregationWindow != null) {
+				aggregationWindow.searchOptionsChanged(searchOptions);
+			}
+		}
+	}
+
+	/**
+	 * aggregate button pushed.
+	 * @param e event.
+	 */
+	private void onAggregateButton(SelectionEvent e) {
+		String error = null;
+		if (aggregationWindow != null) {
+			aggregationWindow.bringToTop();
+		}
+		else {
+			try {
+				aggregationWindow = new AggregationWindow(tool, this, searchOptions);
+				aggregationWindow.open();
+			}
+			catch (Exception ex) {
+				ex.printStackTrace(System.err);
+				error = ex.getLocalizedMessage();
+			}
+		}
+
+		if ((error != null) && (error.length() > 0)) {
+			MessageBox.showError(shell, null, error, SWT.OK);
 		}
 	}
 
@@ -468,9 +573,12 @@ public class MainWindow extends SubWindow implements RecordListTableContainer {
 		}
 		else {
 			FileDialog dialog = new FileDialog(shell, SWT.OPEN);
-			String [] exts = { "*.xml", "*.*" };
+			String [] exts = { "*.xml;*.xml.gz;*.gz;*.zip", "*.xml", "*.xml.gz;*.gz", "*.zip", "*.*" };
 			String [] filterNames = {
+				"DMARC Reports(*.xml, *.xml.gz, *.zip)",
 				"XML Files(*.xml)",
+				"GZIP Files(*.xml.gz, *.gz)",
+				"ZIP Files(*.zip)",
 				"All Files(*.*)"
 			};
 			dialog.setFilterExtensions(exts);
@@ -478,9 +586,8 @@ public class MainWindow extends SubWindow implements RecordListTableContainer {
 			String path = dialog.open();
 			if ((path != null) && (path.length() > 0)) {
 				try {
-					DmarcFeedback feedback = DmarcFeedback.parse(path);
-					//System.out.println("feedback: " + feedback);
-					recordListWindow = new RecordListWindow(tool, this, feedback);
+					List<Record> records = RecordCollector.collect(path);
+					recordListWindow = new RecordListWindow(tool, this, records);
 					recordListWindow.open();
 				}
 				catch (Exception ex) {
@@ -501,15 +608,19 @@ public class MainWindow extends SubWindow implements RecordListTableContainer {
 	 */
 	private void onConnectButton(SelectionEvent e) {
 		String error = null;
-		if (tool.getConnection() != null) {	// disconnect.
+		if (tool.isConnected()) {	// disconnect.
 			try {
 				tool.disconnectConnection();
 				connectDbButton.setText(CONNECT_BUTTON_TITLE);
 				searchButton.setEnabled(false);
 				optionButton.setEnabled(false);
+				aggregateButton.setEnabled(false);
 				if (recordListWindow != null) {
 					recordListWindow.connectionStatusChanged();
 				}
+				if (aggregationWindow != null) {
+					aggregationWindow.connectionStatusChanged();
+				}
 				clearTable();
 			}
 			catch (SQLException ex) {
@@ -526,9 +637,14 @@ public class MainWindow extends SubWindow implements RecordListTableContainer {
 					connectDbButton.setText(DISCONNECT_BUTTON_TITLE);
 					searchButton.setEnabled(true);
 					optionButton.setEnabled(true);
+					aggregateButton.setEnabled(true);
 					if (recordListWindow != null) {
 						recordListWindow.connectionStatusChanged();
 					}
+					if (aggregationWindow != null) {
+						aggregationWindow.connectionStatusChanged();
+					}
+					showPendingMigration();
 					searchRecords();	// select.
 				}
 				catch (SQLException ex) {
@@ -543,24 +659,24 @@ public class MainWindow extends SubWindow implements RecordListTableContainer {
 		}
 	}
 
+	/**
+	 * tell schema versions whose data is not migrated yet.
+	 */
+	private void showPendingMigration() {
+		int count = tool.getPendingMigrationCount();
+		if (count > 0) {
+			String message = count + " schema versions need data migration, so some search results may be incomplete.\n"
+					+ "run DmarcImportTool -p properties-file-path -u.";
+			MessageBox.showInformation(shell, null, message, SWT.OK);
+		}
+	}
+
 	// MARK: - SQL
 	/**
 	 * search records.
 	 */
 	private void searchRecords() {
-		String error = null;
-		if (authThread != null) {
-			exitFlag = true;
-			try {
-				authThread.join();
-			}
-			catch (InterruptedException e) {
-				e.printStackTrace(System.err);
-				error = e.getLocalizedMessage();
-			}
-			authThread = null;
-			exitFlag = false;
-		}
+		cancelSearch();
 
 		searchOptionText.removeListener(SWT.Verify, readonlyListener);
 		searchOptionText.setText("");
@@ -570,51 +686,161 @@ public class MainWindow extends SubWindow implements RecordListTableContainer {
 		}
 		searchOptionText.addListener(SWT.Verify, readonlyListener);
 
-		try {
-			List<Record> records = Record.select(tool.getConnection(), searchOptions, orderBy);
-			//System.out.println("records: " + records);
-			for (Record record : records) {
-				table.addRecordToTable(record);
+		loadRecords();
+	}
+
+	/**
+	 * cancel running search and authentication result fetching.
+	 */
+	private void cancelSearch() {
+		searchExecutor.cancel();
+		if (currentSearch != null) {
+			currentSearch = null;
+			searchProgressBar.setVisible(false);
+			searchStatusLabel.setText("");
+		}
+		if (authThread != null) {
+			authThread.cancel();	// ends without telling, so no need to join.
+			authThread = null;
+			threadRunning = false;
+		}
+	}
+
+	/**
+	 * load next page of records on background thread.
+	 */
+	private void loadRecords() {
+		int pageSize = tool.getPropertyInt(PROP_SELECT_PAGE_SIZE, DEFAULT_SELECT_PAGE_SIZE);
+		int fetchSize = tool.getPropertyInt(PROP_SELECT_FETCH_SIZE, DEFAULT_SELECT_FETCH_SIZE);
+		Record after = records.isEmpty() ? null : records.get(records.size() - 1);
+		hasMoreRecords = false;
+		final int countBefore = records.size();
+		final RecordSearch search = new RecordSearch(tool.getReadPool(), searchOptions, orderBy, after, pageSize, fetchSize,
+				new RecordSearchListener() {
+			@Override
+			public void recordsFound(RecordSearch search, List<Record> records) {
+				asyncExec(new Runnable() {
+					@Override
+					public void run() {
+						if (search == currentSearch) {
+							addRecords(records);
+						}
+					}
+				});
+			}
+
+			@Override
+			public void searchFinished(RecordSearch search, int count, SQLException error) {
+				asyncExec(new Runnable() {
+					@Override
+					public void run() {
+						if (search == currentSearch) {
+							recordsLoaded(search, count, countBefore, error);
+						}
+					}
+				});
 			}
-			this.records.addAll(records);
+		});
+
+		currentSearch = search;
+		searchProgressBar.setVisible(true);
+		showElapsedTime(search);
+		searchExecutor.submit(search);
+	}
+
+	/**
+	 * show elapsed time of search while it is running.
+	 * @param search record search.
+	 */
+	private void showElapsedTime(final RecordSearch search) {
+		if (search == currentSearch) {
+			searchStatusLabel.setText(String.format("%d records, %.1f s", records.size(), search.getElapsedMillis() / 1000.0));
+			display.timerExec(ELAPSED_TIME_INTERVAL, new Runnable() {
+				@Override
+				public void run() {
+					if (shell.isDisposed() == false) {
+						showElapsedTime(search);
+					}
+				}
+			});
+		}
+	}
 
+	/**
+	 * add found records to table.
+	 * @param records a batch of found records.
+	 */
+	private void addRecords(List<Record> records) {
+		for (Record record : records) {
+			recordIndexes.put(record.getKey(), this.records.size());
+			this.records.add(record);
+		}
+		table.recordsChanged();
+
+		if ((authThread == null) || (authThread.addRecords(records) == false)) {
 			threadRunning = true;
-			authThread = new AuthResultRecordThread();
+			authThread = new AuthResultRecordThread(tool.getReadPool());
 			authThread.setMainWindow(this);
 			authThread.setRecords(records);
 			authThread.start();
 		}
-		catch (SQLException e) {
-			e.printStackTrace(System.err);
-			error = e.getLocalizedMessage();
+	}
+
+	/**
+	 * a page of records loaded.
+	 * @param search record search.
+	 * @param count number of found records.
+	 * @param countBefore number of records before the page.
+	 * @param error error, or null if succeeded.
+	 */
+	private void recordsLoaded(RecordSearch search, int count, int countBefore, SQLException error) {
+		currentSearch = null;
+		searchProgressBar.setVisible(false);
+		searchStatusLabel.setText(String.format("%d records, %.2f s", records.size(), search.getElapsedMillis() / 1000.0));
+		hasMoreRecords = (error == null) && (search.getLimit() > 0) && (count >= search.getLimit())
+				&& (records.size() > countBefore);
+
+		if (error != null) {
+			String message = error.getLocalizedMessage();
+			if ((message != null) && (message.length() > 0)) {
+				MessageBox.showError(shell, null, message, SWT.OK);
+			}
 		}
+	}
 
-		if ((error != null) && (error.length() > 0)) {
-			MessageBox.showError(shell, null, error, SWT.OK);
+	/**
+	 * run on UI thread unless display is disposed.
+	 * @param runnable runnable.
+	 */
+	private void asyncExec(Runnable runnable) {
+		if (display.isDisposed() == false) {
+			display.asyncExec(runnable);
 		}
 	}
 
 	/**
 	 * authentication result record selected.
+	 * called from authentication result thread. table is updated later at a bounded rate.
 	 * @param record record.
 	 */
 	public void authResultRecordSelected(Record record) {
-		int index = -1;
-		String recordKey = record.getRecordKey();
-		for (int i = 0; i < records.size(); i++) {
-			if (records.get(i).getRecordKey().equals(recordKey)) {
-				index = i;
+		authResultsUpdater.add(record);
+	}
+
+	/**
+	 * update authentication results count of records on table.
+	 * @param updated records updated by authentication result thread.
+	 */
+	private void updateAuthResultsCount(List<Record> updated) {
+		if (shell.isDisposed()) {
+			return;
+		}
+		for (Record record : updated) {
+			Integer index = recordIndexes.get(record.getKey());
+			if ((index != null) && (records.get(index) == record)) {	// not a record of previous search.
+				table.updateAuthResultsCount(record, index);
 			}
 		}
-		if (index > -1) {
-			final int dispIndex = index;
-			Display.getDefault().asyncExec(new Runnable() {
-				@Override
-				public void run() {
-					table.updateAuthResultsCount(record, dispIndex);
-				}
-			});
-		}
 	}
 
 	/**
@@ -676,4 +902,14 @@ public class MainWindow extends SubWindow implements RecordListTableContainer {
 		table.addSortMark(orderBy);
 		searchRecords();
 	}
+
+	/**
+	 * table is scrolled near the last record.
+	 */
+	@Override
+	public void tableNeedsMoreRecords() {
+		if (hasMoreRecords && (currentSearch == null)) {
+			loadRecords();
+		}
+	}
 }
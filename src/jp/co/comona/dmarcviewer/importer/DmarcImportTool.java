@@ -0,0 +1,656 @@
+package jp.co.comona.dmarcviewer.importer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.Paths;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.Stream;
+
+import javax.xml.parsers.ParserConfigurationException;
+
+import org.xml.sax.SAXException;
+
+import jp.co.comona.dmarcviewer.Constants;
+import jp.co.comona.dmarcviewer.DmarcViewerTool;
+import jp.co.comona.dmarcviewer.mail.MailboxReader;
+import jp.co.comona.dmarcviewer.mail.MailboxReader.MailMessage;
+import jp.co.comona.dmarcviewer.mail.MimeReportParser;
+import jp.co.comona.dmarcviewer.record.DailyRollup;
+import jp.co.comona.dmarcviewer.record.Record;
+import jp.co.comona.dmarcviewer.record.RecordStreamStore;
+import jp.co.comona.dmarcviewer.record.SchemaMigrator;
+import jp.co.comona.dmarcviewer.util.CommandLineParser;
+import jp.co.comona.dmarcviewer.util.ConnectionPool;
+import jp.co.comona.dmarcviewer.xml.DmarcFeedback;
+import jp.co.comona.dmarcviewer.xml.DmarcFeedbackListener;
+import jp.co.comona.dmarcviewer.xml.DmarcRecord;
+
+/**
+ * headless DMARC report importer.
+ * parse all report files in a directory or matching a glob, and store them without SWT display.
+ * or, parse report attachments of messages in Maildir or mbox.
+ * files are parsed, converted to records and stored at the same time by import pipeline.
+ * files already in import ledger are skipped by file hash before parsing, and by org_name, report_id before storing.
+ * @author kageyama
+ * date: 2025/06/07
+ */
+public class DmarcImportTool implements Constants {
+
+	// MARK: - Static Properties
+	private static final String GLOB_CHARS = "*?[{";
+	private static final String[] REPORT_EXTENSIONS = { ".xml", ".gz", ".zip", };
+
+	// MARK: - Properties
+	private DmarcViewerTool tool = null;
+	private String input = null;
+	private boolean streaming = false;
+	private boolean mailbox = false;
+	private boolean force = false;
+	private ImportLedger ledger = null;
+	private int importedFileCount = 0;
+	private int skippedFileCount = 0;
+	private int failedFileCount = 0;
+	private int importedRecordCount = 0;
+
+	// MARK: - Constructor
+	/**
+	 * constructor.
+	 * @param propertiesPath properties file path.
+	 * @param input directory or glob of report files, or Maildir directory or mbox file.
+	 * @param streaming store records while parsing each file.
+	 * @param mailbox input is Maildir or mbox.
+	 * @param force import files even if they are already imported.
+	 */
+	public DmarcImportTool(String propertiesPath, String input, boolean streaming, boolean mailbox, boolean force) {
+		super();
+		tool = new DmarcViewerTool(propertiesPath);
+		this.input = input;
+		this.streaming = streaming;
+		this.mailbox = mailbox;
+		this.force = force;
+	}
+
+	// MARK: - Process
+	/**
+	 * main process.
+	 * @return 0 if success.
+	 * @throws IOException
+	 * @throws ClassNotFoundException
+	 * @throws SQLException
+	 */
+	private int process() throws IOException, ClassNotFoundException, SQLException {
+		tool.prepareProperties();
+		tool.prepareConnection();
+		if (tool.isConnected() == false) {
+			System.err.println("no database connection. set database_user and database_password in properties.");
+			return -1;
+		}
+
+		ledger = ImportLedger.load(tool.getWritePool());	// ledger queries have own connection.
+		int filesPerCommit = tool.getPropertyInt(PROP_IMPORT_FILES_PER_COMMIT, DEFAULT_IMPORT_FILES_PER_COMMIT);
+		long startTime = System.nanoTime();
+		if (mailbox) {
+			try (final MailboxReader reader = new MailboxReader(Paths.get(input))) {
+				importSources(new SourceIterator() {
+					@Override
+					public ImportSource next() throws IOException {
+						MailMessage message = reader.next();
+						return (message != null) ? new MessageSource(message) : null;
+					}
+				}, filesPerCommit);
+			}
+		}
+		else if (streaming) {
+			for (Path file : findFiles(input)) {
+				streamFile(file);
+			}
+		}
+		else {
+			final Iterator<Path> files = findFiles(input).iterator();
+			importSources(new SourceIterator() {
+				@Override
+				public ImportSource next() {
+					return files.hasNext() ? new FileSource(files.next()) : null;
+				}
+			}, filesPerCommit);
+		}
+		double seconds = (System.nanoTime() - startTime) / 1000000000.0;
+
+		System.out.println(String.format("imported %d files (%d skipped, %d failed), %d records in %.2f s.",
+				importedFileCount, skippedFileCount, failedFileCount, importedRecordCount, seconds));
+		if (seconds > 0) {
+			System.out.println(String.format("%.1f files/s, %.1f records/s.",
+					importedFileCount / seconds, importedRecordCount / seconds));
+		}
+
+		tool.disconnectConnection();
+		return (failedFileCount > 0) ? 1 : 0;
+	}
+
+	/**
+	 * migrate schema, including data which viewer leaves.
+	 * @return 0 if success.
+	 * @throws IOException
+	 * @throws ClassNotFoundException
+	 * @throws SQLException
+	 */
+	private int migrateSchema() throws IOException, ClassNotFoundException, SQLException {
+		tool.prepareProperties();
+		tool.setPropertyString(PROP_DATABASE_MIGRATE, STR_FALSE);	// migrated below, even if it is false.
+		tool.prepareConnection();
+		if (tool.isConnected() == false) {
+			System.err.println("no database connection. set database_user and database_password in properties.");
+			return -1;
+		}
+
+		long startTime = System.nanoTime();
+		ConnectionPool pool = tool.getWritePool();
+		Connection con = pool.borrow();
+		int count = 0;
+		try {
+			count = SchemaMigrator.migrate(con);
+		}
+		finally {
+			pool.release(con);
+		}
+		System.out.println(String.format("applied %d schema versions in %.2f s.", count, (System.nanoTime() - startTime) / 1000000000.0));
+
+		tool.disconnectConnection();
+		return 0;
+	}
+
+	/**
+	 * rebuild daily rollups from all records.
+	 * @return 0 if success.
+	 * @throws IOException
+	 * @throws ClassNotFoundException
+	 * @throws SQLException
+	 */
+	private int rebuildRollups() throws IOException, ClassNotFoundException, SQLException {
+		tool.prepareProperties();
+		tool.prepareConnection();
+		if (tool.isConnected() == false) {
+			System.err.println("no database connection. set database_user and database_password in properties.");
+			return -1;
+		}
+
+		long startTime = System.nanoTime();
+		ConnectionPool pool = tool.getWritePool();
+		Connection con = pool.borrow();
+		int rowCount = 0;
+		try {
+			rowCount = DailyRollup.rebuild(con);
+		}
+		finally {
+			pool.release(con);
+		}
+		System.out.println(String.format("rebuilt %d rollup rows in %.2f s.", rowCount, (System.nanoTime() - startTime) / 1000000000.0));
+
+		tool.disconnectConnection();
+		return 0;
+	}
+
+	/**
+	 * import report files, or report attachments of messages, through import pipeline.
+	 * @param sources iterator of report files or messages.
+	 * @param filesPerCommit number of files to store in a transaction.
+	 * @throws IOException
+	 */
+	private void importSources(SourceIterator sources, int filesPerCommit) throws IOException {
+		int parseThreads = tool.getPropertyInt(PROP_IMPORT_PARSE_THREADS, 0);
+		int batchSize = tool.getPropertyInt(PROP_STORE_BATCH_SIZE, DEFAULT_STORE_BATCH_SIZE);
+		ImportPipeline pipeline = new ImportPipeline(tool.getWritePool(), ledger, force, parseThreads, filesPerCommit, batchSize);
+		pipeline.start();
+		try {
+			ImportSource source;
+			while ((source = sources.next()) != null) {
+				pipeline.submit(source);	// waits while parser threads are busy.
+			}
+		}
+		catch (InterruptedException e) {
+			e.printStackTrace(System.err);
+		}
+		finally {
+			try {
+				pipeline.finish();
+			}
+			catch (InterruptedException e) {
+				e.printStackTrace(System.err);
+			}
+		}
+		importedFileCount += pipeline.getImportedFileCount();
+		skippedFileCount += pipeline.getSkippedFileCount();
+		failedFileCount += pipeline.getFailedFileCount();
+		importedRecordCount += pipeline.getImportedRecordCount();
+	}
+
+	/**
+	 * create records of parsed feedback.
+	 * @param feedback parsed feedback.
+	 * @return merged records.
+	 */
+	protected static List<Record> createRecords(DmarcFeedback feedback) {
+		List<Record> records = new ArrayList<>();
+		for (int i = 0; i < feedback.getRecordCount(); i++) {
+			Record rec = new Record();
+			rec.setData(feedback, feedback.getRecord(i));
+			records.add(rec);
+		}
+		return Record.mergeRecords(records);
+	}
+
+	/**
+	 * store records of report file while parsing, in a transaction per file.
+	 * memory does not grow with number of records in the file.
+	 * report is looked up in ledger before borrowing connection to store, so ledger does not wait for second connection.
+	 * @param file report file.
+	 */
+	private void streamFile(Path file) {
+		String sha256 = hashFile(file);
+		if ((sha256 == null) || isImportedFile(sha256)) {
+			return;
+		}
+
+		DmarcFeedback feedback = null;
+		int recordCount = 0;
+		ConnectionPool pool = tool.getWritePool();
+		Connection con = null;
+		try {
+			feedback = MetadataReader.read(file.toString());
+			if ((force == false) && ledger.containsReport(feedback)) {
+				skippedFileCount++;
+				return;
+			}
+			int batchSize = tool.getPropertyInt(PROP_STORE_BATCH_SIZE, DEFAULT_STORE_BATCH_SIZE);
+			con = pool.borrow();
+			recordCount = RecordStreamStore.store(file.toString(), con, batchSize);
+			importedRecordCount += recordCount;
+			importedFileCount++;
+		}
+		catch (Exception e) {
+			System.err.println(file + ": " + e.getLocalizedMessage());
+			failedFileCount++;
+			return;
+		}
+		finally {
+			pool.release(con);
+		}
+
+		ledger.add(sha256, feedback, recordCount);
+		commitLedger();
+	}
+
+	// MARK: - Ledger
+	/**
+	 * calculate file hash.
+	 * @param file report file.
+	 * @return SHA-256 of file, or null if file cannot be read.
+	 */
+	private String hashFile(Path file) {
+		try {
+			return ImportLedger.sha256(file);
+		}
+		catch (IOException e) {
+			System.err.println(file + ": " + e.getLocalizedMessage());
+			failedFileCount++;
+			return null;
+		}
+	}
+
+	/**
+	 * check file is already imported or not, and count it as skipped.
+	 * @param sha256 SHA-256 of file.
+	 * @return true if imported.
+	 */
+	private boolean isImportedFile(String sha256) {
+		if (force) {
+			return false;
+		}
+		try {
+			if (ledger.containsHash(sha256)) {
+				skippedFileCount++;
+				return true;
+			}
+		}
+		catch (SQLException e) {
+			e.printStackTrace(System.err);	// import it again.
+		}
+		return false;
+	}
+
+	/**
+	 * write imported files to ledger. records are already stored, so error is only reported.
+	 */
+	private void commitLedger() {
+		try {
+			ledger.commit();
+		}
+		catch (SQLException e) {
+			e.printStackTrace(System.err);
+		}
+	}
+
+	// MARK: - Files
+	/**
+	 * find report files.
+	 * @param input directory or glob.
+	 * @return report files in name order.
+	 * @throws IOException
+	 */
+	protected static List<Path> findFiles(String input) throws IOException {
+		List<Path> files = new ArrayList<>();
+		Path path = Paths.get(input);
+		if (Files.isDirectory(path)) {	// *.xml, *.xml.gz, *.zip in the directory.
+			try (Stream<Path> stream = Files.list(path)) {
+				Iterator<Path> it = stream.iterator();
+				while (it.hasNext()) {
+					Path file = it.next();
+					if (Files.isRegularFile(file) && isReportFile(file)) {
+						files.add(file);
+					}
+				}
+			}
+		}
+		else if (isGlob(input)) {	// walk from the directory before the first glob character.
+			PathMatcher matcher = FileSystems.getDefault().getPathMatcher("glob:" + input);
+			Path baseDir = globBaseDirectory(input);
+			if (Files.isDirectory(baseDir)) {
+				try (Stream<Path> stream = Files.walk(baseDir)) {
+					Iterator<Path> it = stream.iterator();
+					while (it.hasNext()) {
+						Path file = it.next();
+						if (Files.isRegularFile(file) && matcher.matches(file)) {
+							files.add(file);
+						}
+					}
+				}
+			}
+		}
+		else if (Files.isRegularFile(path)) {
+			files.add(path);
+		}
+		Collections.sort(files);
+		return files;
+	}
+
+	/**
+	 * check file is report file or not by extension.
+	 * @param file file path.
+	 * @return true if report file.
+	 */
+	protected static boolean isReportFile(Path file) {
+		String name = file.getFileName().toString().toLowerCase();
+		for (String extension : REPORT_EXTENSIONS) {
+			if (name.endsWith(extension)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * check string is glob or not.
+	 * @param input input string.
+	 * @return true if glob characters are contained.
+	 */
+	private static boolean isGlob(String input) {
+		for (int i = 0; i < GLOB_CHARS.length(); i++) {
+			if (input.indexOf(GLOB_CHARS.charAt(i)) > -1) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * get base directory of glob.
+	 * @param glob glob string.
+	 * @return directory path before the first glob character.
+	 */
+	private static Path globBaseDirectory(String glob) {
+		int globIndex = glob.length();
+		for (int i = 0; i < GLOB_CHARS.length(); i++) {
+			int index = glob.indexOf(GLOB_CHARS.charAt(i));
+			if ((index > -1) && (index < globIndex)) {
+				globIndex = index;
+			}
+		}
+		int separator = glob.lastIndexOf('/', globIndex);
+		if (separator < 0) {
+			return Paths.get("");	// current directory.
+		}
+		return Paths.get((separator == 0) ? "/" : glob.substring(0, separator));
+	}
+
+	// MARK: - Entry Point
+	/**
+	 * entry point.
+	 * @param args arguments.
+	 */
+	public static void main(String[] args) {
+		String help = CommandLineParser.parseArgument(args, "-?");
+		if (help != null) {
+			doUsage();
+			return;
+		}
+
+		String properties = CommandLineParser.parseArgument(args, "-p");
+		String input = CommandLineParser.parseArgument(args, "-i");
+		boolean streaming = CommandLineParser.parseArgument(args, "-s") != null;
+		boolean force = CommandLineParser.parseArgument(args, "-f") != null;
+		String mailbox = CommandLineParser.parseArgument(args, "-m");
+		boolean rebuild = CommandLineParser.parseArgument(args, "-r") != null;
+		boolean upgrade = CommandLineParser.parseArgument(args, "-u") != null;
+		if ((mailbox != null) && (mailbox.length() > 0)) {
+			input = mailbox;
+		}
+		if ((properties == null) || (properties.length() < 1) || (((input == null) || (input.length() < 1)) && (rebuild == false) && (upgrade == false))) {
+			doUsage();
+			System.exit(-1);
+		}
+
+		int result = -1;
+		DmarcImportTool importTool = new DmarcImportTool(properties, input, streaming, (mailbox != null) && (mailbox.length() > 0), force);
+		try {
+			if (upgrade) {
+				result = importTool.migrateSchema();
+			}
+			else {
+				result = rebuild ? importTool.rebuildRollups() : importTool.process();
+			}
+		}
+		catch (Exception e) {
+			e.printStackTrace(System.err);
+			result = -1;
+		}
+
+		System.exit(result);
+	}
+
+	/**
+	 * do usage.
+	 */
+	private static void doUsage() {
+		System.out.println("DmarcImportTool -p proerties-file-path -i directory-or-glob [-s] [-f]");
+		System.out.println("DmarcImportTool -p proerties-file-path -m maildir-or-mbox [-f]");
+		System.out.println("DmarcImportTool -p proerties-file-path -r");
+		System.out.println("DmarcImportTool -p proerties-file-path -u");
+		System.out.println("  -m: import report attachments of mail messages.");
+		System.out.println("  -s: store records while parsing, for very large reports.");
+		System.out.println("  -f: import files even if they are already imported.");
+		System.out.println("  -r: rebuild daily rollups from all records.");
+		System.out.println("  -u: upgrade schema, including data which viewer does not migrate.");
+		System.out.println("  quote glob to keep shell from expanding it. e.g. -i '/var/dmarc/**/*.xml'");
+	}
+
+	// MARK: - Sources
+	/**
+	 * iterator of sources to import.
+	 */
+	private interface SourceIterator {
+
+		/**
+		 * get next source.
+		 * @return next source, or null if no more source.
+		 * @throws IOException
+		 */
+		public ImportSource next() throws IOException;
+	}
+
+	/**
+	 * report file to import.
+	 */
+	private static class FileSource implements ImportSource {
+
+		// MARK: - Properties
+		private final Path file;
+
+		// MARK: - Constructor
+		/**
+		 * constructor.
+		 * @param file report file.
+		 */
+		private FileSource(Path file) {
+			super();
+			this.file = file;
+		}
+
+		/**
+		 * get name to show.
+		 */
+		@Override
+		public String getName() {
+			return file.toString();
+		}
+
+		/**
+		 * calculate SHA-256 of file.
+		 */
+		@Override
+		public String sha256() throws IOException {
+			return ImportLedger.sha256(file);
+		}
+
+		/**
+		 * parse report file.
+		 */
+		@Override
+		public List<DmarcFeedback> parse() throws ParserConfigurationException, SAXException, IOException {
+			return Collections.singletonList(DmarcFeedback.parse(file.toString()));
+		}
+	}
+
+	/**
+	 * mail message to import.
+	 */
+	private static class MessageSource implements ImportSource {
+
+		// MARK: - Properties
+		private final MailMessage message;
+
+		// MARK: - Constructor
+		/**
+		 * constructor.
+		 * @param message mail message.
+		 */
+		private MessageSource(MailMessage message) {
+			super();
+			this.message = message;
+		}
+
+		/**
+		 * get name to show.
+		 */
+		@Override
+		public String getName() {
+			return message.getName();
+		}
+
+		/**
+		 * calculate SHA-256 of message.
+		 */
+		@Override
+		public String sha256() throws IOException {
+			try (InputStream in = message.openStream()) {
+				return ImportLedger.sha256(in);
+			}
+		}
+
+		/**
+		 * parse report attachments of message.
+		 */
+		@Override
+		public List<DmarcFeedback> parse() throws ParserConfigurationException, SAXException, IOException {
+			try (InputStream in = message.openStream()) {
+				return MimeReportParser.parse(in);
+			}
+		}
+	}
+
+	// MARK: - Metadata Reader
+	/**
+	 * read report metadata and policy published, and stop parsing before records.
+	 */
+	private static class MetadataReader implements DmarcFeedbackListener {
+
+		// MARK: - Properties
+		private DmarcFeedback feedback = null;
+
+		// MARK: - Read
+		/**
+		 * read feedback without records.
+		 * @param filePath XML file path. can be compressed with gzip or zip.
+		 * @return feedback which has report_metadata and policy_published.
+		 * @throws ParserConfigurationException
+		 * @throws SAXException
+		 * @throws IOException
+		 */
+		private static DmarcFeedback read(String filePath) throws ParserConfigurationException, SAXException, IOException {
+			MetadataReader reader = new MetadataReader();
+			try {
+				DmarcFeedback.parse(filePath, reader);
+			}
+			catch (SAXException e) {
+				if (reader.feedback == null) {
+					throw e;
+				}
+			}
+			return reader.feedback;
+		}
+
+		// MARK: - DmarcFeedbackListener
+		/**
+		 * feedback started.
+		 */
+		@Override
+		public void feedbackStarted(DmarcFeedback feedback) throws SAXException {
+			this.feedback = feedback;
+			throw new SAXException("metadata is read");	// stop parsing.
+		}
+
+		/**
+		 * record parsed.
+		 */
+		@Override
+		public void recordParsed(DmarcFeedback feedback, DmarcRecord record) {
+			// never called.
+		}
+
+		/**
+		 * feedback ended.
+		 */
+		@Override
+		public void feedbackEnded(DmarcFeedback feedback) {
+			// never called.
+		}
+	}
+}
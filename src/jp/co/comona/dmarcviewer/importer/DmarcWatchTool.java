@@ -0,0 +1,401 @@
+package jp.co.comona.dmarcviewer.importer;
+
+import java.io.IOException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import jp.co.comona.dmarcviewer.Constants;
+import jp.co.comona.dmarcviewer.DmarcViewerTool;
+import jp.co.comona.dmarcviewer.record.Record;
+import jp.co.comona.dmarcviewer.util.CommandLineParser;
+import jp.co.comona.dmarcviewer.util.ConnectionPool;
+import jp.co.comona.dmarcviewer.xml.DmarcFeedback;
+import jp.co.comona.dmarcviewer.xml.DmarcParseService;
+
+/**
+ * spool directory watcher.
+ * report files dropped into spool directory are parsed and stored as soon as they are completely written,
+ * then moved to processed or failed directory under spool directory.
+ * files are parsed on parser threads, and stored on main thread one by one.
+ * when storing falls behind, new files are left in spool directory until parsed files are stored.
+ * @author kageyama
+ * date: 2025/06/14
+ */
+public class DmarcWatchTool implements Constants {
+
+	// MARK: - Static Properties
+	private static final String PROCESSED_DIRECTORY = "processed";
+	private static final String FAILED_DIRECTORY = "failed";
+	private static final long POLL_MILLIS = 500;
+	private static final int PARSE_AHEAD_PER_THREAD = 2;
+	private static final long STORE_RETRY_MILLIS = 10000;
+	private static final int MAX_STORE_ATTEMPTS = 3;
+	private static final long STOP_WAIT_MILLIS = 30000;
+
+	// MARK: - Properties
+	private DmarcViewerTool tool = null;
+	private Path spool = null;
+	private Path processedDirectory = null;
+	private Path failedDirectory = null;
+	private volatile boolean stopped = false;
+	private ImportLedger ledger = null;
+	private Map<Path, SpoolFile> waitingFiles = new LinkedHashMap<>();	// waiting to be completely written.
+	private Map<Path, SpoolFile> parsingFiles = new LinkedHashMap<>();	// submitted to parser threads.
+	private long settleMillis = 0;
+	private int maxParsingFiles = 0;
+	private int batchSize = 0;
+
+	// MARK: - Constructor
+	/**
+	 * constructor.
+	 * @param propertiesPath properties file path.
+	 * @param spool spool directory.
+	 */
+	public DmarcWatchTool(String propertiesPath, String spool) {
+		super();
+		tool = new DmarcViewerTool(propertiesPath);
+		this.spool = Paths.get(spool).toAbsolutePath();
+		processedDirectory = this.spool.resolve(PROCESSED_DIRECTORY);
+		failedDirectory = this.spool.resolve(FAILED_DIRECTORY);
+	}
+
+	// MARK: - Process
+	/**
+	 * main process. runs until stop() is called.
+	 * @return 0 if success.
+	 * @throws IOException
+	 * @throws ClassNotFoundException
+	 * @throws SQLException
+	 * @throws InterruptedException
+	 */
+	private int process() throws IOException, ClassNotFoundException, SQLException, InterruptedException {
+		tool.prepareProperties();
+		tool.prepareConnection();
+		if (tool.isConnected() == false) {
+			System.err.println("no database connection. set database_user and database_password in properties.");
+			return -1;
+		}
+		if (Files.isDirectory(spool) == false) {
+			System.err.println(spool + " is not a directory.");
+			return -1;
+		}
+		Files.createDirectories(processedDirectory);
+		Files.createDirectories(failedDirectory);
+
+		ledger = ImportLedger.load(tool.getWritePool());	// ledger queries have own connection.
+		settleMillis = tool.getPropertyInt(PROP_WATCH_SETTLE_MILLIS, DEFAULT_WATCH_SETTLE_MILLIS);
+		batchSize = tool.getPropertyInt(PROP_STORE_BATCH_SIZE, DEFAULT_STORE_BATCH_SIZE);
+		try (WatchService watcher = FileSystems.getDefault().newWatchService();
+				DmarcParseService parseService = new DmarcParseService(tool.getPropertyInt(PROP_IMPORT_PARSE_THREADS, 0))) {
+			maxParsingFiles = parseService.getThreadCount() * PARSE_AHEAD_PER_THREAD;
+			spool.register(watcher, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+			scanSpool();	// files dropped while not watching.
+			System.out.println("watching " + spool);
+
+			while (stopped == false) {
+				WatchKey key = watcher.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+				if (key != null) {
+					readEvents(key);
+					if (key.reset() == false) {
+						System.err.println(spool + " is no longer accessible.");
+						break;
+					}
+				}
+				storeParsedFiles();
+				submitWaitingFiles(parseService);
+			}
+		}
+
+		tool.disconnectConnection();
+		return 0;
+	}
+
+	/**
+	 * stop watching. current file is stored before process ends.
+	 */
+	public void stop() {
+		stopped = true;
+	}
+
+	// MARK: - Spool
+	/**
+	 * read watch events and add files to waiting files.
+	 * @param key watch key.
+	 * @throws IOException
+	 */
+	private void readEvents(WatchKey key) throws IOException {
+		for (WatchEvent<?> event : key.pollEvents()) {
+			if (event.kind() == StandardWatchEventKinds.OVERFLOW) {	// some events are lost.
+				scanSpool();
+			}
+			else {
+				addWaitingFile(spool.resolve((Path) event.context()));
+			}
+		}
+	}
+
+	/**
+	 * add all report files in spool directory to waiting files.
+	 * @throws IOException
+	 */
+	private void scanSpool() throws IOException {
+		try (Stream<Path> stream = Files.list(spool)) {
+			Iterator<Path> it = stream.iterator();
+			while (it.hasNext()) {
+				addWaitingFile(it.next());
+			}
+		}
+	}
+
+	/**
+	 * add file to waiting files, if it is report file and is not processed yet.
+	 * @param file file path.
+	 */
+	private void addWaitingFile(Path file) {
+		String name = file.getFileName().toString();
+		if (name.startsWith(".") || (DmarcImportTool.isReportFile(file) == false) || (Files.isRegularFile(file) == false)) {
+			return;	// hidden file may be being written by mail pipeline.
+		}
+		if (parsingFiles.containsKey(file) == false) {
+			waitingFiles.putIfAbsent(file, new SpoolFile());
+		}
+	}
+
+	/**
+	 * submit completely written files to parser threads, up to number of parser threads allows.
+	 * @param parseService parse service.
+	 */
+	private void submitWaitingFiles(DmarcParseService parseService) {
+		long now = System.currentTimeMillis();
+		Iterator<Map.Entry<Path, SpoolFile>> it = waitingFiles.entrySet().iterator();
+		while (it.hasNext() && (parsingFiles.size() < maxParsingFiles)) {	// others wait in spool directory.
+			Map.Entry<Path, SpoolFile> entry = it.next();
+			Path file = entry.getKey();
+			SpoolFile spoolFile = entry.getValue();
+			try {
+				if (spoolFile.isSettled(file, now, settleMillis) == false) {
+					continue;
+				}
+				it.remove();
+				spoolFile.sha256 = ImportLedger.sha256(file);
+				if (ledger.containsHash(spoolFile.sha256)) {
+					moveFile(file, processedDirectory, "already imported.");
+					continue;
+				}
+				spoolFile.feedback = parseService.submit(file.toString());
+				parsingFiles.put(file, spoolFile);
+			}
+			catch (IOException e) {	// removed or moved by someone else.
+				it.remove();
+			}
+			catch (SQLException e) {
+				e.printStackTrace(System.err);	// parse it anyway.
+				spoolFile.feedback = parseService.submit(file.toString());
+				parsingFiles.put(file, spoolFile);
+			}
+		}
+	}
+
+	/**
+	 * store parsed files, in a transaction per file.
+	 */
+	private void storeParsedFiles() {
+		Iterator<Map.Entry<Path, SpoolFile>> it = parsingFiles.entrySet().iterator();
+		while (it.hasNext()) {
+			Map.Entry<Path, SpoolFile> entry = it.next();
+			Path file = entry.getKey();
+			SpoolFile spoolFile = entry.getValue();
+			if (spoolFile.feedback.isDone() == false) {
+				continue;
+			}
+
+			it.remove();
+			DmarcFeedback feedback;
+			try {
+				feedback = spoolFile.feedback.get();
+			}
+			catch (ExecutionException | InterruptedException e) {
+				Throwable cause = (e instanceof ExecutionException) ? e.getCause() : e;
+				moveFile(file, failedDirectory, cause.getLocalizedMessage());
+				continue;
+			}
+			storeFile(file, spoolFile, feedback);
+		}
+	}
+
+	/**
+	 * store parsed file.
+	 * file is retried later when it cannot be stored, since database may be down.
+	 * @param file report file.
+	 * @param spoolFile spool file.
+	 * @param feedback parsed feedback.
+	 */
+	private void storeFile(Path file, SpoolFile spoolFile, DmarcFeedback feedback) {
+		try {
+			if (ledger.containsReport(feedback)) {
+				moveFile(file, processedDirectory, "already imported.");
+				return;
+			}
+
+			List<Record> records = DmarcImportTool.createRecords(feedback);
+			ConnectionPool pool = tool.getWritePool();
+			Connection con = pool.borrow();	// validated, so broken connection is replaced after database is back.
+			try {
+				Record.store(records, con, batchSize);
+			}
+			finally {
+				pool.release(con);
+			}
+			ledger.add(spoolFile.sha256, feedback, records.size());
+			ledger.commit();
+			moveFile(file, processedDirectory, records.size() + " records stored.");
+		}
+		catch (SQLException e) {
+			e.printStackTrace(System.err);
+			ledger.discard();
+			spoolFile.storeAttempts++;
+			if (spoolFile.storeAttempts >= MAX_STORE_ATTEMPTS) {
+				moveFile(file, failedDirectory, e.getLocalizedMessage());
+			}
+			else {
+				spoolFile.retryAt = System.currentTimeMillis() + STORE_RETRY_MILLIS;
+				waitingFiles.put(file, spoolFile);	// parse again later.
+			}
+		}
+	}
+
+	/**
+	 * move file to processed or failed directory.
+	 * file name is changed when same name exists.
+	 * @param file file to move.
+	 * @param directory destination directory.
+	 * @param message message to print.
+	 */
+	private void moveFile(Path file, Path directory, String message) {
+		String name = file.getFileName().toString();
+		Path target = directory.resolve(name);
+		if (Files.exists(target)) {
+			target = directory.resolve(System.currentTimeMillis() + "_" + name);
+		}
+		try {
+			Files.move(file, target);
+			System.out.println(directory.getFileName() + ": " + name + ": " + message);
+		}
+		catch (IOException e) {
+			System.err.println(name + ": " + e.getLocalizedMessage());
+		}
+	}
+
+	// MARK: - Entry Point
+	/**
+	 * entry point.
+	 * @param args arguments.
+	 */
+	public static void main(String[] args) {
+		String help = CommandLineParser.parseArgument(args, "-?");
+		if (help != null) {
+			doUsage();
+			return;
+		}
+
+		String properties = CommandLineParser.parseArgument(args, "-p");
+		String spool = CommandLineParser.parseArgument(args, "-w");
+		if ((properties == null) || (properties.length() < 1) || (spool == null) || (spool.length() < 1)) {
+			doUsage();
+			System.exit(-1);
+		}
+
+		final DmarcWatchTool watchTool = new DmarcWatchTool(properties, spool);
+		final Thread mainThread = Thread.currentThread();
+		Runtime.getRuntime().addShutdownHook(new Thread() {
+			@Override
+			public void run() {
+				watchTool.stop();
+				try {
+					mainThread.join(STOP_WAIT_MILLIS);	// let current file be stored.
+				}
+				catch (InterruptedException e) {
+					// exit anyway.
+				}
+			}
+		});
+
+		int result = -1;
+		try {
+			result = watchTool.process();
+		}
+		catch (Exception e) {
+			e.printStackTrace(System.err);
+			result = -1;
+		}
+
+		if (watchTool.stopped == false) {
+			System.exit(result);
+		}
+	}
+
+	/**
+	 * do usage.
+	 */
+	private static void doUsage() {
+		System.out.println("DmarcWatchTool -p proerties-file-path -w spool-directory");
+		System.out.println("  report files in spool directory are stored, then moved to processed or failed directory in it.");
+	}
+
+	// MARK: - Spool File
+	/**
+	 * report file in spool directory.
+	 */
+	private static class SpoolFile {
+
+		// MARK: - Properties
+		private long size = -1;
+		private long modified = -1;
+		private long changedAt = 0;
+		private long retryAt = 0;
+		private int storeAttempts = 0;
+		private String sha256 = null;
+		private Future<DmarcFeedback> feedback = null;
+
+		/**
+		 * check file is completely written or not.
+		 * it is when size and modified time have not changed for settle time.
+		 * @param file file path.
+		 * @param now current time.
+		 * @param settleMillis settle time in milliseconds.
+		 * @return true if completely written.
+		 * @throws IOException
+		 */
+		private boolean isSettled(Path file, long now, long settleMillis) throws IOException {
+			if (now < retryAt) {
+				return false;
+			}
+			BasicFileAttributes attrs = Files.readAttributes(file, BasicFileAttributes.class);
+			long currentModified = attrs.lastModifiedTime().toMillis();
+			if ((attrs.size() != size) || (currentModified != modified)) {
+				size = attrs.size();
+				modified = currentModified;
+				changedAt = now;
+				return false;
+			}
+			return (now - changedAt) >= settleMillis;
+		}
+	}
+}
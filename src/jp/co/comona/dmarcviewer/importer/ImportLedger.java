@@ -0,0 +1,338 @@
+package jp.co.comona.dmarcviewer.importer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import jp.co.comona.dmarcviewer.util.BloomFilter;
+import jp.co.comona.dmarcviewer.util.ConnectionPool;
+import jp.co.comona.dmarcviewer.xml.DmarcFeedback;
+
+/**
+ * ledger of imported report files, dmarc_imports table.
+ * a row per report of file, since a mail message may have some reports.
+ * known file hashes and report keys are kept in bloom filters,
+ * so new file is found without database round trip. database is asked only when filter says it might be known.
+ * thread safe. parser threads may check files while writer thread adds and commits.
+ * a connection is borrowed from pool per query, so lookups never run in transaction of the writer.
+ * @author kageyama
+ * date: 2025/06/13
+ */
+public class ImportLedger {
+
+	// MARK: - Static Properties
+	public static final String IMPORTS_TABLE = "dmarc_imports";
+	public static final String COLUMN_SHA256 = "sha256";
+	public static final String COLUMN_ORG_NAME = "org_name";
+	public static final String COLUMN_REPORT_ID = "report_id";
+	public static final String COLUMN_ROW_COUNT = "row_count";
+	public static final String COLUMN_IMPORTED_AT = "imported_at";
+	private static final String HASH_ALGORITHM = "SHA-256";
+	private static final int MINIMUM_EXPECTED_COUNT = 10000;
+	private static final double FALSE_POSITIVE_RATE = 0.01;
+	private static final int READ_BUFFER_SIZE = 64 * 1024;
+	private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+	private static final String KEY_DIVIDER = "\n";
+
+	// MARK: - Properties
+	private ConnectionPool pool = null;
+	private BloomFilter hashFilter = null;
+	private BloomFilter keyFilter = null;
+	private Map<String, Map<String, Entry>> pendingEntries = new LinkedHashMap<>();	// sha256 -> report key -> entry.
+	private Map<String, Entry> pendingKeys = new LinkedHashMap<>();	// report key -> entry.
+
+	// MARK: - Constructor
+	/**
+	 * constructor.
+	 * @param pool connection pool.
+	 * @param expectedCount expected number of entries.
+	 */
+	private ImportLedger(ConnectionPool pool, int expectedCount) {
+		super();
+		this.pool = pool;
+		hashFilter = new BloomFilter(expectedCount, FALSE_POSITIVE_RATE);
+		keyFilter = new BloomFilter(expectedCount, FALSE_POSITIVE_RATE);
+	}
+
+	/**
+	 * load known hashes and report keys.
+	 * @param pool connection pool of primary database, which has committed entries.
+	 * @return import ledger.
+	 * @throws SQLException
+	 */
+	public static ImportLedger load(ConnectionPool pool) throws SQLException {
+		Connection con = pool.borrow();
+		try {
+			int count = 0;
+			try (Statement stmt = con.createStatement();
+					ResultSet rs = stmt.executeQuery("SELECT COUNT(*) FROM " + IMPORTS_TABLE)) {
+				if (rs.next()) {
+					count = rs.getInt(1);
+				}
+			}
+
+			ImportLedger ledger = new ImportLedger(pool, Math.max(count * 2, MINIMUM_EXPECTED_COUNT));	// room to grow.
+			StringBuilder sql = new StringBuilder("SELECT ");
+			sql.append(COLUMN_SHA256).append(", ").append(COLUMN_ORG_NAME).append(", ").append(COLUMN_REPORT_ID);
+			sql.append(" FROM ").append(IMPORTS_TABLE);
+			try (Statement stmt = con.createStatement();
+					ResultSet rs = stmt.executeQuery(sql.toString())) {
+				while (rs.next()) {
+					ledger.hashFilter.add(rs.getString(1));
+					ledger.keyFilter.add(reportKey(rs.getString(2), rs.getString(3)));
+				}
+			}
+			return ledger;
+		}
+		finally {
+			pool.release(con);
+		}
+	}
+
+	// MARK: - Ledger
+	/**
+	 * check file is already imported or not.
+	 * @param sha256 SHA-256 of file.
+	 * @return true if imported, or waiting to be committed.
+	 * @throws SQLException
+	 */
+	public synchronized boolean containsHash(String sha256) throws SQLException {
+		if (hashFilter.mightContain(sha256) == false) {
+			return false;
+		}
+		if (pendingEntries.containsKey(sha256)) {
+			return true;
+		}
+		return exists(COLUMN_SHA256 + " = ?", sha256);
+	}
+
+	/**
+	 * check report is already imported or not.
+	 * @param orgName org_name.
+	 * @param reportId report_id.
+	 * @return true if imported, or waiting to be committed.
+	 * @throws SQLException
+	 */
+	public synchronized boolean containsReport(String orgName, String reportId) throws SQLException {
+		String key = reportKey(orgName, reportId);
+		if (keyFilter.mightContain(key) == false) {
+			return false;
+		}
+		if (pendingKeys.containsKey(key)) {
+			return true;
+		}
+		return exists(COLUMN_ORG_NAME + " = ? AND " + COLUMN_REPORT_ID + " = ?", orgName, reportId);
+	}
+
+	/**
+	 * check report of feedback is already imported or not.
+	 * @param feedback parsed feedback.
+	 * @return true if imported. false if feedback has no org_name or report_id.
+	 * @throws SQLException
+	 */
+	public boolean containsReport(DmarcFeedback feedback) throws SQLException {
+		if ((feedback.getOrgName() == null) || (feedback.getReportId() == null)) {
+			return false;
+		}
+		return containsReport(feedback.getOrgName(), feedback.getReportId());
+	}
+
+	/**
+	 * add imported report of file. it is written to database by commit().
+	 * call for each report of file. nothing is added if feedback has no org_name or report_id.
+	 * @param sha256 SHA-256 of file.
+	 * @param feedback parsed feedback.
+	 * @param rowCount number of stored records.
+	 */
+	public void add(String sha256, DmarcFeedback feedback, int rowCount) {
+		if ((feedback != null) && (feedback.getOrgName() != null) && (feedback.getReportId() != null)) {
+			add(new Entry(sha256, feedback.getOrgName(), feedback.getReportId(), rowCount));
+		}
+	}
+
+	/**
+	 * add imported report of file. it is written to database by commit().
+	 * @param entry imported report of file.
+	 */
+	public synchronized void add(Entry entry) {
+		hashFilter.add(entry.sha256);
+		String key = reportKey(entry.org_name, entry.report_id);
+		keyFilter.add(key);
+		Map<String, Entry> entries = pendingEntries.get(entry.sha256);
+		if (entries == null) {
+			entries = new LinkedHashMap<>();
+			pendingEntries.put(entry.sha256, entries);
+		}
+		entries.put(key, entry);
+		pendingKeys.put(key, entry);
+	}
+
+	/**
+	 * write added files in a transaction.
+	 * @throws SQLException
+	 */
+	public synchronized void commit() throws SQLException {
+		if (pendingEntries.isEmpty()) {
+			return;
+		}
+
+		String deleteSql = "DELETE FROM " + IMPORTS_TABLE + " WHERE " + COLUMN_SHA256 + " = ?";	// imported again by force.
+		StringBuilder sql = new StringBuilder("INSERT INTO ");
+		sql.append(IMPORTS_TABLE).append(" (");
+		sql.append(COLUMN_SHA256).append(", ").append(COLUMN_ORG_NAME).append(", ").append(COLUMN_REPORT_ID).append(", ");
+		sql.append(COLUMN_ROW_COUNT).append(", ").append(COLUMN_IMPORTED_AT).append(") ");
+		sql.append("VALUES (?, ?, ?, ?, DEFAULT)");
+
+		Connection con = pool.borrow();
+		try {
+			con.setAutoCommit(false);
+			try (PreparedStatement deleteStmt = con.prepareStatement(deleteSql);
+					PreparedStatement stmt = con.prepareStatement(sql.toString())) {
+				for (String sha256 : pendingEntries.keySet()) {
+					deleteStmt.setString(1, sha256);
+					deleteStmt.addBatch();
+				}
+				deleteStmt.executeBatch();
+				for (Map<String, Entry> entries : pendingEntries.values()) {
+					for (Entry entry : entries.values()) {
+						stmt.setString(1, entry.sha256);
+						stmt.setString(2, entry.org_name);
+						stmt.setString(3, entry.report_id);
+						stmt.setInt(4, entry.row_count);
+						stmt.addBatch();
+					}
+				}
+				stmt.executeBatch();
+			}
+			con.commit();
+		}
+		finally {
+			pool.release(con);	// rolled back if not committed, and auto commit is restored.
+			discard();
+		}
+	}
+
+	/**
+	 * discard added files, when their records could not be stored.
+	 * they remain in bloom filters, which only costs database query.
+	 */
+	public synchronized void discard() {
+		pendingEntries.clear();
+		pendingKeys.clear();
+	}
+
+	/**
+	 * check row exists or not.
+	 * @param where WHERE condition.
+	 * @param values values of condition.
+	 * @return true if exists.
+	 * @throws SQLException
+	 */
+	private boolean exists(String where, String... values) throws SQLException {
+		String sql = "SELECT 1 FROM " + IMPORTS_TABLE + " WHERE " + where;
+		Connection con = pool.borrow();
+		try (PreparedStatement stmt = con.prepareStatement(sql)) {
+			for (int i = 0; i < values.length; i++) {
+				stmt.setString(i + 1, values[i]);
+			}
+			try (ResultSet rs = stmt.executeQuery()) {
+				return rs.next();
+			}
+		}
+		finally {
+			pool.release(con);
+		}
+	}
+
+	/**
+	 * create report key for bloom filter.
+	 * @param orgName org_name.
+	 * @param reportId report_id.
+	 * @return report key.
+	 */
+	private static String reportKey(String orgName, String reportId) {
+		return orgName + KEY_DIVIDER + reportId;
+	}
+
+	// MARK: - Hash
+	/**
+	 * calculate SHA-256 of file as it is.
+	 * @param file file path.
+	 * @return SHA-256 in lower case hex.
+	 * @throws IOException
+	 */
+	public static String sha256(Path file) throws IOException {
+		try (InputStream in = Files.newInputStream(file)) {
+			return sha256(in);
+		}
+	}
+
+	/**
+	 * calculate SHA-256 of stream.
+	 * @param in input stream. not closed by this method.
+	 * @return SHA-256 in lower case hex.
+	 * @throws IOException
+	 */
+	public static String sha256(InputStream in) throws IOException {
+		MessageDigest digest;
+		try {
+			digest = MessageDigest.getInstance(HASH_ALGORITHM);
+		}
+		catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);	// every Java platform has SHA-256.
+		}
+
+		byte[] buffer = new byte[READ_BUFFER_SIZE];
+		int length;
+		while ((length = in.read(buffer)) > 0) {
+			digest.update(buffer, 0, length);
+		}
+
+		byte[] hash = digest.digest();
+		char[] hex = new char[hash.length * 2];
+		for (int i = 0; i < hash.length; i++) {
+			hex[i * 2] = HEX_DIGITS[(hash[i] >> 4) & 0x0f];
+			hex[i * 2 + 1] = HEX_DIGITS[hash[i] & 0x0f];
+		}
+		return new String(hex);
+	}
+
+	// MARK: - Entry
+	/**
+	 * imported file.
+	 */
+	public static class Entry {
+
+		// MARK: - Properties
+		private final String sha256;
+		private final String org_name;
+		private final String report_id;
+		private final int row_count;
+
+		// MARK: - Constructor
+		/**
+		 * constructor.
+		 * @param sha256 SHA-256 of file.
+		 * @param org_name org_name of a report in file.
+		 * @param report_id report_id.
+		 * @param row_count number of stored records.
+		 */
+		public Entry(String sha256, String org_name, String report_id, int row_count) {
+			super();
+			this.sha256 = sha256;
+			this.org_name = org_name;
+			this.report_id = report_id;
+			this.row_count = row_count;
+		}
+	}
+}
@@ -0,0 +1,479 @@
+package jp.co.comona.dmarcviewer.importer;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import jp.co.comona.dmarcviewer.record.Record;
+import jp.co.comona.dmarcviewer.util.ConnectionPool;
+import jp.co.comona.dmarcviewer.xml.DmarcFeedback;
+
+/**
+ * staged import pipeline.
+ * parser threads -> transformer thread -> writer thread, connected by bounded queues.
+ * parsing, converting to records and storing run at the same time,
+ * and a full queue makes previous stage wait, so memory is bounded when a stage falls behind.
+ * writer stores records in a transaction per some files.
+ * a stage which ends by unexpected error still passes END on, and drains its queue so previous stage does not wait forever.
+ * @author kageyama
+ * date: 2025/06/16
+ */
+public class ImportPipeline {
+
+	// MARK: - Static Properties
+	private static final Object END = new Object();	// end of items.
+	private static final int QUEUE_SIZE_PER_PARSER = 4;
+	private static final long METRICS_INTERVAL_NANOS = 10000000000L;
+
+	// MARK: - Properties
+	private ConnectionPool pool = null;
+	private ImportLedger ledger = null;
+	private boolean force = false;
+	private int filesPerCommit = 0;
+	private int batchSize = 0;
+	private BlockingQueue<Object> sourceQueue = null;
+	private BlockingQueue<Object> parsedQueue = null;
+	private BlockingQueue<Object> transformedQueue = null;
+	private StageMetrics parseMetrics = null;
+	private StageMetrics transformMetrics = null;
+	private StageMetrics writeMetrics = null;
+	private List<Thread> threads = new ArrayList<>();
+	private AtomicInteger runningParsers = null;
+	private AtomicInteger lostItemCount = new AtomicInteger();	// items dropped by stage ended abnormally.
+	private long startNanos = 0;
+	private long metricsPrintedNanos = 0;
+
+	// writer thread only.
+	private Map<String, List<Record>> pendingRecords = new LinkedHashMap<>();	// feedback key -> records.
+	private int pendingFileCount = 0;
+	private int importedFileCount = 0;
+	private int skippedFileCount = 0;
+	private int failedFileCount = 0;
+	private int importedRecordCount = 0;
+
+	// MARK: - Constructor
+	/**
+	 * constructor.
+	 * @param pool write connection pool. a connection is borrowed per transaction.
+	 * @param ledger import ledger.
+	 * @param force import files even if they are already imported.
+	 * @param parseThreads number of parser threads. number of processors if 0.
+	 * @param filesPerCommit number of files to store in a transaction.
+	 * @param batchSize number of rows to send at once.
+	 */
+	public ImportPipeline(ConnectionPool pool, ImportLedger ledger, boolean force, int parseThreads, int filesPerCommit, int batchSize) {
+		super();
+		this.pool = pool;
+		this.ledger = ledger;
+		this.force = force;
+		this.filesPerCommit = Math.max(filesPerCommit, 1);
+		this.batchSize = batchSize;
+		if (parseThreads < 1) {
+			parseThreads = Runtime.getRuntime().availableProcessors();
+		}
+
+		int parseQueueSize = parseThreads * QUEUE_SIZE_PER_PARSER;
+		sourceQueue = new ArrayBlockingQueue<>(parseQueueSize);
+		parsedQueue = new ArrayBlockingQueue<>(parseQueueSize);
+		transformedQueue = new ArrayBlockingQueue<>(this.filesPerCommit);	// writer can take next transaction at once.
+		parseMetrics = new StageMetrics("parse", parseThreads, sourceQueue, parseQueueSize);
+		transformMetrics = new StageMetrics("transform", 1, parsedQueue, parseQueueSize);
+		writeMetrics = new StageMetrics("write", 1, transformedQueue, this.filesPerCommit);
+
+		runningParsers = new AtomicInteger(parseThreads);
+		for (int i = 0; i < parseThreads; i++) {
+			threads.add(new Thread(new Runnable() {
+				@Override
+				public void run() {
+					runParser();
+				}
+			}, "ImportParser-" + (i + 1)));
+		}
+		threads.add(new Thread(new Runnable() {
+			@Override
+			public void run() {
+				runTransformer();
+			}
+		}, "ImportTransformer"));
+		threads.add(new Thread(new Runnable() {
+			@Override
+			public void run() {
+				runWriter();
+			}
+		}, "ImportWriter"));
+	}
+
+	// MARK: - Pipeline
+	/**
+	 * start stage threads.
+	 */
+	public void start() {
+		startNanos = System.nanoTime();
+		metricsPrintedNanos = startNanos;
+		for (Thread thread : threads) {
+			thread.start();
+		}
+	}
+
+	/**
+	 * add source to pipeline. waits while parser threads are busy.
+	 * @param source report file or message.
+	 * @throws InterruptedException
+	 */
+	public void submit(ImportSource source) throws InterruptedException {
+		sourceQueue.put(source);
+	}
+
+	/**
+	 * wait for all sources to be stored, then print metrics.
+	 * @throws InterruptedException
+	 */
+	public void finish() throws InterruptedException {
+		sourceQueue.put(END);
+		for (Thread thread : threads) {
+			thread.join();
+		}
+		printMetrics();
+	}
+
+	/**
+	 * print metrics of each stage.
+	 */
+	public void printMetrics() {
+		long elapsed = System.nanoTime() - startNanos;
+		for (StageMetrics metrics : getMetrics()) {
+			System.out.println(metrics.format(elapsed));
+		}
+	}
+
+	// MARK: - Parse Stage
+	/**
+	 * parser thread. hash, check ledger, then parse.
+	 */
+	private void runParser() {
+		boolean ended = false;
+		Object taken = null;
+		try {
+			while ((taken = sourceQueue.take()) != END) {
+				long start = parseMetrics.taken();
+				PipelineItem item = parse((ImportSource) taken);
+				parseMetrics.processed(start);
+				parsedQueue.put(item);
+				taken = null;
+			}
+			sourceQueue.put(END);	// for other parser threads.
+			ended = true;
+		}
+		catch (InterruptedException e) {
+			e.printStackTrace(System.err);
+		}
+		finally {
+			if (ended == false) {
+				countLostItem(taken);
+			}
+			if (runningParsers.decrementAndGet() == 0) {	// last parser thread.
+				if (ended == false) {
+					drain(sourceQueue);
+				}
+				putEnd(parsedQueue);
+			}
+		}
+	}
+
+	/**
+	 * parse source.
+	 * @param source report file or message.
+	 * @return pipeline item. error is kept in it, not to stop pipeline.
+	 */
+	private PipelineItem parse(ImportSource source) {
+		PipelineItem item = new PipelineItem(source.getName());
+		try {
+			item.sha256 = source.sha256();
+			if ((force == false) && ledger.containsHash(item.sha256)) {
+				item.skipped = true;
+				return item;
+			}
+			item.feedbacks = source.parse();
+		}
+		catch (Exception e) {
+			item.error = e;
+		}
+		return item;
+	}
+
+	// MARK: - Transform Stage
+	/**
+	 * transformer thread. convert feedbacks to merged records.
+	 */
+	private void runTransformer() {
+		boolean ended = false;
+		Object taken = null;
+		try {
+			while ((taken = parsedQueue.take()) != END) {
+				long start = transformMetrics.taken();
+				PipelineItem item = (PipelineItem) taken;
+				if (item.feedbacks != null) {
+					try {
+						item.records = new ArrayList<>();
+						for (DmarcFeedback feedback : item.feedbacks) {
+							item.records.add(DmarcImportTool.createRecords(feedback));
+						}
+					}
+					catch (RuntimeException e) {
+						item.error = e;
+					}
+				}
+				transformMetrics.processed(start);
+				transformedQueue.put(item);
+				taken = null;
+			}
+			ended = true;
+		}
+		catch (InterruptedException e) {
+			e.printStackTrace(System.err);
+		}
+		finally {
+			if (ended == false) {
+				countLostItem(taken);
+				drain(parsedQueue);
+			}
+			putEnd(transformedQueue);
+		}
+	}
+
+	// MARK: - Write Stage
+	/**
+	 * writer thread. store records in a transaction per some files.
+	 */
+	private void runWriter() {
+		boolean ended = false;
+		Object taken = null;
+		try {
+			while ((taken = transformedQueue.take()) != END) {
+				long start = writeMetrics.taken();
+				write((PipelineItem) taken);
+				writeMetrics.processed(start);
+				taken = null;
+
+				long now = System.nanoTime();
+				if (now - metricsPrintedNanos >= METRICS_INTERVAL_NANOS) {
+					metricsPrintedNanos = now;
+					printMetrics();
+				}
+			}
+			ended = true;
+			storePendingRecords();
+		}
+		catch (InterruptedException e) {
+			e.printStackTrace(System.err);
+		}
+		finally {
+			if (ended == false) {
+				countLostItem(taken);
+				lostItemCount.addAndGet(pendingFileCount);	// not stored.
+				drain(transformedQueue);
+			}
+		}
+	}
+
+	/**
+	 * add records of item to pending records, and store them when enough files are pending.
+	 * @param item pipeline item.
+	 */
+	private void write(PipelineItem item) {
+		if (item.error != null) {
+			System.err.println(item.name + ": " + item.error.getLocalizedMessage());
+			failedFileCount++;
+			return;
+		}
+		if (item.skipped) {
+			skippedFileCount++;
+			return;
+		}
+
+		boolean added = false;
+		try {
+			for (int i = 0; i < item.feedbacks.size(); i++) {
+				DmarcFeedback feedback = item.feedbacks.get(i);
+				if ((force == false) && ledger.containsReport(feedback)) {
+					continue;
+				}
+				List<Record> records = item.records.get(i);
+				if (records.size() > 0) {
+					pendingRecords.put(records.get(0).getFeedbackKey(), records);
+				}
+				ledger.add(item.sha256, feedback, records.size());	// every report of message.
+				added = true;
+			}
+		}
+		catch (SQLException | RuntimeException e) {
+			System.err.println(item.name + ": " + e.getLocalizedMessage());
+			failedFileCount++;
+			return;
+		}
+
+		if (added == false) {
+			if (item.feedbacks.isEmpty()) {
+				System.err.println(item.name + ": no report.");
+			}
+			skippedFileCount++;
+			return;
+		}
+		pendingFileCount++;
+		if (pendingFileCount >= filesPerCommit) {
+			storePendingRecords();
+		}
+	}
+
+	/**
+	 * store pending records in a transaction.
+	 */
+	private void storePendingRecords() {
+		if (pendingFileCount < 1) {
+			return;
+		}
+		List<Record> storeRecords = new ArrayList<>();
+		for (List<Record> records : pendingRecords.values()) {
+			storeRecords.addAll(records);
+		}
+		try {
+			Connection con = pool.borrow();
+			try {
+				Record.store(storeRecords, con, batchSize);	// delete org_name, report_id, then insert.
+			}
+			finally {
+				pool.release(con);
+			}
+			importedFileCount += pendingFileCount;
+			importedRecordCount += storeRecords.size();
+			try {
+				ledger.commit();
+			}
+			catch (SQLException | RuntimeException e) {
+				e.printStackTrace(System.err);	// records are already stored.
+			}
+		}
+		catch (SQLException | RuntimeException e) {
+			e.printStackTrace(System.err);
+			failedFileCount += pendingFileCount;
+			ledger.discard();
+		}
+		pendingRecords.clear();
+		pendingFileCount = 0;
+	}
+
+	/**
+	 * take items until END, after stage ended abnormally.
+	 * previous stage and submit() can put items without waiting. taken items are counted as failed.
+	 * @param queue input queue of the stage.
+	 */
+	private void drain(BlockingQueue<Object> queue) {
+		try {
+			while (queue.take() != END) {
+				lostItemCount.incrementAndGet();
+			}
+		}
+		catch (InterruptedException e) {
+			e.printStackTrace(System.err);
+		}
+	}
+
+	/**
+	 * put END to next stage.
+	 * @param queue input queue of next stage.
+	 */
+	private void putEnd(BlockingQueue<Object> queue) {
+		try {
+			queue.put(END);
+		}
+		catch (InterruptedException e) {
+			e.printStackTrace(System.err);
+		}
+	}
+
+	/**
+	 * count item which was being processed when stage ended abnormally.
+	 * @param taken taken item, or null if nothing was being processed.
+	 */
+	private void countLostItem(Object taken) {
+		if ((taken != null) && (taken != END)) {
+			lostItemCount.incrementAndGet();
+		}
+	}
+
+	// MARK: - Getters
+	/**
+	 * get metrics of each stage.
+	 * @return parse, transform and write metrics.
+	 */
+	public List<StageMetrics> getMetrics() {
+		List<StageMetrics> metrics = new ArrayList<>();
+		metrics.add(parseMetrics);
+		metrics.add(transformMetrics);
+		metrics.add(writeMetrics);
+		return metrics;
+	}
+
+	/**
+	 * get number of imported files. valid after finish().
+	 * @return number of imported files.
+	 */
+	public int getImportedFileCount() {
+		return importedFileCount;
+	}
+
+	/**
+	 * get number of skipped files. valid after finish().
+	 * @return number of skipped files.
+	 */
+	public int getSkippedFileCount() {
+		return skippedFileCount;
+	}
+
+	/**
+	 * get number of failed files. valid after finish().
+	 * @return number of failed files.
+	 */
+	public int getFailedFileCount() {
+		return failedFileCount + lostItemCount.get();
+	}
+
+	/**
+	 * get number of imported records. valid after finish().
+	 * @return number of imported records.
+	 */
+	public int getImportedRecordCount() {
+		return importedRecordCount;
+	}
+
+	// MARK: - Pipeline Item
+	/**
+	 * source passed through stages.
+	 */
+	private static class PipelineItem {
+
+		// MARK: - Properties
+		private final String name;
+		private String sha256 = null;
+		private boolean skipped = false;
+		private Exception error = null;
+		private List<DmarcFeedback> feedbacks = null;
+		private List<List<Record>> records = null;	// records of each feedback.
+
+		// MARK: - Constructor
+		/**
+		 * constructor.
+		 * @param name source name.
+		 */
+		private PipelineItem(String name) {
+			super();
+			this.name = name;
+		}
+	}
+}
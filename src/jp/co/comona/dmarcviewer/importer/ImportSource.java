@@ -0,0 +1,40 @@
+package jp.co.comona.dmarcviewer.importer;
+
+import java.io.IOException;
+import java.util.List;
+
+import javax.xml.parsers.ParserConfigurationException;
+
+import org.xml.sax.SAXException;
+
+import jp.co.comona.dmarcviewer.xml.DmarcFeedback;
+
+/**
+ * report file or mail message to import.
+ * @author kageyama
+ * date: 2025/06/16
+ */
+public interface ImportSource {
+
+	/**
+	 * get name to show.
+	 * @return file path or message name.
+	 */
+	public String getName();
+
+	/**
+	 * calculate SHA-256 of source as it is.
+	 * @return SHA-256 in lower case hex.
+	 * @throws IOException
+	 */
+	public String sha256() throws IOException;
+
+	/**
+	 * parse reports in source.
+	 * @return parsed feedbacks. empty if source has no report.
+	 * @throws ParserConfigurationException
+	 * @throws SAXException
+	 * @throws IOException
+	 */
+	public List<DmarcFeedback> parse() throws ParserConfigurationException, SAXException, IOException;
+}
@@ -0,0 +1,107 @@
+package jp.co.comona.dmarcviewer.importer;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * throughput and queue depth of a pipeline stage.
+ * @author kageyama
+ * date: 2025/06/16
+ */
+public class StageMetrics {
+
+	// MARK: - Properties
+	private final String name;
+	private final int threadCount;
+	private final BlockingQueue<?> inputQueue;
+	private final int queueCapacity;
+	private final AtomicLong itemCount = new AtomicLong();
+	private final AtomicLong busyNanos = new AtomicLong();
+	private volatile int maxQueueDepth = 0;
+
+	// MARK: - Constructor
+	/**
+	 * constructor.
+	 * @param name stage name.
+	 * @param threadCount number of threads of stage.
+	 * @param inputQueue input queue of stage.
+	 * @param queueCapacity capacity of input queue.
+	 */
+	public StageMetrics(String name, int threadCount, BlockingQueue<?> inputQueue, int queueCapacity) {
+		super();
+		this.name = name;
+		this.threadCount = threadCount;
+		this.inputQueue = inputQueue;
+		this.queueCapacity = queueCapacity;
+	}
+
+	// MARK: - Measure
+	/**
+	 * item is taken from input queue.
+	 * @return start time to pass to processed().
+	 */
+	public long taken() {
+		int depth = inputQueue.size();
+		if (depth > maxQueueDepth) {
+			maxQueueDepth = depth;	// not exact among threads, but enough to see.
+		}
+		return System.nanoTime();
+	}
+
+	/**
+	 * item is processed.
+	 * @param startNanos start time returned by taken().
+	 */
+	public void processed(long startNanos) {
+		busyNanos.addAndGet(System.nanoTime() - startNanos);
+		itemCount.incrementAndGet();
+	}
+
+	// MARK: - Getters
+	/**
+	 * get stage name.
+	 * @return stage name.
+	 */
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * get number of processed items.
+	 * @return number of processed items.
+	 */
+	public long getItemCount() {
+		return itemCount.get();
+	}
+
+	/**
+	 * get current input queue depth.
+	 * @return number of items waiting.
+	 */
+	public int getQueueDepth() {
+		return inputQueue.size();
+	}
+
+	/**
+	 * get items per second while stage was busy. it is the throughput when the stage is not waiting for others.
+	 * @return items per second.
+	 */
+	public double getBusyThroughput() {
+		long busy = busyNanos.get();
+		return (busy > 0) ? itemCount.get() * threadCount * 1000000000.0 / busy : 0;
+	}
+
+	/**
+	 * format metrics.
+	 * @param elapsedNanos elapsed time of pipeline.
+	 * @return metrics string.
+	 */
+	public String format(long elapsedNanos) {
+		double seconds = elapsedNanos / 1000000000.0;
+		double throughput = (seconds > 0) ? itemCount.get() / seconds : 0;
+		double busy = (elapsedNanos > 0) ? busyNanos.get() * 100.0 / elapsedNanos / threadCount : 0;
+		return String.format("%-9s %6d items %8.1f/s (%8.1f/s when busy) busy %3.0f%%, queue %d/%d (max %d)",
+				name, itemCount.get(), throughput, getBusyThroughput(), busy,
+				getQueueDepth(), queueCapacity, maxQueueDepth);
+	}
+}
@@ -0,0 +1,139 @@
+package jp.co.comona.dmarcviewer.mail;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * stream of a multipart section, which ends at the next boundary line.
+ * line terminator before boundary is left in the section,
+ * which is harmless for base64, XML and compressed attachments.
+ * @author kageyama
+ * date: 2025/06/15
+ */
+public class BoundaryInputStream extends InputStream {
+
+	// MARK: - Properties
+	private InputStream in = null;
+	private byte[] delimiter = null;
+	private byte[] line = null;
+	private int position = 0;
+	private boolean ended = false;
+	private boolean closing = false;
+	private boolean boundaryFound = false;
+
+	// MARK: - Constructor
+	/**
+	 * constructor.
+	 * @param in multipart body stream, positioned at beginning of section.
+	 * @param boundary multipart boundary.
+	 */
+	public BoundaryInputStream(InputStream in, String boundary) {
+		super();
+		this.in = in;
+		delimiter = ("--" + boundary).getBytes(StandardCharsets.ISO_8859_1);
+	}
+
+	// MARK: - Getters
+	/**
+	 * check section ended with close delimiter or not.
+	 * valid after end of section is read.
+	 * @return true if no more section follows.
+	 */
+	public boolean isClosing() {
+		return closing;
+	}
+
+	/**
+	 * check section ended with boundary or not.
+	 * valid after end of section is read.
+	 * @return false if stream ended without boundary.
+	 */
+	public boolean isBoundaryFound() {
+		return boundaryFound;
+	}
+
+	// MARK: - InputStream
+	/**
+	 * read a byte.
+	 */
+	@Override
+	public int read() throws IOException {
+		if (fillLine() == false) {
+			return -1;
+		}
+		return line[position++] & 0xff;
+	}
+
+	/**
+	 * read bytes.
+	 */
+	@Override
+	public int read(byte[] b, int off, int len) throws IOException {
+		if (len == 0) {
+			return 0;
+		}
+		if (fillLine() == false) {
+			return -1;
+		}
+		int length = Math.min(len, line.length - position);
+		System.arraycopy(line, position, b, off, length);
+		position += length;
+		return length;
+	}
+
+	/**
+	 * read rest of section.
+	 * @throws IOException
+	 */
+	public void skipSection() throws IOException {
+		while (fillLine()) {
+			position = line.length;
+		}
+	}
+
+	/**
+	 * read next line if current line is consumed.
+	 * @return false at end of section.
+	 * @throws IOException
+	 */
+	private boolean fillLine() throws IOException {
+		while ((ended == false) && ((line == null) || (position >= line.length))) {
+			line = MimeHeaders.readLine(in);
+			position = 0;
+			if (line == null) {
+				ended = true;
+			}
+			else if (isDelimiter(line)) {
+				ended = true;
+				boundaryFound = true;
+				closing = (line.length >= delimiter.length + 2)
+						&& (line[delimiter.length] == '-') && (line[delimiter.length + 1] == '-');
+			}
+		}
+		return ended == false;
+	}
+
+	/**
+	 * check line is boundary line or not.
+	 * @param line line bytes.
+	 * @return true if boundary line.
+	 */
+	private boolean isDelimiter(byte[] line) {
+		if (line.length < delimiter.length) {
+			return false;
+		}
+		for (int i = 0; i < delimiter.length; i++) {
+			if (line[i] != delimiter[i]) {
+				return false;
+			}
+		}
+		for (int i = delimiter.length; i < line.length; i++) {	// only close delimiter and white spaces can follow.
+			byte b = line[i];
+			if ((b != '-') && (b != ' ') && (b != '\t') && (b != '\r') && (b != '\n')) {
+				return false;
+			}
+		}
+		return true;
+	}
+}
@@ -0,0 +1,239 @@
+package jp.co.comona.dmarcviewer.mail;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * read mail messages from Maildir or mbox file, one by one.
+ * @author kageyama
+ * date: 2025/06/15
+ */
+public class MailboxReader implements Closeable {
+
+	// MARK: - Static Properties
+	private static final String[] MAILDIR_DIRECTORIES = { "new", "cur", };
+	private static final byte[] MBOX_FROM = { 'F', 'r', 'o', 'm', ' ', };
+
+	// MARK: - Properties
+	private Iterator<Path> maildirFiles = null;
+	private InputStream mbox = null;
+	private String mboxName = null;
+	private byte[] nextFromLine = null;
+	private int mboxMessageCount = 0;
+
+	// MARK: - Constructor
+	/**
+	 * constructor.
+	 * @param mailbox Maildir directory, or mbox file.
+	 * @throws IOException
+	 */
+	public MailboxReader(Path mailbox) throws IOException {
+		super();
+		if (Files.isDirectory(mailbox)) {
+			maildirFiles = listMaildir(mailbox).iterator();
+		}
+		else {
+			mbox = new BufferedInputStream(Files.newInputStream(mailbox));
+			mboxName = mailbox.getFileName().toString();
+			nextFromLine = MimeHeaders.readLine(mbox);
+			if ((nextFromLine != null) && (startsWithFrom(nextFromLine) == false)) {
+				throw new IOException(mailbox + " is not mbox file.");
+			}
+		}
+	}
+
+	/**
+	 * list message files in new and cur directories of Maildir.
+	 * @param maildir Maildir directory.
+	 * @return message files in name order.
+	 * @throws IOException
+	 */
+	private static List<Path> listMaildir(Path maildir) throws IOException {
+		List<Path> files = new ArrayList<>();
+		for (String name : MAILDIR_DIRECTORIES) {
+			Path directory = maildir.resolve(name);
+			if (Files.isDirectory(directory) == false) {
+				continue;
+			}
+			try (Stream<Path> stream = Files.list(directory)) {
+				Iterator<Path> it = stream.iterator();
+				while (it.hasNext()) {
+					Path file = it.next();
+					if (Files.isRegularFile(file) && (file.getFileName().toString().startsWith(".") == false)) {
+						files.add(file);
+					}
+				}
+			}
+		}
+		if (files.isEmpty()) {
+			throw new IOException(maildir + " is not Maildir. no message in new or cur.");
+		}
+		Collections.sort(files);
+		return files;
+	}
+
+	// MARK: - Read
+	/**
+	 * read next message.
+	 * Maildir message is read from its file when it is opened, mbox message is read into memory.
+	 * @return next message, or null if no more message.
+	 * @throws IOException
+	 */
+	public MailMessage next() throws IOException {
+		if (maildirFiles != null) {
+			return maildirFiles.hasNext() ? new MailMessage(maildirFiles.next()) : null;
+		}
+		return nextMboxMessage();
+	}
+
+	/**
+	 * read next message of mbox.
+	 * message ends at "From " line after empty line. ">From " lines are unquoted.
+	 * @return next message, or null if no more message.
+	 * @throws IOException
+	 */
+	private MailMessage nextMboxMessage() throws IOException {
+		if (nextFromLine == null) {
+			return null;
+		}
+
+		ByteArrayOutputStream message = new ByteArrayOutputStream();
+		boolean emptyLine = false;
+		byte[] line;
+		nextFromLine = null;
+		while ((line = MimeHeaders.readLine(mbox)) != null) {
+			if (emptyLine && startsWithFrom(line)) {
+				nextFromLine = line;
+				break;
+			}
+			if (isQuotedFrom(line)) {
+				message.write(line, 1, line.length - 1);
+			}
+			else {
+				message.write(line, 0, line.length);
+			}
+			emptyLine = (line.length <= 2) && ((line[0] == '\n') || (line[0] == '\r'));
+		}
+		mboxMessageCount++;
+		return new MailMessage(mboxName + "#" + mboxMessageCount, message.toByteArray());
+	}
+
+	/**
+	 * check line starts with "From " or not.
+	 * @param line line bytes.
+	 * @return true if "From " line.
+	 */
+	private static boolean startsWithFrom(byte[] line) {
+		return startsWithFrom(line, 0);
+	}
+
+	/**
+	 * check line has "From " at offset or not.
+	 * @param line line bytes.
+	 * @param offset offset.
+	 * @return true if "From " at offset.
+	 */
+	private static boolean startsWithFrom(byte[] line, int offset) {
+		if (line.length < offset + MBOX_FROM.length) {
+			return false;
+		}
+		for (int i = 0; i < MBOX_FROM.length; i++) {
+			if (line[offset + i] != MBOX_FROM[i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * check line is quoted "From " line, like ">From " or ">>From ".
+	 * @param line line bytes.
+	 * @return true if quoted.
+	 */
+	private static boolean isQuotedFrom(byte[] line) {
+		int quotes = 0;
+		while ((quotes < line.length) && (line[quotes] == '>')) {
+			quotes++;
+		}
+		return (quotes > 0) && startsWithFrom(line, quotes);
+	}
+
+	/**
+	 * close mbox file.
+	 */
+	@Override
+	public void close() throws IOException {
+		if (mbox != null) {
+			mbox.close();
+			mbox = null;
+		}
+	}
+
+	// MARK: - Mail Message
+	/**
+	 * mail message in mailbox.
+	 */
+	public static class MailMessage {
+
+		// MARK: - Properties
+		private final String name;
+		private final Path file;
+		private final byte[] data;
+
+		// MARK: - Constructor
+		/**
+		 * constructor for Maildir message.
+		 * @param file message file.
+		 */
+		private MailMessage(Path file) {
+			super();
+			name = file.toString();
+			this.file = file;
+			data = null;
+		}
+
+		/**
+		 * constructor for mbox message.
+		 * @param name message name.
+		 * @param data message bytes.
+		 */
+		private MailMessage(String name, byte[] data) {
+			super();
+			this.name = name;
+			file = null;
+			this.data = data;
+		}
+
+		// MARK: - Getters
+		/**
+		 * get message name to show.
+		 * @return file path, or mbox file name and message number.
+		 */
+		public String getName() {
+			return name;
+		}
+
+		/**
+		 * open message stream.
+		 * @return message stream.
+		 * @throws IOException
+		 */
+		public InputStream openStream() throws IOException {
+			if (file != null) {
+				return new BufferedInputStream(Files.newInputStream(file));
+			}
+			return new ByteArrayInputStream(data);
+		}
+	}
+}
@@ -0,0 +1,189 @@
+package jp.co.comona.dmarcviewer.mail;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * MIME headers of message or body part.
+ * @author kageyama
+ * date: 2025/06/15
+ */
+public class MimeHeaders {
+
+	// MARK: - Static Properties
+	public static final String CONTENT_TYPE = "content-type";
+	public static final String CONTENT_TRANSFER_ENCODING = "content-transfer-encoding";
+	public static final String CONTENT_DISPOSITION = "content-disposition";
+	private static final String DEFAULT_CONTENT_TYPE = "text/plain";
+
+	// MARK: - Properties
+	private Map<String, String> headers = new LinkedHashMap<>();	// lower case name -> unfolded value.
+
+	// MARK: - Constructor
+	/**
+	 * constructor.
+	 */
+	private MimeHeaders() {
+		super();
+	}
+
+	/**
+	 * read headers until empty line.
+	 * @param in message or body part stream.
+	 * @return headers.
+	 * @throws IOException
+	 */
+	public static MimeHeaders read(InputStream in) throws IOException {
+		MimeHeaders mimeHeaders = new MimeHeaders();
+		String name = null;
+		StringBuilder value = new StringBuilder();
+		byte[] line;
+		while ((line = readLine(in)) != null) {
+			String text = trimLineEnd(new String(line, StandardCharsets.ISO_8859_1));
+			if (text.isEmpty()) {
+				break;	// end of headers.
+			}
+			if (((text.charAt(0) == ' ') || (text.charAt(0) == '\t')) && (name != null)) {	// folded.
+				value.append(' ').append(text.trim());
+				continue;
+			}
+			mimeHeaders.put(name, value);
+			int colon = text.indexOf(':');
+			name = (colon > 0) ? text.substring(0, colon).trim().toLowerCase(Locale.ROOT) : null;
+			value.setLength(0);
+			if (colon > 0) {
+				value.append(text.substring(colon + 1).trim());
+			}
+		}
+		mimeHeaders.put(name, value);
+		return mimeHeaders;
+	}
+
+	/**
+	 * keep header. first one is kept for same name.
+	 * @param name lower case header name.
+	 * @param value header value.
+	 */
+	private void put(String name, StringBuilder value) {
+		if (name != null) {
+			headers.putIfAbsent(name, value.toString());
+		}
+	}
+
+	// MARK: - Getters
+	/**
+	 * get header value.
+	 * @param name header name.
+	 * @return header value, or null if not found.
+	 */
+	public String get(String name) {
+		return headers.get(name.toLowerCase(Locale.ROOT));
+	}
+
+	/**
+	 * get content type without parameters.
+	 * @return lower case content type. text/plain if not specified.
+	 */
+	public String getContentType() {
+		String value = get(CONTENT_TYPE);
+		if (value == null) {
+			return DEFAULT_CONTENT_TYPE;
+		}
+		int semicolon = value.indexOf(';');
+		return ((semicolon < 0) ? value : value.substring(0, semicolon)).trim().toLowerCase(Locale.ROOT);
+	}
+
+	/**
+	 * get content transfer encoding.
+	 * @return lower case encoding. 7bit if not specified.
+	 */
+	public String getTransferEncoding() {
+		String value = get(CONTENT_TRANSFER_ENCODING);
+		return (value == null) ? "7bit" : value.trim().toLowerCase(Locale.ROOT);
+	}
+
+	/**
+	 * get multipart boundary.
+	 * @return boundary, or null if not multipart.
+	 */
+	public String getBoundary() {
+		if (getContentType().startsWith("multipart/") == false) {
+			return null;
+		}
+		return getParameter(get(CONTENT_TYPE), "boundary");
+	}
+
+	/**
+	 * get file name of body part, from Content-Disposition filename or Content-Type name.
+	 * @return file name, or null if not specified.
+	 */
+	public String getFileName() {
+		String fileName = getParameter(get(CONTENT_DISPOSITION), "filename");
+		if (fileName == null) {
+			fileName = getParameter(get(CONTENT_TYPE), "name");
+		}
+		return fileName;
+	}
+
+	/**
+	 * get parameter of header value. e.g. boundary of Content-Type.
+	 * @param value header value.
+	 * @param parameter lower case parameter name.
+	 * @return parameter value, or null if not found.
+	 */
+	protected static String getParameter(String value, String parameter) {
+		if (value == null) {
+			return null;
+		}
+		String[] fields = value.split(";");
+		for (int i = 1; i < fields.length; i++) {
+			String field = fields[i].trim();
+			int equal = field.indexOf('=');
+			if ((equal > 0) && field.substring(0, equal).trim().equalsIgnoreCase(parameter)) {
+				String param = field.substring(equal + 1).trim();
+				if ((param.length() > 1) && param.startsWith("\"") && param.endsWith("\"")) {
+					param = param.substring(1, param.length() - 1);
+				}
+				return param;
+			}
+		}
+		return null;
+	}
+
+	// MARK: - Line
+	/**
+	 * read a line including line terminator.
+	 * @param in input stream.
+	 * @return line bytes, or null at end of stream.
+	 * @throws IOException
+	 */
+	protected static byte[] readLine(InputStream in) throws IOException {
+		ByteArrayOutputStream line = new ByteArrayOutputStream(80);
+		int b;
+		while ((b = in.read()) >= 0) {
+			line.write(b);
+			if (b == '\n') {
+				break;
+			}
+		}
+		return ((b < 0) && (line.size() == 0)) ? null : line.toByteArray();
+	}
+
+	/**
+	 * remove CR and LF at end of line.
+	 * @param line line string.
+	 * @return line without terminator.
+	 */
+	protected static String trimLineEnd(String line) {
+		int end = line.length();
+		while ((end > 0) && ((line.charAt(end - 1) == '\n') || (line.charAt(end - 1) == '\r'))) {
+			end--;
+		}
+		return line.substring(0, end);
+	}
+}
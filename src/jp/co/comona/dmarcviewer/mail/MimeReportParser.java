@@ -0,0 +1,121 @@
+package jp.co.comona.dmarcviewer.mail;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.Locale;
+
+import javax.xml.parsers.ParserConfigurationException;
+
+import org.xml.sax.SAXException;
+
+import jp.co.comona.dmarcviewer.xml.DmarcFeedback;
+
+/**
+ * find DMARC report attachments in mail message and parse them.
+ * MIME structure is read as stream, and attachment is decoded and parsed without writing file.
+ * @author kageyama
+ * date: 2025/06/15
+ */
+public class MimeReportParser {
+
+	// MARK: - Static Properties
+	private static final String[] REPORT_CONTENT_TYPES = {
+		"application/gzip", "application/x-gzip", "application/zip", "application/x-zip",
+		"application/x-zip-compressed", "application/xml", "text/xml",
+	};
+	private static final String[] REPORT_EXTENSIONS = { ".xml", ".gz", ".zip", };
+	private static final int MAX_NESTING = 10;
+
+	// MARK: - Constructor
+	/**
+	 * constructor.
+	 */
+	private MimeReportParser() {
+		super();
+	}
+
+	// MARK: - Parse
+	/**
+	 * parse report attachments of mail message.
+	 * @param in message stream, starting with headers.
+	 * @return parsed feedbacks. empty if no report is attached.
+	 * @throws ParserConfigurationException
+	 * @throws SAXException
+	 * @throws IOException
+	 */
+	public static List<DmarcFeedback> parse(InputStream in) throws ParserConfigurationException, SAXException, IOException {
+		List<DmarcFeedback> feedbacks = new ArrayList<>();
+		parseEntity(in, feedbacks, 0);
+		return feedbacks;
+	}
+
+	/**
+	 * parse message or body part.
+	 * @param in entity stream, starting with headers.
+	 * @param feedbacks list to add parsed feedbacks.
+	 * @param nesting nesting level of multipart.
+	 * @throws ParserConfigurationException
+	 * @throws SAXException
+	 * @throws IOException
+	 */
+	private static void parseEntity(InputStream in, List<DmarcFeedback> feedbacks, int nesting) throws ParserConfigurationException, SAXException, IOException {
+		MimeHeaders headers = MimeHeaders.read(in);
+		String boundary = headers.getBoundary();
+		if ((boundary != null) && (nesting < MAX_NESTING)) {
+			BoundaryInputStream section = new BoundaryInputStream(in, boundary);
+			section.skipSection();	// preamble.
+			while (section.isBoundaryFound() && (section.isClosing() == false)) {
+				section = new BoundaryInputStream(in, boundary);
+				parseEntity(section, feedbacks, nesting + 1);
+				section.skipSection();
+			}
+		}
+		else if (isReport(headers)) {
+			feedbacks.add(DmarcFeedback.parse(decode(in, headers.getTransferEncoding())));
+		}
+	}
+
+	/**
+	 * check body part is report or not, by content type or file name.
+	 * @param headers headers of body part.
+	 * @return true if report.
+	 */
+	private static boolean isReport(MimeHeaders headers) {
+		String contentType = headers.getContentType();
+		for (String reportType : REPORT_CONTENT_TYPES) {
+			if (reportType.equals(contentType)) {
+				return true;
+			}
+		}
+		String fileName = headers.getFileName();
+		if (fileName != null) {
+			fileName = fileName.toLowerCase(Locale.ROOT);
+			for (String extension : REPORT_EXTENSIONS) {
+				if (fileName.endsWith(extension)) {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * decode body by transfer encoding.
+	 * @param in encoded body stream.
+	 * @param transferEncoding lower case transfer encoding.
+	 * @return decoded stream.
+	 */
+	private static InputStream decode(InputStream in, String transferEncoding) {
+		switch (transferEncoding) {
+			case "base64":
+				return Base64.getMimeDecoder().wrap(in);
+			case "quoted-printable":
+				return new QuotedPrintableInputStream(in);
+			default:	// 7bit, 8bit, binary.
+				return in;
+		}
+	}
+}
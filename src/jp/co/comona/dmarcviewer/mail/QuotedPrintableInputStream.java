@@ -0,0 +1,95 @@
+package jp.co.comona.dmarcviewer.mail;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PushbackInputStream;
+
+/**
+ * quoted-printable decoding stream.
+ * @author kageyama
+ * date: 2025/06/15
+ */
+public class QuotedPrintableInputStream extends FilterInputStream {
+
+	// MARK: - Constructor
+	/**
+	 * constructor.
+	 * @param in quoted-printable encoded stream.
+	 */
+	public QuotedPrintableInputStream(InputStream in) {
+		super(new PushbackInputStream(in, 2));
+	}
+
+	// MARK: - InputStream
+	/**
+	 * read a decoded byte.
+	 */
+	@Override
+	public int read() throws IOException {
+		PushbackInputStream pushback = (PushbackInputStream) in;
+		int b;
+		while ((b = pushback.read()) == '=') {
+			int first = pushback.read();
+			if ((first == '\r') || (first == '\n')) {	// soft line break.
+				if (first == '\r') {
+					int second = pushback.read();
+					if ((second != '\n') && (second >= 0)) {
+						pushback.unread(second);
+					}
+				}
+				continue;
+			}
+			int second = pushback.read();
+			int high = Character.digit(first, 16);
+			int low = Character.digit(second, 16);
+			if ((first < 0) || (second < 0) || (high < 0) || (low < 0)) {	// not encoded, keep as it is.
+				if (second >= 0) {
+					pushback.unread(second);
+				}
+				if (first >= 0) {
+					pushback.unread(first);
+				}
+				return '=';
+			}
+			return (high << 4) | low;
+		}
+		return b;
+	}
+
+	/**
+	 * read decoded bytes.
+	 */
+	@Override
+	public int read(byte[] b, int off, int len) throws IOException {
+		int count = 0;
+		while (count < len) {
+			int c = read();
+			if (c < 0) {
+				return (count == 0) ? -1 : count;
+			}
+			b[off + count++] = (byte) c;
+		}
+		return count;
+	}
+
+	/**
+	 * skip bytes.
+	 */
+	@Override
+	public long skip(long n) throws IOException {
+		long count = 0;
+		while ((count < n) && (read() >= 0)) {
+			count++;
+		}
+		return count;
+	}
+
+	/**
+	 * mark is not supported.
+	 */
+	@Override
+	public boolean markSupported() {
+		return false;
+	}
+}
@@ -0,0 +1,69 @@
+package jp.co.comona.dmarcviewer.record;
+
+/**
+ * aggregated row of records grouped by columns.
+ * @author kageyama
+ * date: 2025/06/23
+ */
+public class AggregateRecord implements RecordColumns {
+
+	// MARK: - Static Property
+	public static final String COLUMN_MESSAGE_COUNT = "message_count";	// SUM(count).
+	public static final String COLUMN_RECORD_COUNT = "record_count";	// COUNT(*).
+	public static final String[] GROUP_BY_COLUMNS = {
+		COLUMN_ORG_NAME, COLUMN_DOMAIN, COLUMN_HEADER_FROM, COLUMN_SOURCE_IP, COLUMN_DISPOSITION, COLUMN_DKIM, COLUMN_SPF,
+	};
+
+	// MARK: - Property
+	private String[] values = null;
+	private long messageCount = 0;
+	private int recordCount = 0;
+
+	// MARK: - Constructor
+	/**
+	 * constructor.
+	 * @param values values of grouped columns.
+	 * @param messageCount SUM(count).
+	 * @param recordCount number of records.
+	 */
+	public AggregateRecord(String[] values, long messageCount, int recordCount) {
+		super();
+		this.values = values;
+		this.messageCount = messageCount;
+		this.recordCount = recordCount;
+	}
+
+	// MARK: - Getters
+	/**
+	 * get value of grouped column.
+	 * @param index index of grouped columns.
+	 * @return value.
+	 */
+	public String getValue(int index) {
+		return values[index];
+	}
+
+	/**
+	 * get number of grouped columns.
+	 * @return number of grouped columns.
+	 */
+	public int getValueCount() {
+		return values.length;
+	}
+
+	/**
+	 * get number of messages.
+	 * @return SUM(count).
+	 */
+	public long getMessageCount() {
+		return messageCount;
+	}
+
+	/**
+	 * get number of records.
+	 * @return number of records.
+	 */
+	public int getRecordCount() {
+		return recordCount;
+	}
+}
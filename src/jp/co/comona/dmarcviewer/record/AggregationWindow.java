@@ -0,0 +1,357 @@
+package jp.co.comona.dmarcviewer.record;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.eclipse.swt.SWT;
+import org.eclipse.swt.events.SelectionAdapter;
+import org.eclipse.swt.events.SelectionEvent;
+import org.eclipse.swt.graphics.Rectangle;
+import org.eclipse.swt.widgets.Button;
+import org.eclipse.swt.widgets.Display;
+import org.eclipse.swt.widgets.Event;
+import org.eclipse.swt.widgets.Label;
+import org.eclipse.swt.widgets.Listener;
+import org.eclipse.swt.widgets.Table;
+import org.eclipse.swt.widgets.TableColumn;
+import org.eclipse.swt.widgets.TableItem;
+
+import jp.co.comona.dmarcviewer.DmarcViewerTool;
+import jp.co.comona.dmarcviewer.MainWindow;
+import jp.co.comona.dmarcviewer.SubWindow;
+import jp.co.comona.dmarcviewer.record.where.SearchOptions;
+import jp.co.comona.dmarcviewer.util.ConnectionPool;
+import jp.co.comona.dmarcviewer.util.MessageBox;
+
+/**
+ * aggregation window.
+ * records matched to search options are grouped by selected columns on database, and only aggregated rows are shown.
+ * @author kageyama
+ * date: 2025/06/23
+ */
+public class AggregationWindow extends SubWindow {
+
+	// MARK: - Static Properties
+	private static final String AGGREGATE_BUTTON_TITLE = "Aggregate";
+	private static final String PROP_AGGREGATION_GROUP_PREFIX = "AGGREGATION_GROUP_";
+	private static final int GROUP_BOX_WIDTH = 112;
+	private static final int SEARCH_OPTION_LABEL_HEIGHT = 44;
+
+	// MARK: - Properties
+	private SearchOptions searchOptions = null;
+	private Button[] groupBoxes = null;
+	private Button aggregateButton = null;
+	private Label searchOptionLabel = null;
+	private Label statusLabel = null;
+	private Table table = null;
+	private StatementCanceller currentCanceller = null;
+	private RecordSearchExecutor aggregationExecutor = new RecordSearchExecutor();	// one aggregation at a time.
+
+	// MARK: - Constructor
+	/**
+	 * constructor.
+	 * @param tool DMARC viewer tool.
+	 * @param mainWindow main window.
+	 * @param searchOptions search options, or null for all records.
+	 */
+	public AggregationWindow(DmarcViewerTool tool, MainWindow mainWindow, SearchOptions searchOptions) {
+		super(tool, mainWindow);
+		this.searchOptions = searchOptions;
+
+		widthPropKey = PROP_AGGREGATION_SCREEN_WIDTH;
+		heightPropKey = PROP_AGGREGATION_SCREEN_HEIGHT;
+		title = "DMARC Aggregation";
+		defaultWidth = DEFAULT_AGGREGATION_SCREEN_WIDTH;
+		defaultHeight = DEFAULT_AGGREGATION_SCREEN_HEIGHT;
+		minimumWidth = MINIMUM_AGGREGATION_SCREEN_WIDTH;
+		minimumHeight = MINIMUM_AGGREGATION_SCREEN_HEIGHT;
+	}
+
+	/**
+	 * open window.
+	 */
+	@Override
+	public void open() throws Exception {
+		createShell();
+		createComponents();
+		aggregate();
+	}
+
+	// MARK: - GUI
+	/**
+	 * create components.
+	 */
+	protected void createComponents() {
+		groupBoxes = new Button[AggregateRecord.GROUP_BY_COLUMNS.length];
+		for (int i = 0; i < groupBoxes.length; i++) {
+			String column = AggregateRecord.GROUP_BY_COLUMNS[i];
+			groupBoxes[i] = new Button(shell, SWT.CHECK);
+			groupBoxes[i].setText(column);
+			groupBoxes[i].setSelection(tool.getPropertyBool(PROP_AGGREGATION_GROUP_PREFIX + column.toUpperCase(), i < 2));
+			groupBoxes[i].addSelectionListener(new SelectionAdapter() {
+				/**
+				 * widget selected.
+				 */
+				@Override
+				public void widgetSelected(SelectionEvent e) {
+					Button box = (Button) e.widget;
+					tool.setPropertyBool(PROP_AGGREGATION_GROUP_PREFIX + box.getText().toUpperCase(), box.getSelection());
+				}
+			});
+		}
+
+		aggregateButton = new Button(shell, SWT.PUSH);
+		aggregateButton.setText(AGGREGATE_BUTTON_TITLE);
+		aggregateButton.setEnabled(tool.isConnected());
+		aggregateButton.addSelectionListener(new SelectionAdapter() {
+			/**
+			 * widget selected.
+			 */
+			@Override
+			public void widgetSelected(SelectionEvent e) {
+				aggregate();
+			}
+		});
+
+		searchOptionLabel = new Label(shell, SWT.WRAP);
+		setSearchOptionText();
+
+		statusLabel = new Label(shell, SWT.NONE);
+		statusLabel.setText("");
+
+		setComponetPosition(null, shell.getClientArea(), shell.getBounds());
+	}
+
+	/**
+	 * create table for grouped columns.
+	 * @param groupColumns grouped columns.
+	 */
+	private void createTable(List<String> groupColumns) {
+		if (table != null) {
+			table.dispose();
+		}
+		List<String> headerTitles = new ArrayList<>(groupColumns);
+		headerTitles.add(AggregateRecord.COLUMN_MESSAGE_COUNT);
+		headerTitles.add(AggregateRecord.COLUMN_RECORD_COUNT);
+
+		table = new Table(shell, SWT.SINGLE | SWT.BORDER | SWT.FULL_SELECTION);
+		table.setLinesVisible(true);
+		table.setHeaderVisible(true);
+		for (int i = 0; i < headerTitles.size(); i++) {
+			String headerTitle = headerTitles.get(i);
+			TableColumn col = new TableColumn(table, (i < groupColumns.size()) ? SWT.LEFT : SWT.RIGHT);
+			col.setText(headerTitle);
+			int colWidth = tool.getPropertyInt(PROP_AGGREGATION_PREFIX + headerTitle.toUpperCase() + PROP_WIDTH_SUFFIX, DEFAULT_COLUMN_WIDTH);
+			col.setWidth(colWidth);
+			col.setData(headerTitle);
+			col.addListener(SWT.Resize, new Listener() {
+				@Override
+				public void handleEvent(Event arg0) {
+					TableColumn column = (TableColumn) arg0.widget;
+					tool.setPropertyInt(PROP_AGGREGATION_PREFIX + ((String) column.getData()).toUpperCase() + PROP_WIDTH_SUFFIX, column.getWidth());
+				}
+			});
+		}
+		setComponetPosition(null, shell.getClientArea(), shell.getBounds());
+	}
+
+	/**
+	 * set components position.
+	 * @param event resize event.
+	 * @param clientArea new client area rectangle.
+	 * @param bounds new window rectangle.
+	 */
+	private void setComponetPosition(Event event, Rectangle clientArea, Rectangle bounds) {
+		int x = DEFAULT_X_MARGIN;
+		int y = DEFAULT_Y_MARGIN;
+		int right = clientArea.width - DEFAULT_X_MARGIN * 2 - DEFAULT_BUTTON_WIDTH;
+		for (Button box : groupBoxes) {
+			if ((x > DEFAULT_X_MARGIN) && (x + GROUP_BOX_WIDTH > right)) {	// next line.
+				x = DEFAULT_X_MARGIN;
+				y += DEFAULT_TEXT_HEIGHT;
+			}
+			box.setBounds(new Rectangle(x, y, GROUP_BOX_WIDTH, DEFAULT_TEXT_HEIGHT));
+			x += GROUP_BOX_WIDTH;
+		}
+
+		x = clientArea.width - DEFAULT_BUTTON_WIDTH - DEFAULT_X_MARGIN;
+		Rectangle rect = new Rectangle(x, DEFAULT_Y_MARGIN, DEFAULT_BUTTON_WIDTH, DEFAULT_BUTTON_HEIGHT);
+		aggregateButton.setBounds(rect);
+		rect = new Rectangle(x, rect.y + rect.height, DEFAULT_BUTTON_WIDTH, DEFAULT_LABEL_HEIGHT);
+		statusLabel.setBounds(rect);
+
+		x = DEFAULT_X_MARGIN;
+		y = Math.max(y + DEFAULT_TEXT_HEIGHT, rect.y + rect.height);
+		int width = clientArea.width - DEFAULT_X_MARGIN * 2;
+		rect = new Rectangle(x, y, width, SEARCH_OPTION_LABEL_HEIGHT);
+		searchOptionLabel.setBounds(rect);
+
+		if (table != null) {
+			y = rect.y + rect.height + DEFAULT_Y_MARGIN;
+			rect = new Rectangle(x, y, width, Math.max(clientArea.height - y - DEFAULT_Y_MARGIN, 0));
+			table.setBounds(rect);
+		}
+	}
+
+	/**
+	 * set search options text.
+	 */
+	private void setSearchOptionText() {
+		String signs = (searchOptions != null) ? searchOptions.getSearchOptionSigns(tool) : "";
+		searchOptionLabel.setText("search options: " + (((signs != null) && (signs.length() > 0)) ? signs : "none"));
+	}
+
+	/**
+	 * window size changed.
+	 */
+	@Override
+	protected void windowSizeChanged(Event event, Rectangle clientArea, Rectangle bounds) {
+		super.windowSizeChanged(event, clientArea, bounds);
+		setComponetPosition(event, clientArea, bounds);
+	}
+
+	/**
+	 * window close selected.
+	 */
+	@Override
+	protected void windowCloseSelected(Event event) {
+		cancelAggregation();
+		aggregationExecutor.shutdown();
+		mainWindow.subWindowClose(this);
+	}
+
+	/**
+	 * connection status changed.
+	 */
+	public void connectionStatusChanged() {
+		if (tool.isConnected() == false) {
+			cancelAggregation();
+			statusLabel.setText("");
+		}
+		aggregateButton.setEnabled(tool.isConnected());
+	}
+
+	/**
+	 * search options changed on main window.
+	 * @param searchOptions search options, or null for all records.
+	 */
+	public void searchOptionsChanged(SearchOptions searchOptions) {
+		this.searchOptions = searchOptions;
+		setSearchOptionText();
+		aggregate();
+	}
+
+	// MARK: - SQL
+	/**
+	 * aggregate records on background thread.
+	 * running aggregation is cancelled, and queued one does not borrow connection.
+	 */
+	private void aggregate() {
+		cancelAggregation();
+		final ConnectionPool pool = tool.getReadPool();	// captured here. after disconnect closes it, borrow() fails and release() discards.
+		if (pool == null) {
+			return;
+		}
+
+		final List<String> groupColumns = new ArrayList<>();
+		for (int i = 0; i < groupBoxes.length; i++) {
+			if (groupBoxes[i].getSelection()) {
+				groupColumns.add(AggregateRecord.GROUP_BY_COLUMNS[i]);
+			}
+		}
+		final SearchOptions options = searchOptions;
+		final int limit = tool.getPropertyInt(PROP_AGGREGATION_LIMIT, DEFAULT_AGGREGATION_LIMIT);
+		final StatementCanceller canceller = new StatementCanceller();
+		final long startTime = System.currentTimeMillis();
+		final Display display = shell.getDisplay();
+		currentCanceller = canceller;
+		statusLabel.setText("aggregating...");
+
+		aggregationExecutor.submit(new Runnable() {
+			@Override
+			public void run() {
+				List<AggregateRecord> rows = null;
+				SQLException error = null;
+				Connection con = null;
+				try {
+					if (canceller.isCancelled() == false) {
+						con = pool.borrow();
+						rows = Record.aggregate(con, options, groupColumns, limit, canceller);
+					}
+				}
+				catch (SQLException e) {
+					if (canceller.isCancelled() == false) {
+						e.printStackTrace(System.err);
+						error = e;
+					}
+				}
+				finally {
+					pool.release(con);
+				}
+
+				final List<AggregateRecord> result = rows;
+				final SQLException exception = error;
+				if (display.isDisposed() == false) {
+					display.asyncExec(new Runnable() {
+						@Override
+						public void run() {
+							if ((shell != null) && (shell.isDisposed() == false) && (canceller == currentCanceller)) {
+								aggregated(groupColumns, result, limit, System.currentTimeMillis() - startTime, exception);
+							}
+						}
+					});
+				}
+			}
+		}, canceller);
+	}
+
+	/**
+	 * cancel running aggregation.
+	 */
+	private void cancelAggregation() {
+		aggregationExecutor.cancel();
+		currentCanceller = null;
+	}
+
+	/**
+	 * aggregation finished.
+	 * @param groupColumns grouped columns.
+	 * @param rows aggregated rows, or null if failed.
+	 * @param limit maximum number of rows.
+	 * @param elapsedMillis elapsed time in milliseconds.
+	 * @param error error, or null if succeeded.
+	 */
+	private void aggregated(List<String> groupColumns, List<AggregateRecord> rows, int limit, long elapsedMillis, SQLException error) {
+		currentCanceller = null;
+		if (error != null) {
+			statusLabel.setText("");
+			String message = error.getLocalizedMessage();
+			if ((message != null) && (message.length() > 0)) {
+				MessageBox.showError(shell, null, message, SWT.OK);
+			}
+			return;
+		}
+		if (rows == null) {
+			statusLabel.setText("");
+			return;
+		}
+
+		createTable(groupColumns);
+		int columnCount = groupColumns.size() + 2;
+		for (AggregateRecord row : rows) {
+			String[] texts = new String[columnCount];
+			for (int i = 0; i < row.getValueCount(); i++) {
+				texts[i] = (row.getValue(i) != null) ? row.getValue(i) : "";
+			}
+			texts[columnCount - 2] = String.valueOf(row.getMessageCount());
+			texts[columnCount - 1] = String.valueOf(row.getRecordCount());
+			TableItem item = new TableItem(table, SWT.NULL);
+			item.setText(texts);
+		}
+
+		boolean limited = (limit > 0) && (rows.size() >= limit);
+		statusLabel.setText(String.format("%d rows%s, %.2f s", rows.size(), limited ? "+" : "", elapsedMillis / 1000.0));
+	}
+}
@@ -4,6 +4,11 @@ import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 
 import jp.co.comona.dmarcviewer.xml.DmarcFeedback;
 import jp.co.comona.dmarcviewer.xml.DmarcRecord;
@@ -33,6 +38,13 @@ public class AuthResultRecord {
 	public static final String TYPE_SPF = "spf";
 
 	private static final String AUTH_RESULTS_TABLE = Record.AUTH_RESULTS_TABLE;
+	private static final int SELECT_CHUNK_SIZE = 500;
+	private static final int FEEDBACK_SCAN_THRESHOLD = 32;	// records of a report to count its records.
+	private static final int FEEDBACK_SCAN_RATIO = 2;	// report is read at once if more than 1 / ratio of it is wanted.
+	private static final String KEYS_TABLE = "keys_table";
+	private static final String KEY_PREFIX = "key_";
+	private static final String[] SELECT_COLUMNS = { COLUMN_ORG_NAME, COLUMN_REPORT_ID, COLUMN_SOURCE_IP,
+		COLUMN_TYPE, COLUMN_ROW, COLUMN_DOMAIN, COLUMN_SELECTOR, COLUMN_RESULT, };
 
 	// MARK: -  Property
 	private String org_name = null;
@@ -170,12 +182,10 @@ public class AuthResultRecord {
 
 	// MARK: - SQL
 	/**
-	 * store record.
-	 * @param rec authenticate result record.
-	 * @param con database connection.
-	 * @throws SQLException
+	 * create INSERT statement.
+	 * @return INSERT statement.
 	 */
-	protected static void insert(AuthResultRecord rec, Connection con) throws SQLException {
+	protected static String createInsertSql() {
 		StringBuilder sql = new StringBuilder("INSERT INTO ");
 		sql.append(AUTH_RESULTS_TABLE).append(" (");
 		sql.append(COLUMN_ORG_NAME).append(", ").append(COLUMN_REPORT_ID).append(", ");
@@ -184,7 +194,16 @@ public class AuthResultRecord {
 		sql.append(COLUMN_SELECTOR).append(", ").append(COLUMN_RESULT).append(", ");
 		sql.append(COLUMN_CREATED_AT).append(", ").append(COLUMN_UPDATED_AT).append(") ");
 		sql.append("VALUES (?, ?, ?, ?, ?, ?, ?, ?, DEFAULT, DEFAULT)");
-		PreparedStatement stmt = con.prepareStatement(sql.toString());
+		return sql.toString();
+	}
+
+	/**
+	 * set INSERT values.
+	 * @param stmt prepared statement.
+	 * @param rec authenticate result record.
+	 * @throws SQLException
+	 */
+	protected static void setInsertValues(PreparedStatement stmt, AuthResultRecord rec) throws SQLException {
 		stmt.setString(1, rec.getOrgName());
 		stmt.setString(2, rec.getReportId());
 		stmt.setString(3, rec.getSourceIp());
@@ -193,32 +212,214 @@ public class AuthResultRecord {
 		stmt.setString(6, rec.getDomain());
 		stmt.setString(7, rec.getSelector());
 		stmt.setString(8, rec.getResult());
-		stmt.execute();
-		stmt.close();
 	}
 
 	/**
-	 * select records.
-	 * @param rec parent record.
+	 * split parent records into chunks for select().
+	 * records of a big report make one chunk, small reports are packed together.
+	 * @param records parent records.
+	 * @return chunks of parent records.
+	 */
+	public static List<List<Record>> createSelectChunks(List<Record> records) {
+		Map<String, List<Record>> feedbacks = new LinkedHashMap<>();
+		for (Record rec : records) {
+			List<Record> group = feedbacks.get(rec.getFeedbackKey());
+			if (group == null) {
+				group = new ArrayList<>();
+				feedbacks.put(rec.getFeedbackKey(), group);
+			}
+			group.add(rec);
+		}
+
+		List<List<Record>> chunks = new ArrayList<>();
+		List<Record> smallChunk = new ArrayList<>();
+		for (List<Record> group : feedbacks.values()) {
+			if (group.size() >= FEEDBACK_SCAN_THRESHOLD) {
+				chunks.add(group);
+			}
+			else {
+				smallChunk.addAll(group);
+				if (smallChunk.size() >= SELECT_CHUNK_SIZE) {
+					chunks.add(smallChunk);
+					smallChunk = new ArrayList<>();
+				}
+			}
+		}
+		if (smallChunk.size() > 0) {
+			chunks.add(smallChunk);
+		}
+		return chunks;
+	}
+
+	/**
+	 * select records of many parent records at once.
+	 * @param records parent records.
 	 * @param con database connection.
 	 * @throws SQLException 
 	 */
-	protected static void select(Record rec, Connection con) throws SQLException {
-		StringBuilder sql = new StringBuilder("SELECT ");
-		sql.append(COLUMN_TYPE).append(", ").append(COLUMN_ROW).append(", ");
-		sql.append(COLUMN_DOMAIN).append(", ").append(COLUMN_SELECTOR).append(", ").append(COLUMN_RESULT);
-		sql.append(" FROM ").append(AUTH_RESULTS_TABLE);
+	protected static void select(List<Record> records, Connection con) throws SQLException {
+		for (List<Record> chunk : createSelectChunks(records)) {
+			selectChunk(chunk, con);
+		}
+	}
+
+	/**
+	 * select records of one chunk made by createSelectChunks().
+	 * a report is read at once only when the chunk has most of its records, otherwise keys are looked up per SELECT_CHUNK_SIZE.
+	 * @param chunk parent records.
+	 * @param con database connection.
+	 * @throws SQLException
+	 */
+	protected static void selectChunk(List<Record> chunk, Connection con) throws SQLException {
+		boolean oneFeedback = true;
+		String feedbackKey = chunk.get(0).getFeedbackKey();
+		for (Record rec : chunk) {
+			if (feedbackKey.equals(rec.getFeedbackKey()) == false) {
+				oneFeedback = false;
+				break;
+			}
+		}
+
+		if (oneFeedback && (chunk.size() >= FEEDBACK_SCAN_THRESHOLD)
+				&& (chunk.size() * FEEDBACK_SCAN_RATIO > countFeedbackRecords(chunk.get(0), con))) {
+			selectFeedback(createParents(chunk), con);	// most of the report is wanted, read it at once.
+			return;
+		}
+		for (int i = 0; i < chunk.size(); i += SELECT_CHUNK_SIZE) {
+			selectKeys(createParents(chunk.subList(i, Math.min(i + SELECT_CHUNK_SIZE, chunk.size()))), con);
+		}
+	}
+
+	/**
+	 * prepare parent records to add authentication results.
+	 * @param records parent records.
+	 * @return parent records by key.
+	 */
+	private static Map<RecordKey, Record> createParents(List<Record> records) {
+		Map<RecordKey, Record> parents = new HashMap<>();
+		for (Record rec : records) {
+			rec.preapreAddAuthResult();
+			parents.put(rec.getKey(), rec);
+		}
+		return parents;
+	}
+
+	/**
+	 * count records of org_name, report_id.
+	 * @param record a record of the report.
+	 * @param con database connection.
+	 * @return number of records in dmarc_records.
+	 * @throws SQLException
+	 */
+	private static int countFeedbackRecords(Record record, Connection con) throws SQLException {
+		StringBuilder sql = new StringBuilder("SELECT COUNT(*) FROM ").append(Record.RECORDS_TABLE);
+		sql.append(" WHERE ").append(COLUMN_ORG_NAME).append(" = ?");
+		sql.append(" AND ").append(COLUMN_REPORT_ID).append(" = ?");
+		try (PreparedStatement stmt = con.prepareStatement(sql.toString())) {
+			stmt.setString(1, record.getOrgName());
+			stmt.setString(2, record.getReportId());
+			try (ResultSet rs = stmt.executeQuery()) {
+				return rs.next() ? rs.getInt(1) : 0;
+			}
+		}
+	}
+
+	/**
+	 * select all records of one org_name, report_id.
+	 * @param parents parent records by key. all of them have same org_name, report_id.
+	 * @param con database connection.
+	 * @throws SQLException
+	 */
+	private static void selectFeedback(Map<RecordKey, Record> parents, Connection con) throws SQLException {
+		StringBuilder sql = createSelectSql();
 		sql.append(" WHERE ").append(COLUMN_ORG_NAME).append(" = ?");
 		sql.append(" AND ").append(COLUMN_REPORT_ID).append(" = ?");
-		sql.append(" AND ").append(COLUMN_SOURCE_IP).append(" = ?");
+		appendSelectOrderBy(sql);
 		PreparedStatement stmt = con.prepareStatement(sql.toString());
-		stmt.setString(1, rec.getOrgName());
-		stmt.setString(2, rec.getReportId());
-		stmt.setString(3, rec.getSourceIp());
+		RecordKey first = parents.keySet().iterator().next();
+		stmt.setString(1, first.getOrgName());
+		stmt.setString(2, first.getReportId());
+		addSelectedResults(stmt, parents);
+	}
 
+	/**
+	 * select records by keys.
+	 * keys are joined as a derived table so that each key is a primary key lookup.
+	 * @param parents parent records by key.
+	 * @param con database connection.
+	 * @throws SQLException
+	 */
+	private static void selectKeys(Map<RecordKey, Record> parents, Connection con) throws SQLException {
+		StringBuilder sql = new StringBuilder("SELECT ");
+		String comma = "";
+		for (String column : SELECT_COLUMNS) {
+			sql.append(comma).append(AUTH_RESULTS_TABLE).append(".").append(column);
+			comma = ", ";
+		}
+		sql.append(" FROM (");
+		String union = "";
+		for (int i = 0; i < parents.size(); i++) {
+			sql.append(union).append("SELECT ? AS ").append(KEY_PREFIX).append(COLUMN_ORG_NAME);
+			sql.append(", ? AS ").append(KEY_PREFIX).append(COLUMN_REPORT_ID);
+			sql.append(", ? AS ").append(KEY_PREFIX).append(COLUMN_SOURCE_IP);
+			union = " UNION ALL ";
+		}
+		sql.append(") AS ").append(KEYS_TABLE).append(", ").append(AUTH_RESULTS_TABLE);
+		String where = " WHERE ";
+		for (String column : new String[] { COLUMN_ORG_NAME, COLUMN_REPORT_ID, COLUMN_SOURCE_IP, }) {
+			sql.append(where).append(AUTH_RESULTS_TABLE).append(".").append(column);
+			sql.append(" = ").append(KEYS_TABLE).append(".").append(KEY_PREFIX).append(column);
+			where = " AND ";
+		}
+		appendSelectOrderBy(sql);
+		PreparedStatement stmt = con.prepareStatement(sql.toString());
+		int index = 1;
+		for (RecordKey key : parents.keySet()) {
+			stmt.setString(index++, key.getOrgName());
+			stmt.setString(index++, key.getReportId());
+			stmt.setString(index++, key.getSourceIp());
+		}
+		addSelectedResults(stmt, parents);
+	}
+
+	/**
+	 * create SELECT statement without WHERE.
+	 * @return SELECT statement.
+	 */
+	private static StringBuilder createSelectSql() {
+		StringBuilder sql = new StringBuilder("SELECT ");
+		String comma = "";
+		for (String column : SELECT_COLUMNS) {
+			sql.append(comma).append(column);
+			comma = ", ";
+		}
+		sql.append(" FROM ").append(AUTH_RESULTS_TABLE);
+		return sql;
+	}
+
+	/**
+	 * append ORDER BY of primary key.
+	 * @param sql string buffer.
+	 */
+	private static void appendSelectOrderBy(StringBuilder sql) {
+		sql.append(" ORDER BY ").append(COLUMN_ORG_NAME).append(", ").append(COLUMN_REPORT_ID).append(", ").append(COLUMN_SOURCE_IP);
+		sql.append(", ").append(COLUMN_TYPE).append(", ").append(COLUMN_ROW);
+	}
+
+	/**
+	 * execute query and add results to their parent.
+	 * @param stmt prepared statement.
+	 * @param parents parent records by key.
+	 * @throws SQLException
+	 */
+	private static void addSelectedResults(PreparedStatement stmt, Map<RecordKey, Record> parents) throws SQLException {
 		ResultSet rs = stmt.executeQuery();
 		while (rs.next()) {
-			rec.addAuthResult(rs);
+			RecordKey key = new RecordKey(rs.getString(COLUMN_ORG_NAME), rs.getString(COLUMN_REPORT_ID), rs.getString(COLUMN_SOURCE_IP));
+			Record rec = parents.get(key);
+			if (rec != null) {
+				rec.addAuthResult(rs);
+			}
 		}
 
 		rs.close();
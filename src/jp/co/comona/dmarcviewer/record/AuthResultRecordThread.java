@@ -1,10 +1,12 @@
 package jp.co.comona.dmarcviewer.record;
 
+import java.sql.Connection;
 import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.List;
 
 import jp.co.comona.dmarcviewer.MainWindow;
+import jp.co.comona.dmarcviewer.util.ConnectionPool;
 
 /**
  * authentication result record fetching thread.
@@ -15,7 +17,10 @@ public class AuthResultRecordThread extends Thread {
 
 	// MARK: - Properties
 	private MainWindow mainWindow = null;
-	private List<Record> records = null;
+	private ConnectionPool pool = null;	// own connection, not to wait for searches.
+	private List<Record> records = new ArrayList<>();
+	private boolean finished = false;
+	private volatile boolean cancelled = false;
 
 	// MARK: - Properties
 	/**
@@ -25,6 +30,15 @@ public class AuthResultRecordThread extends Thread {
 		super();
 	}
 
+	/**
+	 * constructor.
+	 * @param pool read connection pool, taken on UI thread. null if disconnected.
+	 */
+	public AuthResultRecordThread(ConnectionPool pool) {
+		super();
+		this.pool = pool;
+	}
+
 	/**
 	 * constructor.
 	 * @param target target.
@@ -96,21 +110,39 @@ public class AuthResultRecordThread extends Thread {
 	@Override
 	public void run() {
 		boolean tellToMainWindow = true;
-		for (Record record : records) {
-			//System.out.println("record: " + record);
-			try {
-				record.preapreAddAuthResult();
-				AuthResultRecord.select(record, mainWindow.getTool().getConnection());
-				mainWindow.authResultRecordSelected(record);
-			}
-			catch (SQLException e) {
-				e.printStackTrace(System.err);
+		Connection con = null;
+		List<Record> records = takeRecords();
+		if (pool == null) {	// disconnected.
+			while (records.isEmpty() == false) {
+				records = takeRecords();
 			}
-
-			if (mainWindow.isExitFlag()) {
-				tellToMainWindow = false;
-				break;
+		}
+		while (tellToMainWindow && (records.isEmpty() == false)) {
+			for (List<Record> chunk : AuthResultRecord.createSelectChunks(records)) {
+				try {
+					if (con == null) {
+						con = pool.borrow();
+					}
+					AuthResultRecord.selectChunk(chunk, con);
+					for (Record record : chunk) {
+						mainWindow.authResultRecordSelected(record);
+					}
+				}
+				catch (SQLException e) {
+					e.printStackTrace(System.err);
+					pool.release(con);	// connection may be broken, borrow validated one for next chunk.
+					con = null;
+				}
+
+				if (cancelled || mainWindow.isExitFlag()) {
+					tellToMainWindow = false;
+					break;
+				}
 			}
+			records = takeRecords();
+		}
+		if (pool != null) {
+			pool.release(con);
 		}
 
 		if (tellToMainWindow) {
@@ -118,14 +150,47 @@ public class AuthResultRecordThread extends Thread {
 		}
 	}
 
+	/**
+	 * cancel fetching. the thread ends after current chunk without telling to main window.
+	 */
+	public void cancel() {
+		cancelled = true;
+	}
+
+	/**
+	 * take records added so far.
+	 * the thread is finished when no record is left.
+	 * @return record list.
+	 */
+	private synchronized List<Record> takeRecords() {
+		List<Record> taken = records;
+		records = new ArrayList<>();
+		if (taken.isEmpty()) {
+			finished = true;
+		}
+		return taken;
+	}
+
 	// MARK: - Getters & Setters
 	/**
 	 * set record.
 	 * @param records record list.
 	 */
 	public void setRecords(List<Record> records) {
-		this.records = new ArrayList<>();
+		addRecords(records);
+	}
+
+	/**
+	 * add records to fetch authentication results.
+	 * @param records record list.
+	 * @return false if the thread is already finished.
+	 */
+	public synchronized boolean addRecords(List<Record> records) {
+		if (finished) {
+			return false;
+		}
 		this.records.addAll(records);
+		return true;
 	}
 
 	/**
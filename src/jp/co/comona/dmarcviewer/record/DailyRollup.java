@@ -0,0 +1,471 @@
+package jp.co.comona.dmarcviewer.record;
+
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * daily rollup of records.
+ * SUM(count) per day of begin, policy domain, header_from and source_ip, split by disposition, dkim and spf.
+ * rows are changed by difference in the transaction which inserts or deletes records,
+ * so aggregate queries read rollup rows instead of all records.
+ * @author kageyama
+ * date: 2025/06/22
+ */
+public class DailyRollup implements RecordColumns {
+
+	// MARK: - Static Properties
+	public static final String ROLLUPS_TABLE = "dmarc_daily_rollups";
+	public static final String COLUMN_DAY = "day";	// UTC date of begin.
+	public static final String COLUMN_MESSAGE_COUNT = "message_count";	// SUM(count).
+	public static final String COLUMN_RECORD_COUNT = "record_count";
+	public static final String[] COUNT_COLUMNS = { COLUMN_MESSAGE_COUNT, COLUMN_RECORD_COUNT,
+		"none_count", "quarantine_count", "reject_count",
+		"dkim_pass_count", "dkim_fail_count", "spf_pass_count", "spf_fail_count", };
+	private static final String[] KEY_COLUMNS = { COLUMN_DAY, COLUMN_DOMAIN, COLUMN_HEADER_FROM, COLUMN_SOURCE_IP, };
+	private static final int MESSAGES = 0;
+	private static final int RECORDS = 1;
+	private static final int NONE = 2;
+	private static final int QUARANTINE = 3;
+	private static final int REJECT = 4;
+	private static final int DKIM_PASS = 5;
+	private static final int DKIM_FAIL = 6;
+	private static final int SPF_PASS = 7;
+	private static final int SPF_FAIL = 8;
+	private static final String PASS = "pass";
+	private static final int BATCH_SIZE = 1000;
+	private static final int BATCH_INSERT = 0;
+	private static final int BATCH_UPDATE = 1;
+	private static final int BATCH_DELETE = 2;
+	private static volatile boolean enabled = true;
+
+	// MARK: - Properties
+	private Map<RollupKey, long[]> differences = new LinkedHashMap<>();
+
+	// MARK: - Constructor
+	/**
+	 * constructor.
+	 */
+	public DailyRollup() {
+		super();
+	}
+
+	// MARK: - Difference
+	/**
+	 * add inserted record.
+	 * @param record inserted record.
+	 */
+	public void add(Record record) {
+		add(record.getBegin(), record.getDomain(), record.getHeaderFrom(), record.getSourceIp(),
+				record.getCount(), record.getDisposition(), record.getDkim(), record.getSpf(), 1);
+	}
+
+	/**
+	 * subtract stored records of org_name, report_id, before they are deleted.
+	 * @param con database connection.
+	 * @param feedbacks records which have distinct org_name, report_id.
+	 * @throws SQLException
+	 */
+	public void subtractStored(Connection con, Collection<Record> feedbacks) throws SQLException {
+		StringBuilder sql = new StringBuilder("SELECT f.").append(COLUMN_BEGIN).append(", f.").append(COLUMN_DOMAIN);
+		sql.append(", r.").append(COLUMN_HEADER_FROM).append(", r.").append(COLUMN_SOURCE_IP).append(", r.").append(COLUMN_COUNT);
+		sql.append(", r.").append(COLUMN_DISPOSITION).append(", r.").append(COLUMN_DKIM).append(", r.").append(COLUMN_SPF);
+		sql.append(" FROM ").append(Record.FEEDBACKS_TABLE).append(" f, ").append(Record.RECORDS_TABLE).append(" r");
+		sql.append(" WHERE f.").append(COLUMN_ORG_NAME).append(" = ? AND f.").append(COLUMN_REPORT_ID).append(" = ?");
+		sql.append(" AND r.").append(COLUMN_ORG_NAME).append(" = f.").append(COLUMN_ORG_NAME);
+		sql.append(" AND r.").append(COLUMN_REPORT_ID).append(" = f.").append(COLUMN_REPORT_ID);
+		try (PreparedStatement stmt = con.prepareStatement(sql.toString())) {
+			for (Record feedback : feedbacks) {
+				stmt.setString(1, feedback.getOrgName());
+				stmt.setString(2, feedback.getReportId());
+				try (ResultSet rs = stmt.executeQuery()) {
+					while (rs.next()) {
+						add(rs.getInt(1), rs.getString(2), rs.getString(3), rs.getString(4),
+								rs.getInt(5), rs.getString(6), rs.getString(7), rs.getString(8), -1);
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * add difference of a record.
+	 * merged values are classified by the strictest disposition, and dkim, spf pass only when all of them pass.
+	 * @param begin begin of feedback.
+	 * @param domain policy domain.
+	 * @param headerFrom header_from.
+	 * @param sourceIp source_ip.
+	 * @param count number of messages.
+	 * @param disposition disposition.
+	 * @param dkim DKIM result.
+	 * @param spf SPF result.
+	 * @param sign 1 if inserted, -1 if deleted.
+	 */
+	private void add(int begin, String domain, String headerFrom, String sourceIp,
+			int count, String disposition, String dkim, String spf, int sign) {
+		RollupKey key = new RollupKey(toDay(begin), domain, headerFrom, sourceIp);
+		long[] counts = differences.get(key);
+		if (counts == null) {
+			counts = new long[COUNT_COLUMNS.length];
+			differences.put(key, counts);
+		}
+		long messages = (long) count * sign;
+		counts[MESSAGES] += messages;
+		counts[RECORDS] += sign;
+		if ((disposition != null) && disposition.contains("reject")) {
+			counts[REJECT] += messages;
+		}
+		else if ((disposition != null) && disposition.contains("quarantine")) {
+			counts[QUARANTINE] += messages;
+		}
+		else {
+			counts[NONE] += messages;
+		}
+		counts[PASS.equals(dkim) ? DKIM_PASS : DKIM_FAIL] += messages;
+		counts[PASS.equals(spf) ? SPF_PASS : SPF_FAIL] += messages;
+	}
+
+	/**
+	 * convert begin to day.
+	 * @param begin epoch seconds.
+	 * @return UTC date.
+	 */
+	private static Date toDay(int begin) {
+		return Date.valueOf(LocalDate.from(Instant.ofEpochSecond(begin).atOffset(ZoneOffset.UTC)));
+	}
+
+	/**
+	 * discard differences.
+	 */
+	public void clear() {
+		differences.clear();
+	}
+
+	// MARK: - Apply
+	/**
+	 * apply differences to rollup table, in transaction of caller.
+	 * rows which get records are upserted, so concurrent stores of the same new key add to one row.
+	 * rows which only lose records are updated, and rows which have no record are deleted.
+	 * @param con database connection.
+	 * @throws SQLException
+	 */
+	public void apply(Connection con) throws SQLException {
+		List<RollupKey> upsertKeys = new ArrayList<>();
+		List<RollupKey> subtractKeys = new ArrayList<>();
+		for (Map.Entry<RollupKey, long[]> entry : differences.entrySet()) {
+			long[] counts = entry.getValue();
+			if (counts[RECORDS] > 0) {
+				upsertKeys.add(entry.getKey());
+			}
+			else if (isZero(counts) == false) {	// not deleted and inserted again.
+				subtractKeys.add(entry.getKey());	// nothing to subtract from if missing. rebuild if this happens.
+			}
+		}
+
+		executeBatch(con, createUpsertSql(), upsertKeys, BATCH_INSERT);
+		executeBatch(con, createUpdateSql(), subtractKeys, BATCH_UPDATE);
+		executeBatch(con, createDeleteEmptySql(), subtractKeys, BATCH_DELETE);
+		differences.clear();
+	}
+
+	/**
+	 * execute INSERT, UPDATE or DELETE for keys.
+	 * @param con database connection.
+	 * @param sql SQL statement.
+	 * @param keys rollup keys.
+	 * @param type BATCH_INSERT sets key then counts, BATCH_UPDATE sets counts then key, BATCH_DELETE sets key.
+	 * @throws SQLException
+	 */
+	private void executeBatch(Connection con, String sql, List<RollupKey> keys, int type) throws SQLException {
+		if (keys.isEmpty()) {
+			return;
+		}
+		try (PreparedStatement stmt = con.prepareStatement(sql)) {
+			int count = 0;
+			for (RollupKey key : keys) {
+				long[] counts = differences.get(key);
+				switch (type) {
+					case BATCH_INSERT:
+						setCounts(stmt, key.setValues(stmt, 1), counts);
+						break;
+					case BATCH_UPDATE:
+						key.setValues(stmt, setCounts(stmt, 1, counts));
+						break;
+					default:
+						key.setValues(stmt, 1);
+						break;
+				}
+				stmt.addBatch();
+				if (++count % BATCH_SIZE == 0) {
+					stmt.executeBatch();
+				}
+			}
+			if (count % BATCH_SIZE != 0) {
+				stmt.executeBatch();
+			}
+		}
+	}
+
+	/**
+	 * set counts to prepared statement.
+	 * @param stmt prepared statement.
+	 * @param index first index.
+	 * @param counts counts.
+	 * @return next index.
+	 * @throws SQLException
+	 */
+	private static int setCounts(PreparedStatement stmt, int index, long[] counts) throws SQLException {
+		for (long count : counts) {
+			stmt.setLong(index++, count);
+		}
+		return index;
+	}
+
+	/**
+	 * check all counts are zero or not.
+	 * @param counts counts.
+	 * @return true if all zero.
+	 */
+	private static boolean isZero(long[] counts) {
+		for (long count : counts) {
+			if (count != 0) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	// MARK: - SQL
+	/**
+	 * create UPDATE statement which adds counts.
+	 * @return UPDATE statement.
+	 */
+	private static String createUpdateSql() {
+		StringBuilder sql = new StringBuilder("UPDATE ").append(ROLLUPS_TABLE).append(" SET ");
+		for (int i = 0; i < COUNT_COLUMNS.length; i++) {
+			if (i > 0) {
+				sql.append(", ");
+			}
+			sql.append(COUNT_COLUMNS[i]).append(" = ").append(COUNT_COLUMNS[i]).append(" + ?");
+		}
+		return appendKeyWhere(sql).toString();
+	}
+
+	/**
+	 * create INSERT statement.
+	 * @return INSERT statement.
+	 */
+	private static String createInsertSql() {
+		StringBuilder sql = new StringBuilder("INSERT INTO ").append(ROLLUPS_TABLE).append(" (");
+		StringBuilder values = new StringBuilder();
+		for (String column : KEY_COLUMNS) {
+			sql.append(column).append(", ");
+			values.append("?, ");
+		}
+		for (int i = 0; i < COUNT_COLUMNS.length; i++) {
+			sql.append(COUNT_COLUMNS[i]).append((i < COUNT_COLUMNS.length - 1) ? ", " : ")");
+			values.append((i < COUNT_COLUMNS.length - 1) ? "?, " : "?");
+		}
+		return sql.append(" VALUES (").append(values).append(")").toString();
+	}
+
+	/**
+	 * create INSERT statement which adds counts to existing row.
+	 * @return INSERT ... ON DUPLICATE KEY UPDATE statement.
+	 */
+	private static String createUpsertSql() {
+		StringBuilder sql = new StringBuilder(createInsertSql()).append(" ON DUPLICATE KEY UPDATE ");
+		for (int i = 0; i < COUNT_COLUMNS.length; i++) {
+			if (i > 0) {
+				sql.append(", ");
+			}
+			sql.append(COUNT_COLUMNS[i]).append(" = ").append(COUNT_COLUMNS[i]).append(" + VALUES(").append(COUNT_COLUMNS[i]).append(")");
+		}
+		return sql.toString();
+	}
+
+	/**
+	 * create DELETE statement for row which has no record.
+	 * @return DELETE statement.
+	 */
+	private static String createDeleteEmptySql() {
+		StringBuilder sql = new StringBuilder("DELETE FROM ").append(ROLLUPS_TABLE);
+		return appendKeyWhere(sql).append(" AND ").append(COLUMN_RECORD_COUNT).append(" <= 0").toString();
+	}
+
+	/**
+	 * append WHERE of key columns.
+	 * @param sql string builder.
+	 * @return string builder.
+	 */
+	private static StringBuilder appendKeyWhere(StringBuilder sql) {
+		for (int i = 0; i < KEY_COLUMNS.length; i++) {
+			sql.append((i == 0) ? " WHERE " : " AND ").append(KEY_COLUMNS[i]).append(" = ?");
+		}
+		return sql;
+	}
+
+	// MARK: - Rebuild
+	/**
+	 * rebuild rollup table from all records, in a transaction.
+	 * records are read in order of begin and written per day, so memory holds a day of rollup rows.
+	 * @param con database connection.
+	 * @return number of rollup rows.
+	 * @throws SQLException
+	 */
+	public static int rebuild(Connection con) throws SQLException {
+		StringBuilder sql = new StringBuilder("SELECT f.").append(COLUMN_BEGIN).append(", f.").append(COLUMN_DOMAIN);
+		sql.append(", r.").append(COLUMN_HEADER_FROM).append(", r.").append(COLUMN_SOURCE_IP).append(", r.").append(COLUMN_COUNT);
+		sql.append(", r.").append(COLUMN_DISPOSITION).append(", r.").append(COLUMN_DKIM).append(", r.").append(COLUMN_SPF);
+		sql.append(" FROM ").append(Record.FEEDBACKS_TABLE).append(" f, ").append(Record.RECORDS_TABLE).append(" r");
+		sql.append(" WHERE r.").append(COLUMN_ORG_NAME).append(" = f.").append(COLUMN_ORG_NAME);
+		sql.append(" AND r.").append(COLUMN_REPORT_ID).append(" = f.").append(COLUMN_REPORT_ID);
+		sql.append(" ORDER BY f.").append(COLUMN_BEGIN);
+
+		boolean autoCommit = con.getAutoCommit();
+		con.setAutoCommit(false);
+		int rowCount = 0;
+		try {
+			try (Statement stmt = con.createStatement()) {
+				stmt.executeUpdate("DELETE FROM " + ROLLUPS_TABLE);
+			}
+			DailyRollup rollup = new DailyRollup();
+			try (PreparedStatement stmt = con.prepareStatement(sql.toString())) {
+				stmt.setFetchSize(BATCH_SIZE);
+				try (ResultSet rs = stmt.executeQuery()) {
+					Date day = null;
+					while (rs.next()) {
+						int begin = rs.getInt(1);
+						if ((day != null) && (day.equals(toDay(begin)) == false)) {
+							rowCount += rollup.insertAll(con);	// day is over.
+						}
+						day = toDay(begin);
+						rollup.add(begin, rs.getString(2), rs.getString(3), rs.getString(4),
+								rs.getInt(5), rs.getString(6), rs.getString(7), rs.getString(8), 1);
+					}
+				}
+			}
+			rowCount += rollup.insertAll(con);
+			con.commit();
+		}
+		catch (SQLException e) {
+			con.rollback();
+			throw e;
+		}
+		finally {
+			con.setAutoCommit(autoCommit);
+		}
+		return rowCount;
+	}
+
+	/**
+	 * insert all differences as new rows, then clear them.
+	 * @param con database connection.
+	 * @return number of inserted rows.
+	 * @throws SQLException
+	 */
+	private int insertAll(Connection con) throws SQLException {
+		int count = differences.size();
+		executeBatch(con, createInsertSql(), new ArrayList<>(differences.keySet()), BATCH_INSERT);
+		differences.clear();
+		return count;
+	}
+
+	// MARK: - Getters & Setters
+	/**
+	 * rollup table is maintained or not.
+	 * @return true if maintained.
+	 */
+	public static boolean isEnabled() {
+		return enabled;
+	}
+
+	/**
+	 * set rollup table is maintained or not.
+	 * @param enabled false not to maintain rollup table, e.g. database is not migrated.
+	 */
+	public static void setEnabled(boolean enabled) {
+		DailyRollup.enabled = enabled;
+	}
+
+	// MARK: - Rollup Key
+	/**
+	 * primary key of rollup table.
+	 */
+	private static class RollupKey {
+
+		// MARK: - Properties
+		private final Date day;
+		private final String domain;
+		private final String headerFrom;
+		private final String sourceIp;
+
+		// MARK: - Constructor
+		/**
+		 * constructor.
+		 * @param day day.
+		 * @param domain policy domain.
+		 * @param headerFrom header_from.
+		 * @param sourceIp source_ip.
+		 */
+		private RollupKey(Date day, String domain, String headerFrom, String sourceIp) {
+			super();
+			this.day = day;
+			this.domain = domain;
+			this.headerFrom = headerFrom;
+			this.sourceIp = sourceIp;
+		}
+
+		/**
+		 * set key values to prepared statement.
+		 * @param stmt prepared statement.
+		 * @param index first index.
+		 * @return next index.
+		 * @throws SQLException
+		 */
+		private int setValues(PreparedStatement stmt, int index) throws SQLException {
+			stmt.setDate(index++, day);
+			stmt.setString(index++, domain);
+			stmt.setString(index++, headerFrom);
+			stmt.setString(index++, sourceIp);
+			return index;
+		}
+
+		// MARK: - Object
+		/**
+		 * hash code.
+		 */
+		@Override
+		public int hashCode() {
+			return Objects.hash(day, domain, headerFrom, sourceIp);
+		}
+
+		/**
+		 * equals.
+		 */
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj) {
+				return true;
+			}
+			if ((obj instanceof RollupKey) == false) {
+				return false;
+			}
+			RollupKey other = (RollupKey) obj;
+			return day.equals(other.day) && Objects.equals(domain, other.domain)
+					&& Objects.equals(headerFrom, other.headerFrom) && Objects.equals(sourceIp, other.sourceIp);
+		}
+	}
+}
@@ -1,5 +1,8 @@
 package jp.co.comona.dmarcviewer.record;
 
+import java.util.ArrayList;
+import java.util.List;
+
 /**
  * order by.
  * @author kageyama
@@ -79,17 +82,30 @@ public class OrderBy {
 	public static String buildOrderBy(OrderBy orderBy, String[] otherColumns) {
 		StringBuilder sql = new StringBuilder(" ORDER BY ");
 		String comma = "";
-		if (orderBy != null) {
-			sql.append(comma).append(orderBy.orderByColumn());
+		for (OrderBy order : buildOrderByList(orderBy, otherColumns)) {
+			sql.append(comma).append(order.orderByColumn());
 			comma = ", ";
 		}
+
+		return sql.toString();
+	}
+
+	/**
+	 * build ORDER BY list in the same order as ORDER BY string.
+	 * @param orderBy order by object.
+	 * @param otherColumns other columns to order by.
+	 * @return ORDER BY list.
+	 */
+	public static List<OrderBy> buildOrderByList(OrderBy orderBy, String[] otherColumns) {
+		List<OrderBy> orders = new ArrayList<>();
+		if (orderBy != null) {
+			orders.add(orderBy);
+		}
 		for (String other : otherColumns) {
 			if ((orderBy == null) || (orderBy.isEqualColumnName(other) == false)) {
-				sql.append(comma).append(OrderBy.orderByColumn(other, true));
-				comma = ", ";
+				orders.add(new OrderBy(other, true));
 			}
 		}
-
-		return sql.toString();
+		return orders;
 	}
 }
@@ -4,11 +4,16 @@ import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Types;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 import jp.co.comona.dmarcviewer.record.where.SearchOption;
 import jp.co.comona.dmarcviewer.record.where.SearchOptions;
+import jp.co.comona.dmarcviewer.util.IpAddress;
 import jp.co.comona.dmarcviewer.xml.DmarcDkim;
 import jp.co.comona.dmarcviewer.xml.DmarcFeedback;
 import jp.co.comona.dmarcviewer.xml.DmarcRecord;
@@ -29,12 +34,14 @@ public class Record implements RecordColumns {
 	public static final String FEEDBACKS_TABLE = "dmarc_feedbacks";
 	public static final String RECORDS_TABLE = "dmarc_records";
 	public static final String AUTH_RESULTS_TABLE = "dmarc_auth_results";
-	public static final String SUBQ_TABLE = "subq_table";
-	private static final String[] RECORD_KEY_COLUMNS = { COLUMN_ORG_NAME, COLUMN_REPORT_ID, COLUMN_SOURCE_IP, };
 	private static final String[] FEEDBACK_COLUMNS = { COLUMN_ORG_NAME, COLUMN_REPORT_ID, COLUMN_EMAIL, COLUMN_EXTRA_CONTACT_INFO,
 		COLUMN_BEGIN, COLUMN_END, COLUMN_DOMAIN, COLUMN_ADKIM, COLUMN_ASPF, COLUMN_P, COLUMN_SP, COLUMN_PCT, COLUMN_NP, };
 	private static final String[] RECORD_COLUMNS = { COLUMN_SOURCE_IP, COLUMN_COUNT, COLUMN_DISPOSITION,
-		COLUMN_DKIM, COLUMN_SPF, COLUMN_HEADER_FROM, };
+		COLUMN_DKIM, COLUMN_SPF, COLUMN_HEADER_FROM, COLUMN_DKIM_COUNT, COLUMN_SPF_COUNT, };
+	public static final String AUTH_FILTER_EXISTS = "exists";
+	public static final String AUTH_FILTER_JOIN = "join";
+	private static volatile boolean joinAuthResults = false;
+	private static final String[] ORDER_BY_COLUMNS = { COLUMN_BEGIN, COLUMN_END, COLUMN_ORG_NAME, COLUMN_REPORT_ID, COLUMN_HEADER_FROM, COLUMN_SOURCE_IP, };
 
 	// MARK: - Property
 	private String org_name = null;
@@ -99,6 +106,60 @@ public class Record implements RecordColumns {
 		pseudo_spf_count = rs.getInt(COLUMN_SPF_COUNT);
 	}
 
+	/**
+	 * get column value as selected.
+	 * @param column column name.
+	 * @return column value.
+	 */
+	protected Object getColumnValue(String column) {
+		switch (column) {
+			case COLUMN_ORG_NAME:
+				return org_name;
+			case COLUMN_REPORT_ID:
+				return report_id;
+			case COLUMN_EMAIL:
+				return email;
+			case COLUMN_EXTRA_CONTACT_INFO:
+				return extra_contact_info;
+			case COLUMN_BEGIN:
+				return begin;
+			case COLUMN_END:
+				return end;
+			case COLUMN_DOMAIN:
+				return domain;
+			case COLUMN_ADKIM:
+				return adkim;
+			case COLUMN_ASPF:
+				return aspf;
+			case COLUMN_P:
+				return p;
+			case COLUMN_SP:
+				return sp;
+			case COLUMN_PCT:
+				return pct;
+			case COLUMN_NP:
+				return np;
+			case COLUMN_SOURCE_IP:
+				return source_ip;
+			case COLUMN_COUNT:
+				return count;
+			case COLUMN_DISPOSITION:
+				return disposition;
+			case COLUMN_DKIM:
+				return dkim;
+			case COLUMN_SPF:
+				return spf;
+			case COLUMN_HEADER_FROM:
+				return header_from;
+			case COLUMN_DKIM_COUNT:
+				return pseudo_dkim_count;
+			case COLUMN_SPF_COUNT:
+				return pseudo_spf_count;
+			default:
+				throw new IllegalArgumentException("unknown column: " + column);
+		}
+	}
+
 	/**
 	 * prepare add authentication result.
 	 */
@@ -385,32 +446,72 @@ public class Record implements RecordColumns {
 		return getFeedbackKey() + DIVIDER + source_ip;
 	}
 
+	/**
+	 * get record primary key.
+	 * @return record primary key.
+	 */
+	public RecordKey getKey() {
+		return new RecordKey(org_name, report_id, source_ip);
+	}
+
+	/**
+	 * store records.
+	 * delete existing org_name, report_id first, then insert in one transaction.
+	 * @param records record list.
+	 * @param con database connection.
+	 * @param batchSize number of rows to send at once.
+	 * @throws SQLException
+	 */
+	public static void store(List<Record> records, Connection con, int batchSize) throws SQLException {
+		boolean autoCommit = con.getAutoCommit();
+		con.setAutoCommit(false);
+		try {
+			DailyRollup rollup = DailyRollup.isEnabled() ? new DailyRollup() : null;
+			delete(records, con, rollup);	// rollup is changed once with inserted records.
+			insert(records, con, batchSize, rollup);
+			con.commit();
+		}
+		catch (SQLException e) {
+			con.rollback();
+			throw e;
+		}
+		finally {
+			con.setAutoCommit(autoCommit);
+		}
+	}
+
 	/**
 	 * insert records.
 	 * @param records record list.
 	 * @param con database connection.
+	 * @param batchSize number of rows to send at once.
 	 * @throws SQLException 
 	 */
-	public static void insert(List<Record> records, Connection con) throws SQLException {
-		String feedbackKey = "";
-		for (Record record : records) {
-			if (feedbackKey.equals(record.getFeedbackKey()) == false) {
-				insertFeedBack(record, con);
-			}
-
-			insertRecord(record, con);
-
-			feedbackKey = record.getFeedbackKey();
-		}
+	public static void insert(List<Record> records, Connection con, int batchSize) throws SQLException {
+		insert(records, con, batchSize, DailyRollup.isEnabled() ? new DailyRollup() : null);
 	}
 
 	/**
-	 * insert feed back.
-	 * @param record record.
+	 * insert records.
+	 * @param records record list.
 	 * @param con database connection.
+	 * @param batchSize number of rows to send at once.
+	 * @param rollup daily rollup to add inserted records. not maintained if null.
 	 * @throws SQLException
 	 */
-	private static void insertFeedBack(Record record, Connection con) throws SQLException {
+	private static void insert(List<Record> records, Connection con, int batchSize, DailyRollup rollup) throws SQLException {
+		try (RecordWriter writer = new RecordWriter(con, batchSize, rollup)) {
+			for (Record record : records) {
+				writer.write(record);
+			}
+		}
+	}
+
+	/**
+	 * create INSERT statement for dmarc_feedbacks.
+	 * @return INSERT statement.
+	 */
+	protected static String createInsertFeedbackSql() {
 		StringBuilder sql = new StringBuilder("INSERT INTO ");
 		sql.append(FEEDBACKS_TABLE).append(" (");
 		sql.append(COLUMN_ORG_NAME).append(", ").append(COLUMN_REPORT_ID).append(", ");
@@ -421,7 +522,16 @@ public class Record implements RecordColumns {
 		sql.append(COLUMN_PCT).append(", ").append(COLUMN_NP).append(", ");
 		sql.append(COLUMN_CREATED_AT).append(", ").append(COLUMN_UPDATED_AT).append(") ");
 		sql.append("VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, DEFAULT, DEFAULT)");
-		PreparedStatement stmt = con.prepareStatement(sql.toString());
+		return sql.toString();
+	}
+
+	/**
+	 * set dmarc_feedbacks values.
+	 * @param stmt prepared statement.
+	 * @param record record.
+	 * @throws SQLException
+	 */
+	protected static void setFeedbackValues(PreparedStatement stmt, Record record) throws SQLException {
 		stmt.setString(1, record.getOrgName());
 		stmt.setString(2, record.getReportId());
 		stmt.setString(3, record.getEmail());
@@ -435,26 +545,33 @@ public class Record implements RecordColumns {
 		stmt.setString(11, record.getSp());
 		stmt.setInt(12, record.getPct());
 		stmt.setString(13, record.getNp());
-		stmt.execute();
-		stmt.close();
 	}
 
 	/**
-	 * insert record.
-	 * @param record record.
-	 * @param con database connection.
-	 * @throws SQLException
+	 * create INSERT statement for dmarc_records.
+	 * @return INSERT statement.
 	 */
-	private static void insertRecord(Record record, Connection con) throws SQLException {
+	protected static String createInsertRecordSql() {
 		StringBuilder sql = new StringBuilder("INSERT INTO ");
 		sql.append(RECORDS_TABLE).append(" (");
 		sql.append(COLUMN_ORG_NAME).append(", ").append(COLUMN_REPORT_ID).append(", ");
 		sql.append(COLUMN_SOURCE_IP).append(", ").append(COLUMN_COUNT).append(", ");
 		sql.append(COLUMN_DISPOSITION).append(", ").append(COLUMN_DKIM).append(", ");
 		sql.append(COLUMN_SPF).append(", ").append(COLUMN_HEADER_FROM).append(", ");
+		sql.append(COLUMN_DKIM_COUNT).append(", ").append(COLUMN_SPF_COUNT).append(", ");
+		sql.append(COLUMN_SOURCE_IP_BIN).append(", ");
 		sql.append(COLUMN_CREATED_AT).append(", ").append(COLUMN_UPDATED_AT).append(") ");
-		sql.append("VALUES (?, ?, ?, ?, ?, ?, ?, ?, DEFAULT, DEFAULT)");
-		PreparedStatement stmt = con.prepareStatement(sql.toString());
+		sql.append("VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, DEFAULT, DEFAULT)");
+		return sql.toString();
+	}
+
+	/**
+	 * set dmarc_records values.
+	 * @param stmt prepared statement.
+	 * @param record record.
+	 * @throws SQLException
+	 */
+	protected static void setRecordValues(PreparedStatement stmt, Record record) throws SQLException {
 		stmt.setString(1, record.getOrgName());
 		stmt.setString(2, record.getReportId());
 		stmt.setString(3, record.getSourceIp());
@@ -463,63 +580,145 @@ public class Record implements RecordColumns {
 		stmt.setString(6, record.getDkim());
 		stmt.setString(7, record.getSpf());
 		stmt.setString(8, record.getHeaderFrom());
-		stmt.execute();
-		stmt.close();
-
-		for (int i = 0; i < record.getAuthResultDkimCount(); i++) {
-			AuthResultRecord dkimRec = record.getAuthResultDkim(i);
-			AuthResultRecord.insert(dkimRec, con);
+		stmt.setInt(9, Math.max(record.getAuthResultDkimCount(), 0));	// number of dmarc_auth_results rows, not to count them on select.
+		stmt.setInt(10, Math.max(record.getAuthResultSpfCount(), 0));
+		byte[] sourceIpBin = IpAddress.toBinary(record.getSourceIp());	// for CIDR search.
+		if (sourceIpBin != null) {
+			stmt.setBytes(11, sourceIpBin);
 		}
-
-		for (int i = 0; i < record.getAuthResultSpfCount(); i++) {
-			AuthResultRecord spfRec = record.getAuthResultSpf(i);
-			AuthResultRecord.insert(spfRec, con);
+		else {
+			stmt.setNull(11, Types.VARBINARY);
 		}
 	}
 
 	/**
 	 * delete records.
+	 * each org_name, report_id is deleted only once, however many records it has.
 	 * @param records record list.
 	 * @param connection database connection.
 	 * @throws SQLException 
 	 */
 	public static void delete(List<Record> records, Connection connection) throws SQLException {
+		DailyRollup rollup = DailyRollup.isEnabled() ? new DailyRollup() : null;
+		delete(records, connection, rollup);
+		if (rollup != null) {
+			rollup.apply(connection);
+		}
+	}
+
+	/**
+	 * delete records.
+	 * @param records record list.
+	 * @param connection database connection.
+	 * @param rollup daily rollup to subtract deleted records. caller applies it. not maintained if null.
+	 * @throws SQLException
+	 */
+	private static void delete(List<Record> records, Connection connection, DailyRollup rollup) throws SQLException {
+		Map<String, Record> feedbacks = new LinkedHashMap<>();
 		for (Record record : records) {
-			deleteFromTable(record, AUTH_RESULTS_TABLE, connection);
-			deleteFromTable(record, RECORDS_TABLE, connection);
-			deleteFromTable(record, FEEDBACKS_TABLE, connection);
+			feedbacks.putIfAbsent(record.getFeedbackKey(), record);
 		}
+		if (rollup != null) {
+			rollup.subtractStored(connection, feedbacks.values());
+		}
+
+		deleteFromTable(feedbacks.values(), AUTH_RESULTS_TABLE, connection);
+		deleteFromTable(feedbacks.values(), RECORDS_TABLE, connection);
+		deleteFromTable(feedbacks.values(), FEEDBACKS_TABLE, connection);
 	}
 
 	/**
-	 * delete from dmarc_auth_results.
-	 * @param record record to delete.
+	 * delete from table.
+	 * @param feedbacks records which have distinct org_name, report_id.
+	 * @param tableName table name.
 	 * @param con database connection.
 	 * @throws SQLException
 	 */
-	private static void deleteFromTable(Record record, String tableName, Connection con) throws SQLException {
+	private static void deleteFromTable(Collection<Record> feedbacks, String tableName, Connection con) throws SQLException {
 		String sql = "DELETE FROM " + tableName + " WHERE org_name = ? AND report_id = ?";
 		PreparedStatement stmt = con.prepareStatement(sql);
-		stmt.setString(1, record.getOrgName());
-		stmt.setString(2, record.getReportId());
-		stmt.execute();
+		for (Record record : feedbacks) {
+			stmt.setString(1, record.getOrgName());
+			stmt.setString(2, record.getReportId());
+			stmt.addBatch();
+		}
+		stmt.executeBatch();
 		stmt.close();
 	}
 
 	/**
 	 * select records.
-	 * @param connection database connection.
+	 * @param con database connection.
 	 * @param searchOptions search options.
-	 * @param orderBy order by object.
+	 * @param orderBy ORDER BY.
 	 * @return record list.
-	 * @throws SQLException 
+	 * @throws SQLException
 	 */
 	public static List<Record> select(Connection con, SearchOptions searchOptions, OrderBy orderBy) throws SQLException {
-		List<Record> records = new ArrayList<>();
+		return selectPage(con, searchOptions, orderBy, null, 0, 0);
+	}
+
+	/**
+	 * select a page of records.
+	 * @param con database connection.
+	 * @param searchOptions search options.
+	 * @param orderBy ORDER BY.
+	 * @param after last record of previous page, or null for the first page.
+	 * @param pageSize maximum number of records, no limit when 0.
+	 * @param fetchSize driver fetch size, driver default when 0.
+	 * @return record list.
+	 * @throws SQLException
+	 */
+	public static List<Record> selectPage(Connection con, SearchOptions searchOptions, OrderBy orderBy, Record after,
+			int pageSize, int fetchSize) throws SQLException {
+		final List<Record> records = new ArrayList<>();
+		select(con, searchOptions, orderBy, after, pageSize, fetchSize, new RecordHandler() {
+			@Override
+			public void recordSelected(Record record) {
+				records.add(record);
+			}
+		});
+		return records;
+	}
+
+	/**
+	 * select records and pass them to handler one by one.
+	 * records are not kept, so memory does not grow with number of records when fetch size is set.
+	 * @param con database connection.
+	 * @param searchOptions search options.
+	 * @param orderBy ORDER BY.
+	 * @param after last record of previous page, or null for the first page.
+	 * @param limit maximum number of records, no limit when 0.
+	 * @param fetchSize driver fetch size, driver default when 0.
+	 * @param handler record handler.
+	 * @return number of selected records.
+	 * @throws SQLException
+	 */
+	public static int select(Connection con, SearchOptions searchOptions, OrderBy orderBy, Record after,
+			int limit, int fetchSize, RecordHandler handler) throws SQLException {
+		return select(con, searchOptions, orderBy, after, limit, fetchSize, null, handler);
+	}
+
+	/**
+	 * select records and pass them to handler one by one.
+	 * records are not kept, so memory does not grow with number of records when fetch size is set.
+	 * @param con database connection.
+	 * @param searchOptions search options.
+	 * @param orderBy ORDER BY.
+	 * @param after last record of previous page, or null for the first page.
+	 * @param limit maximum number of records, no limit when 0.
+	 * @param fetchSize driver fetch size, driver default when 0.
+	 * @param canceller statement canceller, or null if not cancelled.
+	 * @param handler record handler.
+	 * @return number of selected records.
+	 * @throws SQLException
+	 */
+	public static int select(Connection con, SearchOptions searchOptions, OrderBy orderBy, Record after,
+			int limit, int fetchSize, StatementCanceller canceller, RecordHandler handler) throws SQLException {
 		StringBuilder sql = new StringBuilder("SELECT ");
 		boolean hasAuthResultColumns = false;
-		if ((searchOptions != null) && searchOptions.hasAuthResultColumn()) {
-			sql.append("DISTINCT ");
+		if ((searchOptions != null) && searchOptions.hasAuthResultColumn() && joinAuthResults) {
+			sql.append("DISTINCT ");	// a record is joined to each matched authentication result.
 			hasAuthResultColumns = true;
 		}
 		String comma = "";
@@ -531,27 +730,77 @@ public class Record implements RecordColumns {
 			sql.append(comma).append(selectColName(RECORDS_TABLE, column));
 		}
 
-		sql.append(comma).append(selectColName(SUBQ_TABLE, COLUMN_DKIM_COUNT));
-		sql.append(comma).append(selectColName(SUBQ_TABLE, COLUMN_SPF_COUNT));
+		List<SearchOption> boundOptions = new ArrayList<>();	// in order of placeholders.
+		appendFromWhere(sql, searchOptions, hasAuthResultColumns, boundOptions);
 
-		sql.append(" FROM ").append(FEEDBACKS_TABLE).append(", ").append(RECORDS_TABLE);
+		List<OrderBy> orders = OrderBy.buildOrderByList(orderBy, ORDER_BY_COLUMNS);
+		List<Object> keysetValues = new ArrayList<>();
+		if (after != null) {
+			sql.append(" AND ").append(createKeysetWhere(orders, after, keysetValues));	// rows after previous page.
+		}
 
-		addSubQuery(sql, searchOptions);	// add sub query.
+		sql.append(OrderBy.buildOrderBy(orderBy, ORDER_BY_COLUMNS));
+		if (limit > 0) {
+			sql.append(" LIMIT ").append(limit);
+		}
 
-		if (hasAuthResultColumns) {
+		System.out.println("SQL: " + sql.toString());
+		PreparedStatement stmt = con.prepareStatement(sql.toString(), ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+		int count = 0;
+		try {
+			if (canceller != null) {
+				canceller.setStatement(stmt);
+			}
+			if (fetchSize > 0) {
+				stmt.setFetchSize(fetchSize);
+			}
+
+			int indexBase = setSearchValues(stmt, boundOptions);
+			for (Object value : keysetValues) {	// set keyset values.
+				stmt.setObject(indexBase, value);
+				indexBase++;
+			}
+
+			ResultSet rs = stmt.executeQuery();
+			while (rs.next()) {
+				if ((canceller != null) && canceller.isCancelled()) {
+					break;
+				}
+				Record record = new Record();
+				record.setData(rs);
+				handler.recordSelected(record);
+				count++;
+			}
+			rs.close();
+		}
+		finally {
+			if (canceller != null) {
+				canceller.setStatement(null);
+			}
+			stmt.close();
+		}
+
+		return count;
+	}
+
+	/**
+	 * append FROM and WHERE of search options.
+	 * @param sql string buffer.
+	 * @param searchOptions search options.
+	 * @param joinAuth true to join dmarc_auth_results. records are multiplied, so DISTINCT is needed.
+	 * @param boundOptions options are added in order of placeholders.
+	 */
+	private static void appendFromWhere(StringBuilder sql, SearchOptions searchOptions, boolean joinAuth, List<SearchOption> boundOptions) {
+		sql.append(" FROM ").append(FEEDBACKS_TABLE).append(", ").append(RECORDS_TABLE);
+
+		if (joinAuth) {
 			sql.append(", ").append(AUTH_RESULTS_TABLE);
 		}
 
 		sql.append(createWhere(" WHERE ", FEEDBACKS_TABLE, RECORDS_TABLE, COLUMN_ORG_NAME));	// FEEDBACKS_TABLE = RECORDS_TABLE.
 		sql.append(createWhere(" AND ", FEEDBACKS_TABLE, RECORDS_TABLE, COLUMN_REPORT_ID));
 
-		sql.append(createWhere(" AND ", FEEDBACKS_TABLE, SUBQ_TABLE, COLUMN_ORG_NAME));	// FEEDBACKS_TABLE = SUBQ_TABLE.
-		sql.append(createWhere(" AND ", FEEDBACKS_TABLE, SUBQ_TABLE, COLUMN_REPORT_ID));
-		sql.append(createWhere(" AND ", RECORDS_TABLE, SUBQ_TABLE, COLUMN_ORG_NAME));	// RECORDS_TABLE = SUBQ_TABLE.
-		sql.append(createWhere(" AND ", RECORDS_TABLE, SUBQ_TABLE, COLUMN_REPORT_ID));
-		sql.append(createWhere(" AND ", RECORDS_TABLE, SUBQ_TABLE, COLUMN_SOURCE_IP));
-
-		if (hasAuthResultColumns) {
+		if (joinAuth) {
 			sql.append(createWhere(" AND ", FEEDBACKS_TABLE, AUTH_RESULTS_TABLE, COLUMN_ORG_NAME));	// FEEDBACKS_TABLE = AUTH_RESULTS_TABLE.
 			sql.append(createWhere(" AND ", FEEDBACKS_TABLE, AUTH_RESULTS_TABLE, COLUMN_REPORT_ID));
 
@@ -559,86 +808,249 @@ public class Record implements RecordColumns {
 			sql.append(createWhere(" AND ", RECORDS_TABLE, AUTH_RESULTS_TABLE, COLUMN_REPORT_ID));
 			sql.append(createWhere(" AND ", RECORDS_TABLE, AUTH_RESULTS_TABLE, COLUMN_SOURCE_IP));
 
-			sql.append(createWhere(" AND ", SUBQ_TABLE, AUTH_RESULTS_TABLE, COLUMN_ORG_NAME));	// SUBQ_TABLE = AUTH_RESULTS_TABLE.
-			sql.append(createWhere(" AND ", SUBQ_TABLE, AUTH_RESULTS_TABLE, COLUMN_REPORT_ID));
-			sql.append(createWhere(" AND ", SUBQ_TABLE, AUTH_RESULTS_TABLE, COLUMN_SOURCE_IP));
+			createAuthResultsWhere(sql, searchOptions, boundOptions);	// WHERE for  authentication result records.
+		}
+		else {
+			createAuthResultsExists(sql, searchOptions, boundOptions);
 		}
+	}
 
-		createAuthResultsWhere(sql, searchOptions);	// WHERE for  authentication result records.
+	/**
+	 * set search values to placeholders.
+	 * @param stmt prepared statement.
+	 * @param boundOptions options in order of placeholders.
+	 * @return next index of prepared statement.
+	 * @throws SQLException
+	 */
+	private static int setSearchValues(PreparedStatement stmt, List<SearchOption> boundOptions) throws SQLException {
+		int indexBase = 1;
+		for (SearchOption searchOption : boundOptions) {
+			searchOption.setSearchValue(stmt, indexBase);
+			indexBase += searchOption.getParameterCount();
+		}
+		return indexBase;
+	}
 
-		final String[] otherOrders = { COLUMN_BEGIN, COLUMN_END, COLUMN_ORG_NAME, COLUMN_REPORT_ID, COLUMN_HEADER_FROM, COLUMN_SOURCE_IP, };
-		sql.append(OrderBy.buildOrderBy(orderBy, otherOrders));
+	// MARK: - Aggregate
+	/**
+	 * aggregate records by GROUP BY on database. only aggregated rows are transferred.
+	 * authentication results are filtered by EXISTS always, because a joined record would be counted more than once.
+	 * @param con database connection.
+	 * @param searchOptions search options.
+	 * @param groupColumns columns of AggregateRecord.GROUP_BY_COLUMNS. a total row if empty.
+	 * @param limit maximum number of rows, no limit when 0.
+	 * @param canceller statement canceller, or null if not cancelled.
+	 * @return aggregated rows in descending order of SUM(count).
+	 * @throws SQLException
+	 */
+	public static List<AggregateRecord> aggregate(Connection con, SearchOptions searchOptions, List<String> groupColumns,
+			int limit, StatementCanceller canceller) throws SQLException {
+		StringBuilder sql = new StringBuilder("SELECT ");
+		StringBuilder groupBy = new StringBuilder();
+		for (String column : groupColumns) {
+			sql.append(orderByColName(column)).append(" AS ").append(column).append(", ");
+			groupBy.append((groupBy.length() == 0) ? " GROUP BY " : ", ").append(orderByColName(column));
+		}
+		sql.append("SUM(").append(whereColName(RECORDS_TABLE, COLUMN_COUNT)).append(") AS ").append(AggregateRecord.COLUMN_MESSAGE_COUNT);
+		sql.append(", COUNT(*) AS ").append(AggregateRecord.COLUMN_RECORD_COUNT);
+
+		List<SearchOption> boundOptions = new ArrayList<>();	// in order of placeholders.
+		appendFromWhere(sql, searchOptions, false, boundOptions);
+		sql.append(groupBy);
+		sql.append(" ORDER BY ").append(AggregateRecord.COLUMN_MESSAGE_COUNT).append(" DESC");
+		if (limit > 0) {
+			sql.append(" LIMIT ").append(limit);
+		}
 
 		System.out.println("SQL: " + sql.toString());
-		PreparedStatement stmt = con.prepareStatement(sql.toString());
+		List<AggregateRecord> rows = new ArrayList<>();
+		PreparedStatement stmt = con.prepareStatement(sql.toString(), ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+		try {
+			if (canceller != null) {
+				canceller.setStatement(stmt);
+			}
+			setSearchValues(stmt, boundOptions);
 
-		int indexBase = 1;
-		if (searchOptions != null) {	// set search values for sub query.
-			for (String key : RECORD_KEY_COLUMNS) {
-				SearchOption searchOption = searchOptions.getSearchOption(key, false);
-				if (searchOption != null) {
-					searchOption.setSearchValue(stmt, indexBase);
-					indexBase++;
+			ResultSet rs = stmt.executeQuery();
+			while (rs.next()) {
+				String[] values = new String[groupColumns.size()];
+				for (int i = 0; i < values.length; i++) {
+					values[i] = rs.getString(i + 1);
 				}
+				rows.add(new AggregateRecord(values, rs.getLong(values.length + 1), rs.getInt(values.length + 2)));
+			}
+			rs.close();
+		}
+		finally {
+			if (canceller != null) {
+				canceller.setStatement(null);
 			}
+			stmt.close();
 		}
+		return rows;
+	}
 
-		if (searchOptions != null) {	// set search values.
-			for (int i = 0; i < searchOptions.getSearchOptionCount(); i++) {
-				SearchOption searchOption = searchOptions.getSearchOption(i);
-				searchOption.setSearchValue(stmt, i + indexBase);
+	/**
+	 * create keyset WHERE query chunk to select rows after the record.
+	 * (c1 > v1) OR (c1 = v1 AND c2 > v2) OR ... for the ORDER BY columns.
+	 * NULL is the lowest value, same as ORDER BY of MySQL.
+	 * @param orders ORDER BY list.
+	 * @param after last record of previous page.
+	 * @param values values to bind are added.
+	 * @return WHERE query chunk.
+	 */
+	private static String createKeysetWhere(List<OrderBy> orders, Record after, List<Object> values) {
+		StringBuilder sql = new StringBuilder("(");
+		String or = "";
+		for (int i = 0; i < orders.size(); i++) {
+			OrderBy last = orders.get(i);
+			Object lastValue = after.getColumnValue(last.getColumn());
+			String afterWhere = createAfterWhere(orderByColName(last.getColumn()), last.isAscending(), lastValue);
+			if (afterWhere == null) {
+				continue;	// nothing can be after NULL in descending order.
+			}
+			sql.append(or).append("(");
+			for (int j = 0; j < i; j++) {
+				OrderBy order = orders.get(j);
+				Object value = after.getColumnValue(order.getColumn());
+				sql.append(orderByColName(order.getColumn()));
+				if (value == null) {
+					sql.append(" IS NULL AND ");
+				}
+				else {
+					sql.append(" = ? AND ");
+					values.add(value);
+				}
+			}
+			sql.append(afterWhere).append(")");
+			if (lastValue != null) {
+				values.add(lastValue);
 			}
+			or = " OR ";
 		}
-	
-		ResultSet rs = stmt.executeQuery();
-		while (rs.next()) {
-			Record record = new Record();
-			record.setData(rs);
-			records.add(record);
+		if (or.length() == 0) {
+			sql.append("1 = 0");	// last record of all.
 		}
-		rs.close();
-		stmt.close();
+		sql.append(")");
+		return sql.toString();
+	}
 
-		return records;
+	/**
+	 * create WHERE query chunk for a column after the value.
+	 * @param column column name with table name.
+	 * @param ascending ascending when true.
+	 * @param value value of previous record.
+	 * @return WHERE query chunk, or null if no value is after.
+	 */
+	private static String createAfterWhere(String column, boolean ascending, Object value) {
+		if (value == null) {
+			return ascending ? column + " IS NOT NULL" : null;
+		}
+		if (ascending) {
+			return column + " > ?";
+		}
+		return "(" + column + " < ? OR " + column + " IS NULL)";
+	}
+
+	/**
+	 * column name with table name for ORDER BY column.
+	 * @param column column name.
+	 * @return table.column.
+	 */
+	private static String orderByColName(String column) {
+		for (String recordColumn : RECORD_COLUMNS) {
+			if (recordColumn.equals(column)) {
+				return whereColName(RECORDS_TABLE, column);
+			}
+		}
+		return whereColName(FEEDBACKS_TABLE, column);
 	}
 
 	/**
-	 * add sub query chunk.
+	 * select how to filter by authentication results.
+	 * @param filter AUTH_FILTER_EXISTS or AUTH_FILTER_JOIN. EXISTS is used for unknown name.
+	 */
+	public static void setAuthFilter(String filter) {
+		joinAuthResults = AUTH_FILTER_JOIN.equalsIgnoreCase(filter);
+	}
+
+	/**
+	 * create WHERE query chunk with EXISTS sub query per authentication result type.
+	 * record matches if it has a DKIM result which matches all DKIM options, or a SPF result which matches all SPF options.
+	 * records are not multiplied by authentication results, so DISTINCT is not needed.
 	 * @param sql string buffer.
 	 * @param searchOptions search options.
+	 * @param boundOptions options are added in order of placeholders.
 	 */
-	private static void addSubQuery(StringBuilder sql, SearchOptions searchOptions) {
-		sql.append(", (SELECT ");	// sub query start.
-		sql.append(COLUMN_ORG_NAME);
-		sql.append(", ").append(COLUMN_REPORT_ID);
-		sql.append(", ").append(COLUMN_SOURCE_IP);
-		sql.append(", ").append("SUM(").append(AuthResultRecord.COLUMN_TYPE).append(" = '").append(AuthResultRecord.TYPE_DKIM).append("') AS ").append(COLUMN_DKIM_COUNT);
-		sql.append(", ").append("SUM(").append(AuthResultRecord.COLUMN_TYPE).append(" = '").append(AuthResultRecord.TYPE_SPF).append("') AS ").append(COLUMN_SPF_COUNT);
-		sql.append(" FROM ").append(AUTH_RESULTS_TABLE);
-
-		if (searchOptions != null) {
-			String whareClause = " WHERE ";
-			for (String key : RECORD_KEY_COLUMNS) {
-				SearchOption searchOption = searchOptions.getSearchOption(key, false);
-				if (searchOption != null) {
-					sql.append(whareClause).append(searchOption.createWhereOmitTableName());	// do not use table name for sub query.
-					whareClause = " AND ";
-				}
+	private static void createAuthResultsExists(StringBuilder sql, SearchOptions searchOptions, List<SearchOption> boundOptions) {
+		if (searchOptions == null) {
+			return;
+		}
+		List<SearchOption> dkimOptions = new ArrayList<>();
+		List<SearchOption> spfOptions = new ArrayList<>();
+		for (int i = 0; i < searchOptions.getSearchOptionCount(); i++) {
+			SearchOption searchOption = searchOptions.getSearchOption(i);
+			if (searchOption.isAuthResultColumn() == false) {
+				sql.append(" AND ").append(searchOption.createWhere());
+				boundOptions.add(searchOption);
+			}
+			else if (searchOption.isDkim()) {
+				dkimOptions.add(searchOption);
+			}
+			else {
+				spfOptions.add(searchOption);
 			}
 		}
 
-		sql.append(" GROUP BY ").append(COLUMN_ORG_NAME);
-		sql.append(", ").append(COLUMN_REPORT_ID);
-		sql.append(", ").append(COLUMN_SOURCE_IP);
-		sql.append(") AS ").append(SUBQ_TABLE);	// sub query end.
+		boolean both = (dkimOptions.isEmpty() == false) && (spfOptions.isEmpty() == false);
+		if (dkimOptions.isEmpty() && spfOptions.isEmpty()) {
+			return;
+		}
+		sql.append(" AND ");
+		if (both) {
+			sql.append("(");
+		}
+		if (dkimOptions.isEmpty() == false) {
+			appendAuthResultsExists(sql, AuthResultRecord.TYPE_DKIM, dkimOptions, boundOptions);
+		}
+		if (both) {
+			sql.append(" OR ");	// DKIM -> SPF.
+		}
+		if (spfOptions.isEmpty() == false) {
+			appendAuthResultsExists(sql, AuthResultRecord.TYPE_SPF, spfOptions, boundOptions);
+		}
+		if (both) {
+			sql.append(")");
+		}
 	}
 
 	/**
-	 * create authentication results WHERE query chunk.
+	 * append EXISTS sub query of an authentication result type.
+	 * @param sql string buffer.
+	 * @param type AuthResultRecord.TYPE_DKIM or AuthResultRecord.TYPE_SPF.
+	 * @param options search options of the type.
+	 * @param boundOptions options are added in order of placeholders.
+	 */
+	private static void appendAuthResultsExists(StringBuilder sql, String type, List<SearchOption> options, List<SearchOption> boundOptions) {
+		sql.append("EXISTS (SELECT 1 FROM ").append(AUTH_RESULTS_TABLE);	// sub query start.
+		sql.append(createWhere(" WHERE ", AUTH_RESULTS_TABLE, RECORDS_TABLE, COLUMN_ORG_NAME));	// AUTH_RESULTS_TABLE = RECORDS_TABLE.
+		sql.append(createWhere(" AND ", AUTH_RESULTS_TABLE, RECORDS_TABLE, COLUMN_REPORT_ID));
+		sql.append(createWhere(" AND ", AUTH_RESULTS_TABLE, RECORDS_TABLE, COLUMN_SOURCE_IP));
+		sql.append(" AND ").append(whereColName(AUTH_RESULTS_TABLE, AuthResultRecord.COLUMN_TYPE)).append(" = '").append(type).append("'");
+		for (SearchOption searchOption : options) {
+			sql.append(" AND ").append(searchOption.createWhere());
+			boundOptions.add(searchOption);
+		}
+		sql.append(")");	// sub query end.
+	}
+
+	/**
+	 * create authentication results WHERE query chunk for records joined to authentication results.
 	 * @param sql string buffer.
 	 * @param searchOptions search options.
+	 * @param boundOptions options are added in order of placeholders.
 	 */
-	private static void createAuthResultsWhere(StringBuilder sql, SearchOptions searchOptions) {
+	private static void createAuthResultsWhere(StringBuilder sql, SearchOptions searchOptions, List<SearchOption> boundOptions) {
 		int authCount = 0;
 		int dkimAuth = 0;
 		int spfAuth = 0;
@@ -647,6 +1059,7 @@ public class Record implements RecordColumns {
 				SearchOption searchOption = searchOptions.getSearchOption(i);
 				if (searchOption.isAuthResultColumn() == false) {
 					sql.append(" AND ").append(searchOption.createWhere());
+					boundOptions.add(searchOption);
 				}
 				else {
 					authCount++;
@@ -681,6 +1094,7 @@ public class Record implements RecordColumns {
 					SearchOption searchOption = searchOptions.getSearchOption(i);
 					if (searchOption.isAuthResultColumn()) {
 						sql.append(searchOption.createWhere());
+						boundOptions.add(searchOption);
 						authSetCount++;
 						if (searchOption.isDkim()) {
 							dkimSetAuth++;
@@ -734,40 +1148,56 @@ public class Record implements RecordColumns {
 
 	// MARK: - Merge Record.
 	/**
-	 * check key is duplicate or not.
-	 * @param compareRec comparing record.
-	 * @return true if key is duplicate.
+	 * merge records which have same key.
+	 * @param records records in XML order.
+	 * @return merged record list.
 	 */
-	protected boolean isDuplicateKey(Record compareRec) {
-		return org_name.equals(compareRec.org_name) && report_id.equals(compareRec.report_id) && source_ip.equals(compareRec.source_ip);
+	public static List<Record> mergeRecords(List<Record> records) {
+		return RecordMerger.merge(records);
 	}
 
 	/**
-	 * merge record.
+	 * merge count and authentication results of record.
+	 * disposition, dkim, spf are set by setMergedValues().
 	 * @param mergeRec record to merge.
 	 */
 	protected void mergeRecord(Record mergeRec) {
 		count += mergeRec.count;
-		if (disposition.contains(mergeRec.disposition) == false) {
-			disposition += "," + mergeRec.disposition;
-		}
-		if (dkim.contains(mergeRec.dkim) == false) {
-			dkim += "," + mergeRec.dkim;
+		if (mergeRec.dkims != null) {
+			preapreAddAuthResult();
+			dkims.addAll(mergeRec.dkims);
 		}
-		if (spf.contains(mergeRec.spf) == false) {
-			spf += "," + mergeRec.spf;
+		if (mergeRec.spfs != null) {
+			preapreAddAuthResult();
+			spfs.addAll(mergeRec.spfs);
 		}
+	}
 
-		dkims.addAll(mergeRec.dkims);
-		int row = dkims.get(0).getRow();
-		for (int i = 1; i < dkims.size(); i++) {
-			dkims.get(i).setRow(row + i);
-		}
+	/**
+	 * set merged values.
+	 * @param disposition merged disposition.
+	 * @param dkim merged dkim.
+	 * @param spf merged spf.
+	 */
+	protected void setMergedValues(String disposition, String dkim, String spf) {
+		this.disposition = disposition;
+		this.dkim = dkim;
+		this.spf = spf;
+	}
 
-		spfs.addAll(mergeRec.spfs);
-		row = spfs.get(0).getRow();
-		for (int i = 1; i < spfs.size(); i++) {
-			spfs.get(i).setRow(row + i);
+	/**
+	 * renumber authentication result rows from 0.
+	 */
+	protected void renumberAuthResults() {
+		if (dkims != null) {
+			for (int i = 0; i < dkims.size(); i++) {
+				dkims.get(i).setRow(i);
+			}
+		}
+		if (spfs != null) {
+			for (int i = 0; i < spfs.size(); i++) {
+				spfs.get(i).setRow(i);
+			}
 		}
 	}
 }
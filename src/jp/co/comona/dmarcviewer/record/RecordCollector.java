@@ -0,0 +1,74 @@
+package jp.co.comona.dmarcviewer.record;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.xml.parsers.ParserConfigurationException;
+
+import org.xml.sax.SAXException;
+
+import jp.co.comona.dmarcviewer.xml.DmarcFeedback;
+import jp.co.comona.dmarcviewer.xml.DmarcFeedbackListener;
+import jp.co.comona.dmarcviewer.xml.DmarcRecord;
+
+/**
+ * collect records while parsing XML, without keeping parsed XML items.
+ * @author kageyama
+ * date: 2025/06/10
+ */
+public class RecordCollector implements DmarcFeedbackListener {
+
+	// MARK: - Properties
+	private List<Record> records = new ArrayList<>();
+
+	// MARK: - Constructor
+	/**
+	 * constructor.
+	 */
+	private RecordCollector() {
+		super();
+	}
+
+	// MARK: - Collect
+	/**
+	 * parse XML file and collect records.
+	 * @param filePath XML file path. can be compressed with gzip or zip.
+	 * @return records in XML order.
+	 * @throws ParserConfigurationException
+	 * @throws SAXException
+	 * @throws IOException
+	 */
+	public static List<Record> collect(String filePath) throws ParserConfigurationException, SAXException, IOException {
+		RecordCollector collector = new RecordCollector();
+		DmarcFeedback.parse(filePath, collector);
+		return collector.records;
+	}
+
+	// MARK: - DmarcFeedbackListener
+	/**
+	 * feedback started.
+	 */
+	@Override
+	public void feedbackStarted(DmarcFeedback feedback) {
+		// nothing to do.
+	}
+
+	/**
+	 * record parsed.
+	 */
+	@Override
+	public void recordParsed(DmarcFeedback feedback, DmarcRecord record) {
+		Record rec = new Record();
+		rec.setData(feedback, record);
+		records.add(rec);
+	}
+
+	/**
+	 * feedback ended.
+	 */
+	@Override
+	public void feedbackEnded(DmarcFeedback feedback) {
+		// nothing to do.
+	}
+}
@@ -37,4 +37,5 @@ public interface RecordColumns {
 
 	public static final String COLUMN_DKIM_COUNT = "dkim_count";
 	public static final String COLUMN_SPF_COUNT = "spf_count";
+	public static final String COLUMN_SOURCE_IP_BIN = "source_ip_bin";	// source_ip in 16 bytes. see IpAddress.
 }
@@ -1,5 +1,7 @@
 package jp.co.comona.dmarcviewer.record;
 
+import java.util.Collections;
+
 import org.eclipse.swt.SWT;
 import org.eclipse.swt.events.SelectionEvent;
 import org.eclipse.swt.events.SelectionListener;
@@ -81,7 +83,7 @@ public class RecordDetailWindow extends SubWindow implements RecordListTableCont
 	protected void createComponents() {
 		table = new RecordListTable(this, tool, shell, PROP_RECORD_DETAIL_PREFIX);
 		table.createTable();
-		table.addRecordToTable(record);
+		table.setRecords(Collections.singletonList(record));
 
 		dkimLabel = new Label(shell, SWT.NULL);
 		dkimLabel.setText(Record.COLUMN_DKIM.toUpperCase());
@@ -253,4 +255,12 @@ public class RecordDetailWindow extends SubWindow implements RecordListTableCont
 	public void tableColumnSelected(String columnName, Event e) {
 		// nothing to do.
 	}
+
+	/**
+	 * table is scrolled near the last record.
+	 */
+	@Override
+	public void tableNeedsMoreRecords() {
+		// nothing to do.
+	}
 }
@@ -0,0 +1,18 @@
+package jp.co.comona.dmarcviewer.record;
+
+import java.sql.SQLException;
+
+/**
+ * record handler to receive selected records one by one.
+ * @author kageyama
+ * date: 2025/06/04
+ */
+public interface RecordHandler {
+
+	/**
+	 * record selected.
+	 * @param record selected record.
+	 * @throws SQLException
+	 */
+	public void recordSelected(Record record) throws SQLException;
+}
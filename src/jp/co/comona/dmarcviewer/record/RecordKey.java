@@ -0,0 +1,101 @@
+package jp.co.comona.dmarcviewer.record;
+
+/**
+ * dmarc_records primary key.
+ * @author kageyama
+ * date: 2025/06/03
+ */
+public final class RecordKey {
+
+	// MARK: - Properties
+	private final String org_name;
+	private final String report_id;
+	private final String source_ip;
+	private final int hash;
+
+	// MARK: - Constructor
+	/**
+	 * constructor.
+	 * @param org_name org_name.
+	 * @param report_id report_id.
+	 * @param source_ip source_ip.
+	 */
+	public RecordKey(String org_name, String report_id, String source_ip) {
+		super();
+		this.org_name = org_name;
+		this.report_id = report_id;
+		this.source_ip = source_ip;
+		int h = (org_name != null) ? org_name.hashCode() : 0;
+		h = h * 31 + ((report_id != null) ? report_id.hashCode() : 0);
+		h = h * 31 + ((source_ip != null) ? source_ip.hashCode() : 0);
+		hash = h;
+	}
+
+	// MARK: - Getters
+	/**
+	 * get org_name.
+	 * @return org_name.
+	 */
+	public String getOrgName() {
+		return org_name;
+	}
+
+	/**
+	 * get report_id.
+	 * @return report_id.
+	 */
+	public String getReportId() {
+		return report_id;
+	}
+
+	/**
+	 * get source_ip.
+	 * @return source_ip.
+	 */
+	public String getSourceIp() {
+		return source_ip;
+	}
+
+	// MARK: - Object
+	/**
+	 * hash code.
+	 */
+	@Override
+	public int hashCode() {
+		return hash;
+	}
+
+	/**
+	 * equals.
+	 */
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj) {
+			return true;
+		}
+		if ((obj instanceof RecordKey) == false) {
+			return false;
+		}
+		RecordKey other = (RecordKey) obj;
+		return (hash == other.hash) && equals(org_name, other.org_name)
+				&& equals(report_id, other.report_id) && equals(source_ip, other.source_ip);
+	}
+
+	/**
+	 * compare strings.
+	 * @param s1 string 1.
+	 * @param s2 string 2.
+	 * @return true if equal.
+	 */
+	private static boolean equals(String s1, String s2) {
+		return (s1 == null) ? (s2 == null) : s1.equals(s2);
+	}
+
+	/**
+	 * to string.
+	 */
+	@Override
+	public String toString() {
+		return org_name + "/" + report_id + "/" + source_ip;
+	}
+}
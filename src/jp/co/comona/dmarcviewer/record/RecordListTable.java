@@ -3,6 +3,8 @@ package jp.co.comona.dmarcviewer.record;
 import java.time.Instant;
 import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
 
 import org.eclipse.swt.SWT;
 import org.eclipse.swt.events.SelectionEvent;
@@ -30,6 +32,8 @@ public class RecordListTable implements Constants, RecordColumns {
 			COLUMN_BEGIN, COLUMN_END, COLUMN_DOMAIN, COLUMN_ADKIM, COLUMN_ASPF, COLUMN_P, COLUMN_SP, COLUMN_PCT, COLUMN_NP,
 			COLUMN_SOURCE_IP, COLUMN_COUNT, COLUMN_DISPOSITION, COLUMN_DKIM, COLUMN_SPF, COLUMN_HEADER_FROM, COLUMN_DKIM_COUNT, COLUMN_SPF_COUNT, };
 
+	private static final int MORE_RECORDS_MARGIN = 100;	// ask for more records when shown rows come this close to the end.
+
 	private static final char ASCENDING_MARK = 0x2193;
 	private static final char DESCENDING_MARK = 0x2191;
 
@@ -39,6 +43,8 @@ public class RecordListTable implements Constants, RecordColumns {
 	private Shell shell = null;
 	private Table table = null;
 	private String propertiesPrefix = null;
+	private List<Record> records = null;
+	private DateTimeFormatter dateTimeFormatter = null;
 
 	// MARK: - Constructor
 	/**
@@ -61,9 +67,25 @@ public class RecordListTable implements Constants, RecordColumns {
 	 * create table.
 	 */
 	public void createTable() {
-		table = new Table(shell, SWT.SINGLE | SWT.BORDER | SWT.FULL_SELECTION);
+		dateTimeFormatter = DateTimeFormatter.ofPattern(tool.getPropertyString(PROP_DATE_TIME_FORMAT, "yyyy/MM/dd hh:mm:ss"));
+		records = new ArrayList<>();
+
+		table = new Table(shell, SWT.SINGLE | SWT.BORDER | SWT.FULL_SELECTION | SWT.VIRTUAL);
 		table.setLinesVisible(true);
 		table.setHeaderVisible(true);
+		table.addListener(SWT.SetData, new Listener() {	// item scrolled into view.
+			@Override
+			public void handleEvent(Event event) {
+				TableItem item = (TableItem) event.item;
+				int index = event.index;
+				if ((index > -1) && (index < records.size())) {
+					item.setText(createTexts(records.get(index)));
+				}
+				if (index >= records.size() - MORE_RECORDS_MARGIN) {
+					container.tableNeedsMoreRecords();
+				}
+			}
+		});
 		table.addSelectionListener(new SelectionListener() {
 			@Override
 			public void widgetSelected(SelectionEvent e) {
@@ -109,19 +131,35 @@ public class RecordListTable implements Constants, RecordColumns {
 
 	// MARK: - Record
 	/**
-	 * add record to table.
+	 * set records to show.
+	 * the table keeps the list and formats rows only when they scroll into view.
+	 * @param records record list.
+	 */
+	public void setRecords(List<Record> records) {
+		this.records = records;
+		recordsChanged();
+	}
+
+	/**
+	 * records are added to or removed from the list.
+	 */
+	public void recordsChanged() {
+		table.setItemCount(records.size());
+	}
+
+	/**
+	 * create column texts.
 	 * @param rec record.
+	 * @return column texts.
 	 */
-	public void addRecordToTable(Record rec) {
+	private String[] createTexts(Record rec) {
 		String[] texts = new String[HEADER_TITLES.length];
-		TableItem item = new TableItem(table, SWT.NULL);
-		String dateTimeFormat = tool.getPropertyString(PROP_DATE_TIME_FORMAT, "yyyy/MM/dd hh:mm:ss");
 		texts[0] = rec.getOrgName();
 		texts[1] = rec.getReportId();
 		texts[2] = rec.getEmail();
 		texts[3] = rec.getExtraContactInfo();
-		texts[4] = dateTimeFormat(rec.getBegin(), dateTimeFormat);
-		texts[5] = dateTimeFormat(rec.getEnd(), dateTimeFormat);
+		texts[4] = dateTimeFormat(rec.getBegin(), dateTimeFormatter);
+		texts[5] = dateTimeFormat(rec.getEnd(), dateTimeFormatter);
 		texts[6] = rec.getDomain();
 		texts[7] = rec.getAdkim();
 		texts[8] = rec.getAspf();
@@ -137,7 +175,7 @@ public class RecordListTable implements Constants, RecordColumns {
 		texts[18] = rec.getHeaderFrom();
 		texts[19] = "" + rec.getAuthResultDkimCount();
 		texts[20] = "" + rec.getAuthResultSpfCount();
-		item.setText(texts);
+		return texts;
 	}
 
 	/**
@@ -146,16 +184,15 @@ public class RecordListTable implements Constants, RecordColumns {
 	 * @param index index of record.
 	 */
 	public void updateAuthResultsCount(Record rec, int index) {
-		TableItem item = table.getItem(index);
-		item.setText(19, "" + rec.getAuthResultDkimCount());
-		item.setText(20, "" + rec.getAuthResultSpfCount());
+		if (index < table.getItemCount()) {
+			table.clear(index);	// texts are set again when shown.
+		}
 	}
 
 	/**
 	 * remove all contents of table.
 	 */
 	public void removeAll() {
-		table.clearAll();
 		table.removeAll();
 	}
 
@@ -214,7 +251,16 @@ public class RecordListTable implements Constants, RecordColumns {
 	 * @return formatted date time string.
 	 */
 	public static String dateTimeFormat(int unixTime, String dateTimeFormat) {
-		 DateTimeFormatter dateFormat = DateTimeFormatter.ofPattern(dateTimeFormat);
+		 return dateTimeFormat(unixTime, DateTimeFormatter.ofPattern(dateTimeFormat));
+	}
+
+	/**
+	 * date time format.
+	 * @param unixTime UNIX time in GMT.
+	 * @param dateFormat date time formatter.
+	 * @return formatted date time string.
+	 */
+	private static String dateTimeFormat(int unixTime, DateTimeFormatter dateFormat) {
 		 return Instant.ofEpochSecond(Long.valueOf(unixTime)).atZone(ZoneId.systemDefault()).format(dateFormat);
 	}
 }
@@ -28,4 +28,9 @@ public interface RecordListTableContainer {
 	 * @param e event.
 	 */
 	public void tableColumnSelected(String columnName, Event e);
+
+	/**
+	 * table is scrolled near the last record.
+	 */
+	public void tableNeedsMoreRecords();
 }
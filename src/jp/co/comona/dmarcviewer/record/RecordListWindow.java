@@ -1,7 +1,7 @@
 package jp.co.comona.dmarcviewer.record;
 
+import java.sql.Connection;
 import java.sql.SQLException;
-import java.util.ArrayList;
 import java.util.List;
 
 import org.eclipse.swt.SWT;
@@ -14,9 +14,8 @@ import org.eclipse.swt.widgets.Event;
 import jp.co.comona.dmarcviewer.DmarcViewerTool;
 import jp.co.comona.dmarcviewer.MainWindow;
 import jp.co.comona.dmarcviewer.SubWindow;
+import jp.co.comona.dmarcviewer.util.ConnectionPool;
 import jp.co.comona.dmarcviewer.util.MessageBox;
-import jp.co.comona.dmarcviewer.xml.DmarcFeedback;
-import jp.co.comona.dmarcviewer.xml.DmarcRecord;
 
 /**
  * record list window.
@@ -31,7 +30,6 @@ public class RecordListWindow extends SubWindow implements RecordListTableContai
 	private static final String CLOSE_BUTTON_TITLE = "Close";
 
 	// MARK: - Properties
-	private DmarcFeedback feedback = null;
 	private RecordListTable table = null;
 	private Button detailButton = null;
 	private Button storeButton = null;
@@ -44,12 +42,11 @@ public class RecordListWindow extends SubWindow implements RecordListTableContai
 	 * constructor.
 	 * @param tool DMARC viewer tool.
 	 * @param mainWindow main window.
-	 * @param feedback feedback XML result.
+	 * @param records records of feedback XML.
 	 */
-	public RecordListWindow(DmarcViewerTool tool, MainWindow mainWindow, DmarcFeedback feedback) {
+	public RecordListWindow(DmarcViewerTool tool, MainWindow mainWindow, List<Record> records) {
 		super(tool, mainWindow);
-		this.feedback = feedback;
-		records = new ArrayList<>();
+		this.records = records;
 
 		widthPropKey = PROP_RECORD_LIST_SCREEN_WIDTH;
 		heightPropKey = PROP_RECORD_LIST_SCREEN_HEIGHT;
@@ -93,7 +90,7 @@ public class RecordListWindow extends SubWindow implements RecordListTableContai
 
 		storeButton = new Button(shell, SWT.PUSH);
 		storeButton.setText(STORE_BUTTON_TITLE);
-		storeButton.setEnabled(tool.getConnection() != null);
+		storeButton.setEnabled(tool.isConnected());
 		storeButton.addSelectionListener(new SelectionAdapter() {
 			/**
 			 * widget selected.
@@ -194,6 +191,14 @@ public class RecordListWindow extends SubWindow implements RecordListTableContai
 		// nothing to do.
 	}
 
+	/**
+	 * table is scrolled near the last record.
+	 */
+	@Override
+	public void tableNeedsMoreRecords() {
+		// nothing to do.
+	}
+
 	// MARK: - Sub Window
 	/**
 	 * sub window closed.
@@ -203,7 +208,7 @@ public class RecordListWindow extends SubWindow implements RecordListTableContai
 		if (subWindow == detailWindow) {
 			detailWindow.closeFromOutside();
 			detailWindow = null;
-			storeButton.setEnabled(tool.getConnection() != null);
+			storeButton.setEnabled(tool.isConnected());
 		}
 	}
 
@@ -212,18 +217,7 @@ public class RecordListWindow extends SubWindow implements RecordListTableContai
 	 * expand XML result.
 	 */
 	private void expandXMLResult() {
-		records.clear();
-		for (int i = 0; i < feedback.getRecordCount(); i++) {
-			DmarcRecord dmarcRec = feedback.getRecord(i);
-			Record rec = new Record();
-			rec.setData(feedback, dmarcRec);
-			records.add(rec);
-		}
-
-		table.removeAll();
-		for (Record rec : records) {
-			table.addRecordToTable(rec);
-		}
+		table.setRecords(records);
 	}
 
 	// MARK: - Event
@@ -261,8 +255,15 @@ public class RecordListWindow extends SubWindow implements RecordListTableContai
 		String error = null;
 		List<Record> storeRecords = mergeStoreRecords();
 		try {
-			Record.delete(storeRecords, tool.getConnection());	// delete org_name, report_id first.
-			Record.insert(storeRecords, tool.getConnection());	// then insert.
+			int batchSize = tool.getPropertyInt(PROP_STORE_BATCH_SIZE, DEFAULT_STORE_BATCH_SIZE);
+			ConnectionPool pool = tool.getWritePool();
+			Connection con = pool.borrow();
+			try {
+				Record.store(storeRecords, con, batchSize);	// delete org_name, report_id, then insert.
+			}
+			finally {
+				pool.release(con);
+			}
 			mainWindow.searchAfterStore();
 			onCloseButton(e);
 		}
@@ -288,7 +289,7 @@ public class RecordListWindow extends SubWindow implements RecordListTableContai
 	 * connection status changed.
 	 */
 	public void connectionStatusChanged() {
-		storeButton.setEnabled(tool.getConnection() != null);
+		storeButton.setEnabled(tool.isConnected());
 	}
 
 	// MARK: - Getters
@@ -307,20 +308,6 @@ public class RecordListWindow extends SubWindow implements RecordListTableContai
 	 * @return merged record list.
 	 */
 	private List<Record> mergeStoreRecords() {
-		List<Record> storeRecords = new ArrayList<>();
-		if ((records != null) && (records.size() > 0)) {
-			for (int i = records.size() - 1; i > 0; i--) {
-				Record rec = records.get(i);
-				Record prevRec = records.get(i - 1);
-				if (rec.isDuplicateKey(prevRec)) {
-					prevRec.mergeRecord(rec);
-					
-				} else {
-					storeRecords.add(0, rec);
-				}
-			}
-			storeRecords.add(0, records.get(0));
-		}
-		return storeRecords;
+		return Record.mergeRecords(records);
 	}
 }
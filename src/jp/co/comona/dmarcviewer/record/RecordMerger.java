@@ -0,0 +1,183 @@
+package jp.co.comona.dmarcviewer.record;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * merge records which have same org_name, report_id, source_ip.
+ * records are hashed by key, so all duplicates are merged in linear time regardless of order.
+ * @author kageyama
+ * date: 2025/06/17
+ */
+public class RecordMerger {
+
+	// MARK: - Static Properties
+	private static final String VALUE_SEPARATOR = ",";
+
+	// MARK: - Properties
+	private Map<RecordKey, MergedRecord> records = new LinkedHashMap<>();	// in order of first appearance.
+
+	// MARK: - Constructor
+	/**
+	 * constructor.
+	 */
+	public RecordMerger() {
+		super();
+	}
+
+	// MARK: - Merge
+	/**
+	 * merge records.
+	 * @param records records in XML order.
+	 * @return merged records in order of first appearance.
+	 */
+	public static List<Record> merge(List<Record> records) {
+		RecordMerger merger = new RecordMerger();
+		if (records != null) {
+			for (Record rec : records) {
+				merger.add(rec);
+			}
+		}
+		return merger.getRecords();
+	}
+
+	/**
+	 * add record. merged to the record which has same key if exists.
+	 * @param record record to add.
+	 */
+	public void add(Record record) {
+		RecordKey key = record.getKey();
+		MergedRecord merged = records.get(key);
+		if (merged == null) {
+			records.put(key, new MergedRecord(record));
+		}
+		else {
+			merged.merge(record);
+		}
+	}
+
+	/**
+	 * check record which has same key is added or not.
+	 * @param record record to check.
+	 * @return true if added.
+	 */
+	public boolean contains(Record record) {
+		return records.containsKey(record.getKey());
+	}
+
+	/**
+	 * get number of merged records.
+	 * @return number of merged records.
+	 */
+	public int size() {
+		return records.size();
+	}
+
+	/**
+	 * get merged records.
+	 * disposition, dkim, spf are joined and authentication result rows are renumbered.
+	 * @return merged records in order of first appearance.
+	 */
+	public List<Record> getRecords() {
+		List<Record> mergedRecords = new ArrayList<>(records.size());
+		for (MergedRecord merged : records.values()) {
+			mergedRecords.add(merged.finish());
+		}
+		return mergedRecords;
+	}
+
+	/**
+	 * remove all records.
+	 */
+	public void clear() {
+		records.clear();
+	}
+
+	/**
+	 * join values.
+	 * @param values values.
+	 * @return comma separated values, or null if no value.
+	 */
+	private static String join(Set<String> values) {
+		if (values.isEmpty()) {
+			return null;
+		}
+		StringBuilder joined = new StringBuilder();
+		for (String value : values) {
+			if (joined.length() > 0) {
+				joined.append(VALUE_SEPARATOR);
+			}
+			joined.append(value);
+		}
+		return joined.toString();
+	}
+
+	/**
+	 * add value to set.
+	 * @param values value set.
+	 * @param value value to add. null is ignored.
+	 */
+	private static void addValue(Set<String> values, String value) {
+		if (value != null) {
+			values.add(value);
+		}
+	}
+
+	// MARK: - Merged Record
+	/**
+	 * record and merged values.
+	 */
+	private static class MergedRecord {
+
+		// MARK: - Properties
+		private final Record record;
+		private Set<String> dispositions = null;	// null until merged.
+		private Set<String> dkims = null;
+		private Set<String> spfs = null;
+
+		// MARK: - Constructor
+		/**
+		 * constructor.
+		 * @param record first record.
+		 */
+		private MergedRecord(Record record) {
+			super();
+			this.record = record;
+		}
+
+		/**
+		 * merge record.
+		 * @param mergeRec record to merge.
+		 */
+		private void merge(Record mergeRec) {
+			if (dispositions == null) {
+				dispositions = new LinkedHashSet<>();
+				dkims = new LinkedHashSet<>();
+				spfs = new LinkedHashSet<>();
+				addValue(dispositions, record.getDisposition());
+				addValue(dkims, record.getDkim());
+				addValue(spfs, record.getSpf());
+			}
+			addValue(dispositions, mergeRec.getDisposition());
+			addValue(dkims, mergeRec.getDkim());
+			addValue(spfs, mergeRec.getSpf());
+			record.mergeRecord(mergeRec);
+		}
+
+		/**
+		 * set merged values to record.
+		 * @return merged record.
+		 */
+		private Record finish() {
+			if (dispositions != null) {
+				record.setMergedValues(join(dispositions), join(dkims), join(spfs));
+				record.renumberAuthResults();
+			}
+			return record;
+		}
+	}
+}
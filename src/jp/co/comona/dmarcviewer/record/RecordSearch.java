@@ -0,0 +1,153 @@
+package jp.co.comona.dmarcviewer.record;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+import jp.co.comona.dmarcviewer.record.where.SearchOptions;
+import jp.co.comona.dmarcviewer.util.ConnectionPool;
+
+/**
+ * record search running on background thread.
+ * found records are passed to the listener in batches.
+ * @author kageyama
+ * date: 2025/06/05
+ */
+public class RecordSearch implements Runnable, RecordHandler {
+
+	// MARK: - Static Properties
+	private static final int BATCH_SIZE = 200;
+	private static final long BATCH_INTERVAL_MILLIS = 100;
+
+	// MARK: - Properties
+	private ConnectionPool pool = null;
+	private SearchOptions searchOptions = null;
+	private OrderBy orderBy = null;
+	private Record after = null;
+	private int limit = 0;
+	private int fetchSize = 0;
+	private RecordSearchListener listener = null;
+	private StatementCanceller canceller = new StatementCanceller();
+	private long startTime = 0;
+	private List<Record> batch = new ArrayList<>();
+	private long lastPosted = 0;
+
+	// MARK: - Constructor
+	/**
+	 * constructor.
+	 * @param pool connection pool. a connection is borrowed while searching.
+	 * @param searchOptions search options.
+	 * @param orderBy ORDER BY.
+	 * @param after last record of previous page, or null for the first page.
+	 * @param limit maximum number of records, no limit when 0.
+	 * @param fetchSize driver fetch size, driver default when 0.
+	 * @param listener search listener.
+	 */
+	public RecordSearch(ConnectionPool pool, SearchOptions searchOptions, OrderBy orderBy, Record after, int limit, int fetchSize,
+			RecordSearchListener listener) {
+		super();
+		this.pool = pool;
+		this.searchOptions = searchOptions;
+		this.orderBy = orderBy;
+		this.after = after;
+		this.limit = limit;
+		this.fetchSize = fetchSize;
+		this.listener = listener;
+		startTime = System.currentTimeMillis();
+	}
+
+	// MARK: - Getters
+	/**
+	 * get limit.
+	 * @return maximum number of records, no limit when 0.
+	 */
+	public int getLimit() {
+		return limit;
+	}
+
+	/**
+	 * get elapsed time since this search is created.
+	 * @return elapsed time in milliseconds.
+	 */
+	public long getElapsedMillis() {
+		return System.currentTimeMillis() - startTime;
+	}
+
+	/**
+	 * check cancelled or not.
+	 * @return true if cancelled.
+	 */
+	public boolean isCancelled() {
+		return canceller.isCancelled();
+	}
+
+	/**
+	 * get canceller of running statement.
+	 * @return statement canceller.
+	 */
+	StatementCanceller getCanceller() {
+		return canceller;
+	}
+
+	// MARK: - Run
+	/**
+	 * cancel search. running statement is cancelled.
+	 */
+	public void cancel() {
+		canceller.cancel();
+	}
+
+	/**
+	 * run.
+	 */
+	@Override
+	public void run() {
+		lastPosted = System.currentTimeMillis();
+		int count = 0;
+		SQLException error = null;
+		Connection con = null;
+		try {
+			if (canceller.isCancelled() == false) {
+				con = pool.borrow();
+				count = Record.select(con, searchOptions, orderBy, after, limit, fetchSize, canceller, this);
+			}
+		}
+		catch (SQLException e) {
+			if (canceller.isCancelled() == false) {
+				e.printStackTrace(System.err);
+				error = e;
+			}
+		}
+		finally {
+			pool.release(con);
+		}
+
+		postBatch();
+		listener.searchFinished(this, count, error);
+	}
+
+	/**
+	 * post batch of found records to listener.
+	 */
+	private void postBatch() {
+		if (batch.isEmpty() == false) {
+			listener.recordsFound(this, batch);
+			batch = new ArrayList<>();
+		}
+		lastPosted = System.currentTimeMillis();
+	}
+
+	// MARK: - RecordHandler
+	/**
+	 * record selected.
+	 * records are posted when the batch is full or some time passed.
+	 */
+	@Override
+	public void recordSelected(Record record) {
+		batch.add(record);
+		if ((batch.size() >= BATCH_SIZE) || (System.currentTimeMillis() - lastPosted >= BATCH_INTERVAL_MILLIS)) {
+			postBatch();
+		}
+	}
+}
@@ -0,0 +1,72 @@
+package jp.co.comona.dmarcviewer.record;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * run record searches one by one on background thread.
+ * other statements which have canceller, e.g. aggregation, can be run, too.
+ * @author kageyama
+ * date: 2025/06/05
+ */
+public class RecordSearchExecutor {
+
+	// MARK: - Properties
+	private ExecutorService executor = null;
+	private StatementCanceller current = null;
+
+	// MARK: - Constructor
+	/**
+	 * constructor.
+	 */
+	public RecordSearchExecutor() {
+		super();
+		executor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable r) {
+				Thread thread = new Thread(r, "RecordSearch");
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+	}
+
+	// MARK: - Search
+	/**
+	 * cancel current search and start new search.
+	 * @param search record search.
+	 */
+	public synchronized void submit(RecordSearch search) {
+		submit(search, search.getCanceller());
+	}
+
+	/**
+	 * cancel current task and start new task.
+	 * @param task task which runs statement.
+	 * @param canceller canceller of the statement.
+	 */
+	public synchronized void submit(Runnable task, StatementCanceller canceller) {
+		cancel();
+		current = canceller;
+		executor.execute(task);
+	}
+
+	/**
+	 * cancel current search or task.
+	 */
+	public synchronized void cancel() {
+		if (current != null) {
+			current.cancel();
+			current = null;
+		}
+	}
+
+	/**
+	 * cancel current search and stop thread.
+	 */
+	public synchronized void shutdown() {
+		cancel();
+		executor.shutdownNow();
+	}
+}
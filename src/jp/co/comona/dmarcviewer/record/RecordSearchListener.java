@@ -0,0 +1,28 @@
+package jp.co.comona.dmarcviewer.record;
+
+import java.sql.SQLException;
+import java.util.List;
+
+/**
+ * record search listener.
+ * methods are called on the search thread.
+ * @author kageyama
+ * date: 2025/06/05
+ */
+public interface RecordSearchListener {
+
+	/**
+	 * records found.
+	 * @param search record search.
+	 * @param records a batch of found records.
+	 */
+	public void recordsFound(RecordSearch search, List<Record> records);
+
+	/**
+	 * search finished.
+	 * @param search record search.
+	 * @param count number of found records.
+	 * @param error error, or null if succeeded.
+	 */
+	public void searchFinished(RecordSearch search, int count, SQLException error);
+}
@@ -0,0 +1,21 @@
+package jp.co.comona.dmarcviewer.record;
+
+import java.sql.SQLException;
+
+import jp.co.comona.dmarcviewer.xml.DmarcFeedback;
+
+/**
+ * filter to decide whether feedback is stored or not, before its records are stored.
+ * @author kageyama
+ * date: 2025/06/13
+ */
+public interface RecordStoreFilter {
+
+	/**
+	 * check feedback should be stored or not.
+	 * @param feedback feedback which has report_metadata and policy_published.
+	 * @return false to skip the feedback.
+	 * @throws SQLException
+	 */
+	public boolean shouldStore(DmarcFeedback feedback) throws SQLException;
+}
@@ -0,0 +1,254 @@
+package jp.co.comona.dmarcviewer.record;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import javax.xml.parsers.ParserConfigurationException;
+
+import org.xml.sax.SAXException;
+
+import jp.co.comona.dmarcviewer.xml.DmarcFeedback;
+import jp.co.comona.dmarcviewer.xml.DmarcFeedbackListener;
+import jp.co.comona.dmarcviewer.xml.DmarcRecord;
+
+/**
+ * store records while parsing XML, without keeping all records in memory.
+ * when a record has same key as a record already written, the file is stored again after merging all records in memory.
+ * @author kageyama
+ * date: 2025/06/10
+ */
+public class RecordStreamStore implements DmarcFeedbackListener {
+
+	// MARK: - Static Properties
+	public static final int SKIPPED = -1;
+
+	// MARK: - Properties
+	private Connection con = null;
+	private int batchSize = 0;
+	private RecordStoreFilter filter = null;
+	private RecordWriter writer = null;
+	private RecordMerger previous = new RecordMerger();	// records which have same key.
+	private Set<RecordKey> writtenKeys = new HashSet<>();	// grows with number of source_ip, not rows.
+	private int recordCount = 0;
+
+	// MARK: - Constructor
+	/**
+	 * constructor.
+	 * @param con database connection.
+	 * @param batchSize number of rows to send at once.
+	 * @param filter filter to skip feedback, or null to store all.
+	 */
+	private RecordStreamStore(Connection con, int batchSize, RecordStoreFilter filter) {
+		super();
+		this.con = con;
+		this.batchSize = batchSize;
+		this.filter = filter;
+	}
+
+	// MARK: - Store
+	/**
+	 * parse XML file and store its records in one transaction.
+	 * existing org_name, report_id is deleted first.
+	 * @param filePath XML file path. can be compressed with gzip or zip.
+	 * @param con database connection.
+	 * @param batchSize number of rows to send at once.
+	 * @return number of stored records.
+	 * @throws ParserConfigurationException
+	 * @throws SAXException
+	 * @throws IOException
+	 * @throws SQLException
+	 */
+	public static int store(String filePath, Connection con, int batchSize) throws ParserConfigurationException, SAXException, IOException, SQLException {
+		return store(filePath, con, batchSize, null);
+	}
+
+	/**
+	 * parse XML file and store its records in one transaction, if filter accepts it.
+	 * filter is asked before existing org_name, report_id is deleted, and parsing stops when it is skipped.
+	 * if records of same key are not next to each other, the file is parsed again and stored by Record.store().
+	 * @param filePath XML file path. can be compressed with gzip or zip.
+	 * @param con database connection.
+	 * @param batchSize number of rows to send at once.
+	 * @param filter filter to skip feedback, or null to store all.
+	 * @return number of stored records, or SKIPPED.
+	 * @throws ParserConfigurationException
+	 * @throws SAXException
+	 * @throws IOException
+	 * @throws SQLException
+	 */
+	public static int store(String filePath, Connection con, int batchSize, RecordStoreFilter filter) throws ParserConfigurationException, SAXException, IOException, SQLException {
+		RecordStreamStore store = new RecordStreamStore(con, batchSize, filter);
+		boolean autoCommit = con.getAutoCommit();
+		con.setAutoCommit(false);
+		try {
+			DmarcFeedback.parse(filePath, store);
+			con.commit();
+		}
+		catch (SAXException e) {
+			store.abort();
+			if (e instanceof SkippedException) {
+				return SKIPPED;
+			}
+			if (e instanceof WrittenKeyException) {
+				return storeMerged(filePath, con, batchSize);
+			}
+			if (e.getException() instanceof SQLException) {
+				throw (SQLException) e.getException();
+			}
+			throw e;
+		}
+		catch (ParserConfigurationException | IOException | SQLException | RuntimeException e) {
+			store.abort();
+			throw e;
+		}
+		finally {
+			con.setAutoCommit(autoCommit);
+		}
+		return store.recordCount;
+	}
+
+	/**
+	 * parse XML file again, and store records merged in memory.
+	 * @param filePath XML file path.
+	 * @param con database connection.
+	 * @param batchSize number of rows to send at once.
+	 * @return number of stored records.
+	 * @throws ParserConfigurationException
+	 * @throws SAXException
+	 * @throws IOException
+	 * @throws SQLException
+	 */
+	private static int storeMerged(String filePath, Connection con, int batchSize) throws ParserConfigurationException, SAXException, IOException, SQLException {
+		List<Record> records = RecordMerger.merge(RecordCollector.collect(filePath));
+		Record.store(records, con, batchSize);	// delete org_name, report_id, then insert.
+		return records.size();
+	}
+
+	/**
+	 * discard pending rows and roll back.
+	 * @throws SQLException
+	 */
+	private void abort() throws SQLException {
+		try {
+			if (writer != null) {
+				writer.abort();
+				writer = null;
+			}
+		}
+		finally {
+			con.rollback();
+		}
+	}
+
+	/**
+	 * write previous record.
+	 * @throws SQLException
+	 */
+	private void writePrevious() throws SQLException {
+		for (Record rec : previous.getRecords()) {
+			writer.write(rec);
+			writtenKeys.add(rec.getKey());
+			recordCount++;
+		}
+		previous.clear();
+	}
+
+	// MARK: - DmarcFeedbackListener
+	/**
+	 * feedback started.
+	 */
+	@Override
+	public void feedbackStarted(DmarcFeedback feedback) throws SAXException {
+		try {
+			if ((filter != null) && (filter.shouldStore(feedback) == false)) {
+				throw new SkippedException();	// stop parsing.
+			}
+			writer = new RecordWriter(con, batchSize);
+		}
+		catch (SQLException e) {
+			throw new SAXException(e);
+		}
+	}
+
+	/**
+	 * record parsed.
+	 * records which have same key and are next to each other are merged.
+	 * records already written cannot be merged, so parsing stops when a record has same key as them.
+	 */
+	@Override
+	public void recordParsed(DmarcFeedback feedback, DmarcRecord record) throws SAXException {
+		Record rec = new Record();
+		rec.setData(feedback, record);
+		try {
+			if ((previous.size() == 0) && (recordCount == 0)) {	// first record.
+				Record.delete(Collections.singletonList(rec), con);	// delete org_name, report_id.
+			}
+			if (previous.contains(rec) == false) {
+				if (writtenKeys.contains(rec.getKey())) {
+					throw new WrittenKeyException();	// store again after merging all records.
+				}
+				writePrevious();
+			}
+			previous.add(rec);
+		}
+		catch (SQLException e) {
+			throw new SAXException(e);
+		}
+	}
+
+	/**
+	 * feedback ended.
+	 */
+	@Override
+	public void feedbackEnded(DmarcFeedback feedback) throws SAXException {
+		try {
+			writePrevious();
+			writer.close();
+			writer = null;
+		}
+		catch (SQLException e) {
+			throw new SAXException(e);
+		}
+	}
+
+	// MARK: - Skipped Exception
+	/**
+	 * exception to stop parsing skipped feedback.
+	 */
+	private static class SkippedException extends SAXException {
+
+		// MARK: - Static Properties
+		private static final long serialVersionUID = 1L;
+
+		// MARK: - Constructor
+		/**
+		 * constructor.
+		 */
+		private SkippedException() {
+			super("skipped");
+		}
+	}
+
+	// MARK: - Written Key Exception
+	/**
+	 * exception to stop parsing when a record has same key as written record.
+	 */
+	private static class WrittenKeyException extends SAXException {
+
+		// MARK: - Static Properties
+		private static final long serialVersionUID = 1L;
+
+		// MARK: - Constructor
+		/**
+		 * constructor.
+		 */
+		private WrittenKeyException() {
+			super("same key as written record");
+		}
+	}
+}
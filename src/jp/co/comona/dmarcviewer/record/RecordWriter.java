@@ -0,0 +1,159 @@
+package jp.co.comona.dmarcviewer.record;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+
+/**
+ * batched record writer.
+ * @author kageyama
+ * date: 2025/06/02
+ */
+public class RecordWriter implements AutoCloseable {
+
+	// MARK: - Properties
+	private Connection con = null;
+	private DailyRollup rollup = null;
+	private int batchSize = 0;
+	private PreparedStatement feedbackStmt = null;
+	private PreparedStatement recordStmt = null;
+	private PreparedStatement authResultStmt = null;
+	private int feedbackCount = 0;
+	private int recordCount = 0;
+	private int authResultCount = 0;
+	private String feedbackKey = "";
+
+	// MARK: - Constructor
+	/**
+	 * constructor.
+	 * @param con database connection.
+	 * @param batchSize number of rows to send at once.
+	 * @throws SQLException
+	 */
+	public RecordWriter(Connection con, int batchSize) throws SQLException {
+		this(con, batchSize, DailyRollup.isEnabled() ? new DailyRollup() : null);
+	}
+
+	/**
+	 * constructor.
+	 * @param con database connection.
+	 * @param batchSize number of rows to send at once.
+	 * @param rollup daily rollup to add written records, applied on close. not maintained if null.
+	 * @throws SQLException
+	 */
+	public RecordWriter(Connection con, int batchSize, DailyRollup rollup) throws SQLException {
+		super();
+		this.con = con;
+		this.rollup = rollup;
+		this.batchSize = (batchSize > 0) ? batchSize : 1;
+		feedbackStmt = con.prepareStatement(Record.createInsertFeedbackSql());
+		recordStmt = con.prepareStatement(Record.createInsertRecordSql());
+		authResultStmt = con.prepareStatement(AuthResultRecord.createInsertSql());
+	}
+
+	// MARK: - Write
+	/**
+	 * write record.
+	 * @param record record.
+	 * @throws SQLException
+	 */
+	public void write(Record record) throws SQLException {
+		if (feedbackKey.equals(record.getFeedbackKey()) == false) {
+			Record.setFeedbackValues(feedbackStmt, record);
+			feedbackStmt.addBatch();
+			feedbackCount++;
+			feedbackKey = record.getFeedbackKey();
+		}
+
+		Record.setRecordValues(recordStmt, record);
+		recordStmt.addBatch();
+		recordCount++;
+		if (rollup != null) {
+			rollup.add(record);
+		}
+
+		for (int i = 0; i < record.getAuthResultDkimCount(); i++) {
+			addAuthResult(record.getAuthResultDkim(i));
+		}
+		for (int i = 0; i < record.getAuthResultSpfCount(); i++) {
+			addAuthResult(record.getAuthResultSpf(i));
+		}
+
+		if (recordCount + authResultCount >= batchSize) {
+			flush();
+		}
+	}
+
+	/**
+	 * add authentication result to batch.
+	 * @param rec authentication result record.
+	 * @throws SQLException
+	 */
+	private void addAuthResult(AuthResultRecord rec) throws SQLException {
+		AuthResultRecord.setInsertValues(authResultStmt, rec);
+		authResultStmt.addBatch();
+		authResultCount++;
+	}
+
+	/**
+	 * execute pending batches.
+	 * parent tables first, because of foreign keys.
+	 * @throws SQLException
+	 */
+	public void flush() throws SQLException {
+		if (feedbackCount > 0) {
+			feedbackStmt.executeBatch();
+			feedbackCount = 0;
+		}
+		if (recordCount > 0) {
+			recordStmt.executeBatch();
+			recordCount = 0;
+		}
+		if (authResultCount > 0) {
+			authResultStmt.executeBatch();
+			authResultCount = 0;
+		}
+	}
+
+	/**
+	 * discard pending batches and close statements.
+	 * used when the transaction is rolled back.
+	 * @throws SQLException
+	 */
+	public void abort() throws SQLException {
+		try {
+			feedbackStmt.clearBatch();
+			recordStmt.clearBatch();
+			authResultStmt.clearBatch();
+			feedbackCount = 0;
+			recordCount = 0;
+			authResultCount = 0;
+			if (rollup != null) {
+				rollup.clear();
+			}
+		}
+		finally {
+			feedbackStmt.close();
+			recordStmt.close();
+			authResultStmt.close();
+		}
+	}
+
+	/**
+	 * flush, apply daily rollup and close statements.
+	 */
+	@Override
+	public void close() throws SQLException {
+		try {
+			flush();
+			if (rollup != null) {
+				rollup.apply(con);
+			}
+		}
+		finally {
+			feedbackStmt.close();
+			recordStmt.close();
+			authResultStmt.close();
+		}
+	}
+}
@@ -0,0 +1,486 @@
+package jp.co.comona.dmarcviewer.record;
+
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import jp.co.comona.dmarcviewer.util.IpAddress;
+
+/**
+ * upgrade DMARC tables in place.
+ * applied versions are recorded in dmarc_schema_versions.
+ * each step checks database metadata first, so tables created by create_tables_mysql.sql are only recorded.
+ * steps which move data take minutes on large tables, so viewer only adds their columns and tables, and leaves them to import tool.
+ * @author kageyama
+ * date: 2025/06/20
+ */
+public class SchemaMigrator implements RecordColumns {
+
+	// MARK: - Static Properties
+	public static final String VERSIONS_TABLE = "dmarc_schema_versions";
+	private static final String IMPORTS_TABLE = "dmarc_imports";	// import ledger.
+	private static final String COLUMN_VERSION = "version";
+	private static final String COLUMN_DESCRIPTION = "description";
+	private static final String[] DESCRIPTIONS = {
+		"add dkim_count, spf_count to dmarc_records",
+		"create dmarc_imports",
+		"create indexes for search and sort",
+		"add source_ip_bin to dmarc_records for CIDR search",
+		"create dmarc_daily_rollups",
+		"key dmarc_imports by file and report",
+	};
+	private static final int[] DATA_VERSIONS = { 1, 4, 5, };	// versions which backfill or rebuild data.
+	private static final int BATCH_SIZE = 1000;
+
+	// MARK: - Properties
+	private Connection con = null;
+	private DatabaseMetaData meta = null;
+
+	// MARK: - Constructor
+	/**
+	 * constructor.
+	 * @param con database connection.
+	 * @throws SQLException
+	 */
+	private SchemaMigrator(Connection con) throws SQLException {
+		super();
+		this.con = con;
+		meta = con.getMetaData();
+	}
+
+	// MARK: - Migrate
+	/**
+	 * apply versions not applied yet.
+	 * nothing is done if DMARC tables are not created.
+	 * @param con database connection.
+	 * @return number of applied versions.
+	 * @throws SQLException
+	 */
+	public static int migrate(Connection con) throws SQLException {
+		SchemaMigrator migrator = new SchemaMigrator(con);
+		List<Integer> versions = migrator.selectPendingVersions();
+		for (int version : versions) {
+			System.out.println("schema version " + version + ": " + DESCRIPTIONS[version - 1]);
+			migrator.apply(version, true);
+			migrator.insertVersion(version);
+		}
+		return versions.size();
+	}
+
+	/**
+	 * apply versions not applied yet, without moving data.
+	 * versions which move data only add their columns and tables, and are not recorded,
+	 * so data is migrated later by migrate().
+	 * nothing is done if DMARC tables are not created.
+	 * @param con database connection.
+	 * @return number of versions whose data is not migrated yet.
+	 * @throws SQLException
+	 */
+	public static int migrateTables(Connection con) throws SQLException {
+		SchemaMigrator migrator = new SchemaMigrator(con);
+		int dataCount = 0;
+		for (int version : migrator.selectPendingVersions()) {
+			boolean moveData = (isDataVersion(version) == false);
+			System.out.println("schema version " + version + ": " + DESCRIPTIONS[version - 1] + (moveData ? "" : " (tables only)"));
+			migrator.apply(version, moveData);
+			if (moveData) {
+				migrator.insertVersion(version);
+			}
+			else {
+				dataCount++;
+			}
+		}
+		return dataCount;
+	}
+
+	/**
+	 * get latest schema version.
+	 * @return latest schema version.
+	 */
+	public static int getLatestVersion() {
+		return DESCRIPTIONS.length;
+	}
+
+	/**
+	 * check version moves data or not.
+	 * @param version schema version.
+	 * @return true if version backfills or rebuilds data.
+	 */
+	private static boolean isDataVersion(int version) {
+		for (int dataVersion : DATA_VERSIONS) {
+			if (dataVersion == version) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * apply a version.
+	 * @param version schema version.
+	 * @param moveData false to add columns and tables only.
+	 * @throws SQLException
+	 */
+	private void apply(int version, boolean moveData) throws SQLException {
+		switch (version) {
+			case 1:
+				addColumn(Record.RECORDS_TABLE, COLUMN_DKIM_COUNT, "INT NOT NULL DEFAULT 0");
+				addColumn(Record.RECORDS_TABLE, COLUMN_SPF_COUNT, "INT NOT NULL DEFAULT 0");
+				if (moveData) {
+					backfillAuthCounts();	// even if columns exist, previous try may fail before backfill.
+				}
+				break;
+			case 2:
+				if (hasTable(IMPORTS_TABLE) == false) {
+					execute("CREATE TABLE " + IMPORTS_TABLE + " ("
+							+ "sha256 CHAR(64) NOT NULL, org_name VARCHAR(128) NOT NULL, report_id VARCHAR(64) NOT NULL, row_count INT NOT NULL, "
+							+ "imported_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP, PRIMARY KEY (sha256, org_name, report_id))");
+				}
+				createIndex(IMPORTS_TABLE, "dmarc_imports_report", COLUMN_ORG_NAME, COLUMN_REPORT_ID);
+				break;
+			case 3:
+				// default ORDER BY begin, end, org_name, report_id, and date range.
+				createIndex(Record.FEEDBACKS_TABLE, "dmarc_feedbacks_begin", COLUMN_BEGIN, COLUMN_END, COLUMN_ORG_NAME, COLUMN_REPORT_ID);
+				createIndex(Record.FEEDBACKS_TABLE, "dmarc_feedbacks_end", COLUMN_END, COLUMN_BEGIN);
+				createIndex(Record.FEEDBACKS_TABLE, "dmarc_feedbacks_domain", COLUMN_DOMAIN);
+				createIndex(Record.RECORDS_TABLE, "dmarc_records_header_from", COLUMN_HEADER_FROM);
+				createIndex(Record.RECORDS_TABLE, "dmarc_records_source_ip", COLUMN_SOURCE_IP);
+				createIndex(Record.RECORDS_TABLE, "dmarc_records_disposition", COLUMN_DISPOSITION);
+				// auth results filter. key columns are included, so EXISTS sub query is answered by index only.
+				createIndex(Record.AUTH_RESULTS_TABLE, "dmarc_auth_results_result", AuthResultRecord.COLUMN_TYPE, AuthResultRecord.COLUMN_RESULT,
+						COLUMN_ORG_NAME, COLUMN_REPORT_ID, COLUMN_SOURCE_IP);
+				createIndex(Record.AUTH_RESULTS_TABLE, "dmarc_auth_results_domain", AuthResultRecord.COLUMN_TYPE, AuthResultRecord.COLUMN_DOMAIN,
+						COLUMN_ORG_NAME, COLUMN_REPORT_ID, COLUMN_SOURCE_IP);
+				break;
+			case 4:
+				addColumn(Record.RECORDS_TABLE, COLUMN_SOURCE_IP_BIN, "VARBINARY(" + IpAddress.LENGTH + ") DEFAULT NULL");
+				if (moveData) {
+					backfillSourceIpBin();	// before index, not to update it row by row.
+					createIndex(Record.RECORDS_TABLE, "dmarc_records_source_ip_bin", COLUMN_SOURCE_IP_BIN);
+				}
+				break;
+			case 5:
+				if (hasTable(DailyRollup.ROLLUPS_TABLE) == false) {
+					createRollupsTable();
+				}
+				if (moveData) {
+					System.out.println(DailyRollup.rebuild(con) + " rollup rows.");	// rebuild deletes rows first, so can be run again.
+				}
+				createIndex(DailyRollup.ROLLUPS_TABLE, "dmarc_daily_rollups_domain", COLUMN_DOMAIN, DailyRollup.COLUMN_DAY);
+				break;
+			case 6:
+				// a mail message may have some reports, a row per report.
+				List<String> keyColumns = getPrimaryKeyColumns(IMPORTS_TABLE);
+				if (keyColumns.contains(COLUMN_REPORT_ID) == false) {
+					if (keyColumns.isEmpty() == false) {	// not dropped by previous try.
+						execute("ALTER TABLE " + IMPORTS_TABLE + " DROP PRIMARY KEY");
+					}
+					execute("ALTER TABLE " + IMPORTS_TABLE + " ADD PRIMARY KEY (sha256, " + COLUMN_ORG_NAME + ", " + COLUMN_REPORT_ID + ")");
+				}
+				break;
+			default:
+				assert(false);
+				break;
+		}
+	}
+
+	/**
+	 * count existing authentication results into dkim_count, spf_count.
+	 * @throws SQLException
+	 */
+	private void backfillAuthCounts() throws SQLException {
+		StringBuilder sql = new StringBuilder("UPDATE ").append(Record.RECORDS_TABLE).append(" SET ");
+		sql.append(COLUMN_DKIM_COUNT).append(" = ").append(countAuthResults(AuthResultRecord.TYPE_DKIM)).append(", ");
+		sql.append(COLUMN_SPF_COUNT).append(" = ").append(countAuthResults(AuthResultRecord.TYPE_SPF)).append(", ");
+		sql.append(Record.COLUMN_UPDATED_AT).append(" = ").append(Record.COLUMN_UPDATED_AT);	// keep update time.
+		execute(sql.toString());
+	}
+
+	/**
+	 * convert existing source_ip into source_ip_bin.
+	 * done by distinct source_ip, so each address is parsed once.
+	 * @throws SQLException
+	 */
+	private void backfillSourceIpBin() throws SQLException {
+		List<String> addresses = new ArrayList<>();
+		StringBuilder sql = new StringBuilder("SELECT DISTINCT ").append(COLUMN_SOURCE_IP).append(" FROM ").append(Record.RECORDS_TABLE);
+		sql.append(" WHERE ").append(COLUMN_SOURCE_IP_BIN).append(" IS NULL");
+		try (Statement stmt = con.createStatement();
+				ResultSet rs = stmt.executeQuery(sql.toString())) {
+			while (rs.next()) {
+				addresses.add(rs.getString(1));
+			}
+		}
+
+		sql = new StringBuilder("UPDATE ").append(Record.RECORDS_TABLE).append(" SET ");
+		sql.append(COLUMN_SOURCE_IP_BIN).append(" = ?, ");
+		sql.append(Record.COLUMN_UPDATED_AT).append(" = ").append(Record.COLUMN_UPDATED_AT);	// keep update time.
+		sql.append(" WHERE ").append(COLUMN_SOURCE_IP).append(" = ?");
+		System.out.println("SQL: " + sql + " (" + addresses.size() + " addresses)");
+		try (PreparedStatement stmt = con.prepareStatement(sql.toString())) {
+			int count = 0;
+			for (String address : addresses) {
+				byte[] binary = IpAddress.toBinary(address);
+				if (binary == null) {
+					continue;	// not IP address, never matches CIDR search.
+				}
+				stmt.setBytes(1, binary);
+				stmt.setString(2, address);
+				stmt.addBatch();
+				if (++count % BATCH_SIZE == 0) {
+					stmt.executeBatch();
+				}
+			}
+			if (count % BATCH_SIZE != 0) {
+				stmt.executeBatch();
+			}
+		}
+	}
+
+	/**
+	 * create sub query to count authentication results of a record.
+	 * @param type AuthResultRecord.TYPE_DKIM or AuthResultRecord.TYPE_SPF.
+	 * @return sub query.
+	 */
+	private static String countAuthResults(String type) {
+		StringBuilder sql = new StringBuilder("(SELECT COUNT(*) FROM ").append(Record.AUTH_RESULTS_TABLE).append(" a");
+		sql.append(" WHERE a.").append(COLUMN_ORG_NAME).append(" = ").append(Record.RECORDS_TABLE).append(".").append(COLUMN_ORG_NAME);
+		sql.append(" AND a.").append(COLUMN_REPORT_ID).append(" = ").append(Record.RECORDS_TABLE).append(".").append(COLUMN_REPORT_ID);
+		sql.append(" AND a.").append(COLUMN_SOURCE_IP).append(" = ").append(Record.RECORDS_TABLE).append(".").append(COLUMN_SOURCE_IP);
+		sql.append(" AND a.").append(AuthResultRecord.COLUMN_TYPE).append(" = '").append(type).append("')");
+		return sql.toString();
+	}
+
+	/**
+	 * create dmarc_daily_rollups.
+	 * @throws SQLException
+	 */
+	private void createRollupsTable() throws SQLException {
+		StringBuilder sql = new StringBuilder("CREATE TABLE ").append(DailyRollup.ROLLUPS_TABLE).append(" (");
+		sql.append(DailyRollup.COLUMN_DAY).append(" DATE NOT NULL, ");
+		sql.append(COLUMN_DOMAIN).append(" VARCHAR(128) NOT NULL, ");
+		sql.append(COLUMN_HEADER_FROM).append(" VARCHAR(128) NOT NULL, ");
+		sql.append(COLUMN_SOURCE_IP).append(" VARCHAR(128) NOT NULL, ");
+		for (String column : DailyRollup.COUNT_COLUMNS) {
+			sql.append(column).append(" BIGINT NOT NULL DEFAULT 0, ");
+		}
+		sql.append("PRIMARY KEY (").append(DailyRollup.COLUMN_DAY).append(", ").append(COLUMN_DOMAIN).append(", ");
+		sql.append(COLUMN_HEADER_FROM).append(", ").append(COLUMN_SOURCE_IP).append("))");
+		execute(sql.toString());
+	}
+
+	// MARK: - Versions Table
+	/**
+	 * create dmarc_schema_versions if not exists.
+	 * @throws SQLException
+	 */
+	private void createVersionsTable() throws SQLException {
+		if (hasTable(VERSIONS_TABLE) == false) {
+			execute("CREATE TABLE " + VERSIONS_TABLE + " ("
+					+ COLUMN_VERSION + " INT NOT NULL, " + COLUMN_DESCRIPTION + " VARCHAR(256) NOT NULL, "
+					+ "applied_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP, PRIMARY KEY (" + COLUMN_VERSION + "))");
+		}
+	}
+
+	/**
+	 * select versions not applied yet.
+	 * dmarc_schema_versions is created if not exists.
+	 * @return versions in order, or empty list if DMARC tables are not created.
+	 * @throws SQLException
+	 */
+	private List<Integer> selectPendingVersions() throws SQLException {
+		List<Integer> versions = new ArrayList<>();
+		if (hasTable(Record.RECORDS_TABLE) == false) {
+			return versions;	// run create_tables_mysql.sql first.
+		}
+		createVersionsTable();
+
+		Set<Integer> applied = selectAppliedVersions();
+		for (int version = 1; version <= DESCRIPTIONS.length; version++) {
+			if (applied.contains(version) == false) {
+				versions.add(version);
+			}
+		}
+		return versions;
+	}
+
+	/**
+	 * select applied versions.
+	 * @return applied versions.
+	 * @throws SQLException
+	 */
+	private Set<Integer> selectAppliedVersions() throws SQLException {
+		Set<Integer> versions = new HashSet<>();
+		try (Statement stmt = con.createStatement();
+				ResultSet rs = stmt.executeQuery("SELECT " + COLUMN_VERSION + " FROM " + VERSIONS_TABLE)) {
+			while (rs.next()) {
+				versions.add(rs.getInt(1));
+			}
+		}
+		return versions;
+	}
+
+	/**
+	 * record applied version.
+	 * @param version schema version.
+	 * @throws SQLException
+	 */
+	private void insertVersion(int version) throws SQLException {
+		String sql = "INSERT INTO " + VERSIONS_TABLE + " (" + COLUMN_VERSION + ", " + COLUMN_DESCRIPTION + ") VALUES (?, ?)";
+		try (PreparedStatement stmt = con.prepareStatement(sql)) {
+			stmt.setInt(1, version);
+			stmt.setString(2, DESCRIPTIONS[version - 1]);
+			stmt.executeUpdate();
+		}
+	}
+
+	// MARK: - DDL
+	/**
+	 * add column if not exists.
+	 * @param table table name.
+	 * @param column column name.
+	 * @param definition column definition.
+	 * @return true if added.
+	 * @throws SQLException
+	 */
+	private boolean addColumn(String table, String column, String definition) throws SQLException {
+		if (hasColumn(table, column)) {
+			return false;
+		}
+		execute("ALTER TABLE " + table + " ADD COLUMN " + column + " " + definition);
+		return true;
+	}
+
+	/**
+	 * create index if index of the name does not exist.
+	 * @param table table name.
+	 * @param index index name.
+	 * @param columns index columns.
+	 * @throws SQLException
+	 */
+	private void createIndex(String table, String index, String... columns) throws SQLException {
+		if (hasIndex(table, index)) {
+			return;
+		}
+		StringBuilder sql = new StringBuilder("CREATE INDEX ").append(index).append(" ON ").append(table).append(" (");
+		for (int i = 0; i < columns.length; i++) {
+			if (i > 0) {
+				sql.append(", ");
+			}
+			sql.append(columns[i]);
+		}
+		sql.append(")");
+		execute(sql.toString());
+	}
+
+	/**
+	 * execute DDL or UPDATE.
+	 * @param sql SQL statement.
+	 * @throws SQLException
+	 */
+	private void execute(String sql) throws SQLException {
+		System.out.println("SQL: " + sql);
+		try (Statement stmt = con.createStatement()) {
+			stmt.executeUpdate(sql);
+		}
+	}
+
+	// MARK: - Metadata
+	/**
+	 * check table exists or not.
+	 * @param table table name.
+	 * @return true if exists.
+	 * @throws SQLException
+	 */
+	private boolean hasTable(String table) throws SQLException {
+		for (String name : identifierCases(table)) {
+			try (ResultSet rs = meta.getTables(con.getCatalog(), null, name, null)) {
+				if (rs.next()) {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * check column exists or not.
+	 * @param table table name.
+	 * @param column column name.
+	 * @return true if exists.
+	 * @throws SQLException
+	 */
+	private boolean hasColumn(String table, String column) throws SQLException {
+		for (String name : identifierCases(table)) {
+			try (ResultSet rs = meta.getColumns(con.getCatalog(), null, name, null)) {
+				while (rs.next()) {
+					if (column.equalsIgnoreCase(rs.getString("COLUMN_NAME"))) {
+						return true;
+					}
+				}
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * check index exists or not.
+	 * @param table table name.
+	 * @param index index name.
+	 * @return true if exists.
+	 * @throws SQLException
+	 */
+	private boolean hasIndex(String table, String index) throws SQLException {
+		for (String name : identifierCases(table)) {
+			try (ResultSet rs = meta.getIndexInfo(con.getCatalog(), null, name, false, true)) {
+				while (rs.next()) {
+					if (index.equalsIgnoreCase(rs.getString("INDEX_NAME"))) {
+						return true;
+					}
+				}
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * get primary key columns.
+	 * @param table table name.
+	 * @return column names in lower case. empty if no primary key.
+	 * @throws SQLException
+	 */
+	private List<String> getPrimaryKeyColumns(String table) throws SQLException {
+		List<String> columns = new ArrayList<>();
+		for (String name : identifierCases(table)) {
+			try (ResultSet rs = meta.getPrimaryKeys(con.getCatalog(), null, name)) {
+				while (rs.next()) {
+					columns.add(rs.getString("COLUMN_NAME").toLowerCase());
+				}
+			}
+			if (columns.isEmpty() == false) {
+				break;
+			}
+		}
+		return columns;
+	}
+
+	/**
+	 * get identifier as stored in metadata.
+	 * @param identifier identifier in lower case.
+	 * @return identifier in lower case, and in upper case if database stores upper case.
+	 * @throws SQLException
+	 */
+	private String[] identifierCases(String identifier) throws SQLException {
+		if (meta.storesUpperCaseIdentifiers()) {
+			return new String[] { identifier.toUpperCase(), identifier, };
+		}
+		return new String[] { identifier, };
+	}
+}
@@ -0,0 +1,61 @@
+package jp.co.comona.dmarcviewer.record;
+
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * cancel running statement from another thread.
+ * @author kageyama
+ * date: 2025/06/05
+ */
+public class StatementCanceller {
+
+	// MARK: - Properties
+	private Statement statement = null;
+	private boolean cancelled = false;
+
+	// MARK: - Constructor
+	/**
+	 * constructor.
+	 */
+	public StatementCanceller() {
+		super();
+	}
+
+	// MARK: - Statement
+	/**
+	 * set running statement.
+	 * the statement is cancelled at once if already cancelled.
+	 * @param statement running statement, or null when finished.
+	 * @throws SQLException
+	 */
+	public synchronized void setStatement(Statement statement) throws SQLException {
+		this.statement = statement;
+		if (cancelled && (statement != null)) {
+			statement.cancel();
+		}
+	}
+
+	/**
+	 * cancel running statement.
+	 */
+	public synchronized void cancel() {
+		cancelled = true;
+		if (statement != null) {
+			try {
+				statement.cancel();
+			}
+			catch (SQLException e) {
+				e.printStackTrace(System.err);
+			}
+		}
+	}
+
+	/**
+	 * check cancelled or not.
+	 * @return true if cancelled.
+	 */
+	public synchronized boolean isCancelled() {
+		return cancelled;
+	}
+}
@@ -0,0 +1,105 @@
+package jp.co.comona.dmarcviewer.record.where;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+
+import jp.co.comona.dmarcviewer.DmarcViewerTool;
+import jp.co.comona.dmarcviewer.util.IpAddress;
+
+/**
+ * CIDR block search option of source_ip.
+ * searched by range of source_ip_bin, so the index is used and octet boundary is exact.
+ * @author kageyama
+ * date: 2025/06/21
+ */
+public class CidrSearchOption extends SearchOption {
+
+	// MARK: - Static Property
+	public static final int TYPE_IN = TextSearchOption.TYPE_EQUAL;	// same index as operators of text input.
+	public static final int TYPE_NOT_IN = TextSearchOption.TYPE_NOT_EQUAL;
+	private static final String BETWEEN = " BETWEEN ? AND ?";
+	private static final String NOT_BETWEEN = " NOT BETWEEN ? AND ?";
+
+	// MARK: - Property
+	private String value = null;
+	private int type = TYPE_IN;
+	private byte[] first = null;
+	private byte[] last = null;
+
+	// MARK: - Constructor
+	/**
+	 * constructor.
+	 * @param value CIDR block like 192.0.2.0/22 or 2001:db8::/48.
+	 * @param type TYPE_IN or TYPE_NOT_IN.
+	 */
+	public CidrSearchOption(String value, int type) {
+		super(COLUMN_SOURCE_IP);
+		byte[][] range = IpAddress.toRange(value);
+		if (range == null) {
+			throw new IllegalArgumentException("invalid CIDR block: " + value);
+		}
+		this.value = value.trim();
+		this.type = type;
+		first = range[0];
+		last = range[1];
+	}
+
+	// MARK: - SQL
+	/**
+	 * create where clause.
+	 */
+	@Override
+	public String createWhere() {
+		return getTablePrefix() + createWhereOmitTableName();
+	}
+
+	/**
+	 * create where clause omit table name.
+	 */
+	@Override
+	public String createWhereOmitTableName() {
+		return COLUMN_SOURCE_IP_BIN + ((type == TYPE_NOT_IN) ? NOT_BETWEEN : BETWEEN);
+	}
+
+	/**
+	 * set search value.
+	 */
+	@Override
+	public void setSearchValue(PreparedStatement stmt, int index) throws SQLException {
+		stmt.setBytes(index, first);
+		stmt.setBytes(index + 1, last);
+	}
+
+	/**
+	 * get number of placeholders.
+	 */
+	@Override
+	public int getParameterCount() {
+		return 2;	// first and last address.
+	}
+
+	// MARK: - Getters
+	/**
+	 * get CIDR block.
+	 * @return CIDR block.
+	 */
+	public String getValue() {
+		return value;
+	}
+
+	/**
+	 * get search type.
+	 * @return TYPE_IN or TYPE_NOT_IN.
+	 */
+	public int getType() {
+		return type;
+	}
+
+	/**
+	 * get search option sign.
+	 */
+	@Override
+	public String getSearchOptionSign(DmarcViewerTool tool) {
+		return getDisplayColumn() + ((type == TYPE_NOT_IN) ? "!=" : "=") + value;
+	}
+}
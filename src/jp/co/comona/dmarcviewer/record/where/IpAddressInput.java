@@ -0,0 +1,70 @@
+package jp.co.comona.dmarcviewer.record.where;
+
+import org.eclipse.swt.widgets.Shell;
+
+import jp.co.comona.dmarcviewer.util.IpAddress;
+
+/**
+ * IP address input for WHERE.
+ * equal and not equal accept CIDR block like 192.0.2.0/22 or 2001:db8::/48.
+ * @author kageyama
+ * date: 2025/06/21
+ */
+public class IpAddressInput extends TextInput {
+
+	// MARK: - Constructor
+	/**
+	 * constructor.
+	 * @param shell shell object.
+	 * @param column column name.
+	 */
+	public IpAddressInput(Shell shell, String column) {
+		super(shell, column);
+	}
+
+	// MARK: - Search Option
+	/**
+	 * create search option.
+	 */
+	@Override
+	public SearchOption createSearchOption() {
+		if (isCidrInput()) {
+			return new CidrSearchOption(text.getText(), operators.getSelectionIndex());
+		}
+		return super.createSearchOption();
+	}
+
+	/**
+	 * set search option.
+	 */
+	@Override
+	public void setSearchOption(SearchOption searchOption) {
+		if (searchOption instanceof CidrSearchOption) {
+			CidrSearchOption cidrOption = (CidrSearchOption) searchOption;
+			reset();
+			text.setText(cidrOption.getValue());
+			operators.select(cidrOption.getType());
+		}
+		else {
+			super.setSearchOption(searchOption);
+		}
+	}
+
+	/**
+	 * check input is valid CIDR block if it is searched as CIDR block.
+	 * @return false if input has prefix but it is not valid CIDR block.
+	 */
+	public boolean isValidInput() {
+		return (isCidrInput() == false) || IpAddress.isCidr(text.getText());
+	}
+
+	/**
+	 * check input is searched as CIDR block or not.
+	 * @return true if equal or not equal with /prefix.
+	 */
+	private boolean isCidrInput() {
+		int type = operators.getSelectionIndex();
+		return ((type == CidrSearchOption.TYPE_IN) || (type == CidrSearchOption.TYPE_NOT_IN))
+				&& text.getText().contains("/");
+	}
+}
@@ -124,6 +124,14 @@ public abstract class SearchOption implements Constants, RecordColumns {
 	 */
 	public abstract void setSearchValue(PreparedStatement stmt, int index) throws SQLException;
 
+	/**
+	 * get number of placeholders set by setSearchValue().
+	 * @return number of placeholders.
+	 */
+	public int getParameterCount() {
+		return 1;
+	}
+
 	/**
 	 * get table name prefix.
 	 * @return table name prefix.
@@ -51,7 +51,7 @@ public class SearchOptionDialog extends DialogBox implements RecordColumns {
 	private ComboInput sp = null;
 	private IntegerInput pct = null;
 	private ComboInput np = null;
-	private TextInput sourceIp = null;
+	private IpAddressInput sourceIp = null;
 	private IntegerInput count = null;
 	private ComboInput disposition = null;
 	private ComboInput dkim = null;
@@ -118,7 +118,7 @@ public class SearchOptionDialog extends DialogBox implements RecordColumns {
 	protected void addComponents() {
 		Button clearButton = new Button(dialog, SWT.PUSH);
 		clearButton.setText(CLEAR_BUTTON_TITLE);
-		clearButton.setEnabled(tool.getConnection() != null);
+		clearButton.setEnabled(tool.isConnected());
 		clearButton.addSelectionListener(new SelectionAdapter() {
 			/**
 			 * widget selected.
@@ -147,7 +147,8 @@ public class SearchOptionDialog extends DialogBox implements RecordColumns {
 		sp = createComboInput(COLUMN_SP, CANDIDATES_SP, 300, false);
 		pct = createIntegerInput(COLUMN_PCT, 330);
 		np = createComboInput(COLUMN_NP, CANDIDATES_NP, 360, false);
-		sourceIp = createTextInput(COLUMN_SOURCE_IP, 390, false);
+		sourceIp = new IpAddressInput(dialog, COLUMN_SOURCE_IP);	// accepts CIDR block.
+		setUpTextInput(sourceIp, 390, false);
 		count = createIntegerInput(COLUMN_COUNT, 420);
 		disposition = createComboInput(COLUMN_DISPOSITION, CANDIDATES_DISPOSITION, 450, false);
 		dkim = createComboInput(COLUMN_DKIM, CANDIDATES_DKIM, 480, false);
@@ -169,16 +170,26 @@ public class SearchOptionDialog extends DialogBox implements RecordColumns {
 	 */
 	private TextInput createTextInput(String columnName, int y, boolean dkim) {
 		TextInput textInput = new TextInput(dialog, columnName);
+		setUpTextInput(textInput, y, dkim);
+		return textInput;
+	}
+
+	/**
+	 * create components of text input, and set current search option.
+	 * @param textInput text input.
+	 * @param y y coordinate.
+	 * @param dkim true if DKIM.
+	 */
+	private void setUpTextInput(TextInput textInput, int y, boolean dkim) {
 		textInput.setDkim(dkim);
 		textInput.createComponents();
 		textInput.setComponentsSize(null, dialog.getClientArea(), dialog.getBounds(), y + DEFAULT_Y_MARGIN);
 		if (searchOptions != null) {
-			SearchOption searchOption = searchOptions.getSearchOption(columnName, dkim);
+			SearchOption searchOption = searchOptions.getSearchOption(textInput.column, dkim);
 			if (searchOption != null) {
 				textInput.setSearchOption(searchOption);
 			}
 		}
-		return textInput;
 	}
 
 	/**
@@ -289,6 +300,10 @@ public class SearchOptionDialog extends DialogBox implements RecordColumns {
 	@Override
 	protected boolean onOkButton(SelectionEvent e) {
 		boolean ret = super.onOkButton(e);
+		if (ret && (sourceIp.isValidInput() == false)) {
+			MessageBox.showInformation(dialog, null, MESSAGE_INVALID_CIDR, SWT.OK);
+			return false;
+		}
 		int beginEpoch = begin.getEpochTime();
 		int endEpoch = end.getEpochTime();
 		if ((beginEpoch > -1) && (endEpoch > -1)) {
@@ -0,0 +1,96 @@
+package jp.co.comona.dmarcviewer.util;
+
+/**
+ * bloom filter of strings.
+ * mightContain() never returns false for added string, but may return true for string not added.
+ * @author kageyama
+ * date: 2025/06/13
+ */
+public class BloomFilter {
+
+	// MARK: - Static Properties
+	private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+	private static final long FNV_PRIME = 0x100000001b3L;
+	private static final double LN2 = Math.log(2);
+
+	// MARK: - Properties
+	private final long[] bits;
+	private final int bitCount;
+	private final int hashCount;
+
+	// MARK: - Constructor
+	/**
+	 * constructor.
+	 * @param expectedCount expected number of strings to add.
+	 * @param falsePositiveRate false positive rate at expected number. e.g. 0.01.
+	 */
+	public BloomFilter(int expectedCount, double falsePositiveRate) {
+		super();
+		int count = Math.max(expectedCount, 1);
+		double bitSize = Math.ceil(-count * Math.log(falsePositiveRate) / (LN2 * LN2));
+		bitCount = (int) Math.max(64, Math.min(bitSize, Integer.MAX_VALUE - 63));
+		hashCount = Math.max(1, (int) Math.round((double) bitCount / count * LN2));
+		bits = new long[(bitCount + 63) >>> 6];
+	}
+
+	// MARK: - Filter
+	/**
+	 * add string.
+	 * @param key string to add.
+	 */
+	public synchronized void add(String key) {
+		long hash = hash(key);
+		int hash1 = (int) hash;
+		int hash2 = (int) (hash >>> 32);
+		for (int i = 0; i < hashCount; i++) {
+			int index = bitIndex(hash1 + i * hash2);
+			bits[index >>> 6] |= 1L << index;
+		}
+	}
+
+	/**
+	 * check string might be added or not.
+	 * @param key string to check.
+	 * @return false if string is never added.
+	 */
+	public synchronized boolean mightContain(String key) {
+		long hash = hash(key);
+		int hash1 = (int) hash;
+		int hash2 = (int) (hash >>> 32);
+		for (int i = 0; i < hashCount; i++) {
+			int index = bitIndex(hash1 + i * hash2);
+			if ((bits[index >>> 6] & (1L << index)) == 0) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * get bit index of combined hash.
+	 * @param combinedHash combined hash.
+	 * @return bit index.
+	 */
+	private int bitIndex(int combinedHash) {
+		return (combinedHash & Integer.MAX_VALUE) % bitCount;
+	}
+
+	/**
+	 * 64 bit hash of string. FNV-1a, then mixed to spread short differences to all bits.
+	 * @param key string.
+	 * @return hash.
+	 */
+	private static long hash(String key) {
+		long hash = FNV_OFFSET_BASIS;
+		for (int i = 0; i < key.length(); i++) {
+			hash ^= key.charAt(i);
+			hash *= FNV_PRIME;
+		}
+		hash ^= hash >>> 33;
+		hash *= 0xff51afd7ed558ccdL;
+		hash ^= hash >>> 33;
+		hash *= 0xc4ceb9fe1a85ec53L;
+		hash ^= hash >>> 33;
+		return hash;
+	}
+}
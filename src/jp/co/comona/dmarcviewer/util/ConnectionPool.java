@@ -0,0 +1,288 @@
+package jp.co.comona.dmarcviewer.util;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.Timer;
+import java.util.TimerTask;
+
+/**
+ * small JDBC connection pool.
+ * idle connection is validated when it is borrowed, and closed when it is idle too long.
+ * @author kageyama
+ * date: 2025/06/18
+ */
+public class ConnectionPool implements AutoCloseable {
+
+	// MARK: - Static Properties
+	private static final long BORROW_TIMEOUT_MILLIS = 30000;
+
+	// MARK: - Properties
+	private final String url;
+	private final String user;
+	private final String password;
+	private final int maxSize;
+	private final int validationTimeout;
+	private final long idleTimeoutMillis;
+	private final ArrayDeque<IdleConnection> idleConnections = new ArrayDeque<>();	// last released is first.
+	private int openCount = 0;
+	private boolean closed = false;
+	private Timer evictionTimer = null;
+
+	// MARK: - Constructor
+	/**
+	 * constructor.
+	 * @param url JDBC URL.
+	 * @param user database user, or null if authentication is not required.
+	 * @param password database password.
+	 * @param maxSize maximum number of connections.
+	 * @param validationTimeout validation timeout in seconds.
+	 * @param idleTimeoutMillis idle connection is closed after this time. never closed when 0.
+	 */
+	public ConnectionPool(String url, String user, String password, int maxSize, int validationTimeout, long idleTimeoutMillis) {
+		super();
+		this.url = url;
+		this.user = user;
+		this.password = password;
+		this.maxSize = Math.max(maxSize, 1);
+		this.validationTimeout = validationTimeout;
+		this.idleTimeoutMillis = idleTimeoutMillis;
+		if (idleTimeoutMillis > 0) {
+			evictionTimer = new Timer("ConnectionPoolEviction", true);
+			long period = Math.max(idleTimeoutMillis / 2, 1000);
+			evictionTimer.schedule(new TimerTask() {
+				@Override
+				public void run() {
+					evictIdleConnections();
+				}
+			}, period, period);
+		}
+	}
+
+	// MARK: - Pool
+	/**
+	 * borrow connection. waits while all connections are borrowed.
+	 * @return valid connection.
+	 * @throws SQLException
+	 */
+	public Connection borrow() throws SQLException {
+		long deadline = System.currentTimeMillis() + BORROW_TIMEOUT_MILLIS;
+		while (true) {
+			IdleConnection idle = null;
+			synchronized (this) {
+				if (closed) {
+					throw new SQLException("connection pool is closed.");
+				}
+				idle = idleConnections.pollFirst();
+				if (idle == null) {
+					if (openCount < maxSize) {
+						openCount++;
+						break;	// open new connection.
+					}
+					long wait = deadline - System.currentTimeMillis();
+					if (wait <= 0) {
+						throw new SQLException("no connection is released in " + BORROW_TIMEOUT_MILLIS + " ms. pool size is " + maxSize + ".");
+					}
+					try {
+						wait(wait);
+					}
+					catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+						throw new SQLException(e);
+					}
+					continue;
+				}
+			}
+			if (isValid(idle.connection)) {	// validate out of lock, it may take a while.
+				return idle.connection;
+			}
+			discard(idle.connection);
+		}
+
+		try {
+			return openConnection();
+		}
+		catch (SQLException e) {
+			connectionClosed();
+			throw e;
+		}
+	}
+
+	/**
+	 * release borrowed connection.
+	 * uncommitted transaction is rolled back.
+	 * @param con borrowed connection. ignored if null.
+	 */
+	public void release(Connection con) {
+		if (con == null) {
+			return;
+		}
+		try {
+			if (con.isClosed()) {
+				connectionClosed();
+				return;
+			}
+			if (con.getAutoCommit() == false) {
+				con.rollback();
+				con.setAutoCommit(true);
+			}
+		}
+		catch (SQLException e) {
+			discard(con);
+			return;
+		}
+
+		synchronized (this) {
+			if (closed == false) {
+				idleConnections.addFirst(new IdleConnection(con));
+				notifyAll();
+				return;
+			}
+		}
+		discard(con);
+	}
+
+	/**
+	 * close idle connections, and connections released after this.
+	 */
+	@Override
+	public void close() {
+		ArrayDeque<IdleConnection> closing;
+		synchronized (this) {
+			closed = true;
+			closing = new ArrayDeque<>(idleConnections);
+			idleConnections.clear();
+			notifyAll();
+		}
+		if (evictionTimer != null) {
+			evictionTimer.cancel();
+			evictionTimer = null;
+		}
+		for (IdleConnection idle : closing) {
+			discard(idle.connection);
+		}
+	}
+
+	/**
+	 * close connections idle longer than idle timeout.
+	 */
+	private void evictIdleConnections() {
+		ArrayDeque<IdleConnection> evicted = new ArrayDeque<>();
+		long now = System.currentTimeMillis();
+		synchronized (this) {
+			Iterator<IdleConnection> it = idleConnections.descendingIterator();	// oldest first.
+			while (it.hasNext()) {
+				IdleConnection idle = it.next();
+				if (now - idle.releasedAt < idleTimeoutMillis) {
+					break;
+				}
+				it.remove();
+				evicted.add(idle);
+			}
+		}
+		for (IdleConnection idle : evicted) {
+			discard(idle.connection);
+		}
+	}
+
+	// MARK: - Connection
+	/**
+	 * open new connection.
+	 * @return new connection.
+	 * @throws SQLException
+	 */
+	private Connection openConnection() throws SQLException {
+		if (user == null) {
+			return DriverManager.getConnection(url);	// SQLite3 must be here.
+		}
+		return DriverManager.getConnection(url, user, password);
+	}
+
+	/**
+	 * check connection is usable or not.
+	 * @param con connection.
+	 * @return true if usable.
+	 */
+	private boolean isValid(Connection con) {
+		try {
+			return con.isValid(validationTimeout);
+		}
+		catch (SQLException e) {
+			return false;
+		}
+		catch (AbstractMethodError e) {
+			return true;	// old driver which does not know isValid().
+		}
+	}
+
+	/**
+	 * close connection and count it out of pool.
+	 * @param con connection.
+	 */
+	private void discard(Connection con) {
+		try {
+			con.close();
+		}
+		catch (SQLException e) {
+			// already broken.
+		}
+		connectionClosed();
+	}
+
+	/**
+	 * count closed connection out of pool.
+	 */
+	private synchronized void connectionClosed() {
+		openCount--;
+		notifyAll();
+	}
+
+	// MARK: - Getters
+	/**
+	 * get JDBC URL.
+	 * @return JDBC URL.
+	 */
+	public String getUrl() {
+		return url;
+	}
+
+	/**
+	 * get maximum number of connections.
+	 * @return maximum number of connections.
+	 */
+	public int getMaxSize() {
+		return maxSize;
+	}
+
+	/**
+	 * get number of open connections, including borrowed ones.
+	 * @return number of open connections.
+	 */
+	public synchronized int getOpenCount() {
+		return openCount;
+	}
+
+	// MARK: - Idle Connection
+	/**
+	 * connection in pool.
+	 */
+	private static class IdleConnection {
+
+		// MARK: - Properties
+		private final Connection connection;
+		private final long releasedAt;
+
+		// MARK: - Constructor
+		/**
+		 * constructor.
+		 * @param connection released connection.
+		 */
+		private IdleConnection(Connection connection) {
+			super();
+			this.connection = connection;
+			releasedAt = System.currentTimeMillis();
+		}
+	}
+}
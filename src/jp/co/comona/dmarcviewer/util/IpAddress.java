@@ -0,0 +1,152 @@
+package jp.co.comona.dmarcviewer.util;
+
+import java.net.Inet4Address;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.regex.Pattern;
+
+/**
+ * IP address in 16 bytes binary.
+ * IPv4 address is mapped to IPv6 (::ffff:a.b.c.d), so both are sorted in one column and a CIDR block is a range.
+ * @author kageyama
+ * date: 2025/06/21
+ */
+public abstract class IpAddress {
+
+	// MARK: - Static Properties
+	public static final int LENGTH = 16;
+	private static final int IPV4_LENGTH = 4;
+	private static final int IPV4_MAPPED_PREFIX = 96;	// ::ffff:0:0/96
+	private static final String PREFIX_SEPARATOR = "/";
+	private static final Pattern IPV4_PATTERN = Pattern.compile("\\d{1,3}(\\.\\d{1,3}){3}");
+	private static final Pattern IPV6_PATTERN = Pattern.compile("[0-9A-Fa-f:.]+");	// literal only, never resolve host name.
+
+	// MARK: - Constructor
+	/**
+	 * constructor.
+	 */
+	private IpAddress() {
+		super();
+	}
+
+	// MARK: - Convert
+	/**
+	 * convert IP address to binary.
+	 * @param address IPv4 or IPv6 address.
+	 * @return 16 bytes binary, or null if not IP address.
+	 */
+	public static byte[] toBinary(String address) {
+		if (address == null) {
+			return null;
+		}
+		address = address.trim();
+		int zone = address.indexOf('%');
+		if (zone >= 0) {
+			address = address.substring(0, zone);	// fe80::1%eth0
+		}
+
+		byte[] binary = new byte[LENGTH];
+		if (IPV4_PATTERN.matcher(address).matches()) {
+			String[] octets = address.split("\\.");
+			for (int i = 0; i < IPV4_LENGTH; i++) {
+				int octet = Integer.parseInt(octets[i]);
+				if (octet > 255) {
+					return null;
+				}
+				binary[LENGTH - IPV4_LENGTH + i] = (byte) octet;
+			}
+			setIpv4Mapped(binary);
+			return binary;
+		}
+		if ((address.indexOf(':') < 0) || (IPV6_PATTERN.matcher(address).matches() == false)) {
+			return null;
+		}
+
+		InetAddress inet;
+		try {
+			inet = InetAddress.getByName(address);
+		}
+		catch (UnknownHostException e) {
+			return null;	// invalid literal.
+		}
+		byte[] bytes = inet.getAddress();
+		if (inet instanceof Inet4Address) {	// ::ffff:a.b.c.d is returned as IPv4.
+			System.arraycopy(bytes, 0, binary, LENGTH - IPV4_LENGTH, IPV4_LENGTH);
+			setIpv4Mapped(binary);
+		}
+		else {
+			System.arraycopy(bytes, 0, binary, 0, LENGTH);
+		}
+		return binary;
+	}
+
+	/**
+	 * set ::ffff: to binary.
+	 * @param binary 16 bytes binary.
+	 */
+	private static void setIpv4Mapped(byte[] binary) {
+		binary[10] = (byte) 0xff;
+		binary[11] = (byte) 0xff;
+	}
+
+	/**
+	 * convert CIDR block to range.
+	 * @param cidr address/prefix like 192.0.2.0/24 or 2001:db8::/48. address only is a block of the address.
+	 * @return first and last address of block in binary, or null if not CIDR block.
+	 */
+	public static byte[][] toRange(String cidr) {
+		if (cidr == null) {
+			return null;
+		}
+		cidr = cidr.trim();
+		String address = cidr;
+		String prefix = null;
+		int slash = cidr.indexOf(PREFIX_SEPARATOR);
+		if (slash >= 0) {
+			address = cidr.substring(0, slash);
+			prefix = cidr.substring(slash + 1).trim();
+		}
+		byte[] first = toBinary(address);
+		if (first == null) {
+			return null;
+		}
+
+		boolean ipv4 = IPV4_PATTERN.matcher(address.trim()).matches();
+		int bits = LENGTH * 8;
+		if (prefix != null) {
+			try {
+				bits = Integer.parseInt(prefix);
+			}
+			catch (NumberFormatException e) {
+				return null;
+			}
+			if (ipv4) {
+				if ((bits < 0) || (bits > IPV4_LENGTH * 8)) {
+					return null;
+				}
+				bits += IPV4_MAPPED_PREFIX;
+			}
+			else if ((bits < 0) || (bits > LENGTH * 8)) {
+				return null;
+			}
+		}
+
+		byte[] last = new byte[LENGTH];
+		for (int i = 0; i < LENGTH; i++) {
+			int hostBits = Math.min(Math.max((i + 1) * 8 - bits, 0), 8);	// host bits in this byte.
+			int mask = (0xff << hostBits) & 0xff;
+			first[i] = (byte) (first[i] & mask);
+			last[i] = (byte) (first[i] | (~mask & 0xff));
+		}
+		return new byte[][] { first, last, };
+	}
+
+	/**
+	 * check string is CIDR block or not.
+	 * @param cidr string to check.
+	 * @return true if CIDR block.
+	 */
+	public static boolean isCidr(String cidr) {
+		return (cidr != null) && cidr.contains(PREFIX_SEPARATOR) && (toRange(cidr) != null);
+	}
+}
@@ -0,0 +1,108 @@
+package jp.co.comona.dmarcviewer.util;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.eclipse.swt.widgets.Display;
+
+/**
+ * collect updates from any thread and flush them on UI thread at a bounded rate.
+ * @author kageyama
+ * date: 2025/06/06
+ * @param <T> update item type.
+ */
+public class UpdateCoalescer<T> {
+
+	/**
+	 * flusher called on UI thread.
+	 * @param <T> update item type.
+	 */
+	public interface Flusher<T> {
+
+		/**
+		 * flush updates.
+		 * @param items updates collected since last flush.
+		 */
+		public void flush(List<T> items);
+	}
+
+	// MARK: - Properties
+	private Display display = null;
+	private int interval = 0;
+	private Flusher<T> flusher = null;
+	private List<T> pending = new ArrayList<>();
+	private boolean scheduled = false;
+	private long lastFlushed = 0;
+
+	// MARK: - Constructor
+	/**
+	 * constructor.
+	 * @param display display.
+	 * @param interval minimum interval between flushes in milliseconds.
+	 * @param flusher flusher.
+	 */
+	public UpdateCoalescer(Display display, int interval, Flusher<T> flusher) {
+		super();
+		this.display = display;
+		this.interval = interval;
+		this.flusher = flusher;
+	}
+
+	// MARK: - Update
+	/**
+	 * add update. can be called from any thread.
+	 * @param item update item.
+	 */
+	public void add(T item) {
+		synchronized (this) {
+			pending.add(item);
+			if (scheduled) {
+				return;	// flush is already scheduled.
+			}
+			scheduled = true;
+		}
+
+		if (display.isDisposed() == false) {
+			display.asyncExec(new Runnable() {
+				@Override
+				public void run() {
+					schedule();
+				}
+			});
+		}
+	}
+
+	/**
+	 * schedule flush on UI thread.
+	 */
+	private void schedule() {
+		long wait = interval - (System.currentTimeMillis() - lastFlushed);
+		if (wait <= 0) {
+			flush();
+		}
+		else {
+			display.timerExec((int) wait, new Runnable() {
+				@Override
+				public void run() {
+					flush();
+				}
+			});
+		}
+	}
+
+	/**
+	 * flush pending updates on UI thread.
+	 */
+	private void flush() {
+		List<T> items = null;
+		synchronized (this) {
+			items = pending;
+			pending = new ArrayList<>();
+			scheduled = false;
+		}
+		lastFlushed = System.currentTimeMillis();
+		if (items.isEmpty() == false) {
+			flusher.flush(items);
+		}
+	}
+}
@@ -68,7 +68,7 @@ public class DmarcAuthResults extends XmlItemBase {
 	 * end of element.
 	 */
 	@Override
-	public void endElement(String namespaceURI, String localName, String qName, String content) {
+	public void endElement(String namespaceURI, String localName, String qName, CharSequence content) {
 		boolean dkimOpen = (dkim != null) && dkim.isOpen();
 		if (dkimOpen) {
 			dkim.endElement(namespaceURI, localName, qName, content);
@@ -97,6 +97,23 @@ public class DmarcAuthResults extends XmlItemBase {
 		}
 	}
 
+	// MARK: - Setters
+	/**
+	 * add dkim. used by StAX parser.
+	 * @param dkim dkim element.
+	 */
+	protected void addDkim(DmarcDkim dkim) {
+		dkims.add(dkim);
+	}
+
+	/**
+	 * add spf. used by StAX parser.
+	 * @param spf spf element.
+	 */
+	protected void addSpf(DmarcSpf spf) {
+		spfs.add(spf);
+	}
+
 	// MARK: - Getters
 	/**
 	 * get dkim count.
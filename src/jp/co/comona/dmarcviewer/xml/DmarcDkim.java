@@ -27,16 +27,16 @@ public class DmarcDkim extends DmarcSpf {
 	 * end of element.
 	 */
 	@Override
-	public void endElement(String namespaceURI, String localName, String qName, String content) {
+	public void endElement(String namespaceURI, String localName, String qName, CharSequence content) {
 		switch (qName) {
 			case DOMAIN:
-				domain = content;
+				domain = content.toString();
 				break;
 			case SELECTOR:
-				selector = content;
+				selector = content.toString();
 				break;
 			case RESULT:
-				result = content;
+				result = content.toString();
 				break;
 
 			case DKIM:
@@ -1,15 +1,23 @@
 package jp.co.comona.dmarcviewer.xml;
 
+import java.io.BufferedInputStream;
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.FilterInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
 
 import javax.xml.parsers.ParserConfigurationException;
 import javax.xml.parsers.SAXParser;
 import javax.xml.parsers.SAXParserFactory;
 
 import org.xml.sax.Attributes;
+import org.xml.sax.InputSource;
 import org.xml.sax.SAXException;
 import org.xml.sax.helpers.DefaultHandler;
 
@@ -21,10 +29,17 @@ import org.xml.sax.helpers.DefaultHandler;
 public class DmarcFeedback extends DefaultHandler {
 
 	// MARK: - Static Properties
+	public static final String PARSER_SAX = "sax";
+	public static final String PARSER_STAX = "stax";
 	private static final String FEEDBACK = "feedback";
 	protected static final String REPORT_METADATA = "report_metadata";
 	protected static final String POLICY_PUBLISHED = "policy_published";
 	protected static final String RECORD = "record";
+	private static final SAXParserFactory PARSER_FACTORY = SAXParserFactory.newInstance();
+	private static final ThreadLocal<SAXParser> PARSERS = new ThreadLocal<>();
+	private static final byte[] GZIP_MAGIC = { (byte) 0x1f, (byte) 0x8b, };
+	private static final byte[] ZIP_MAGIC = { 'P', 'K', 0x03, 0x04, };
+	private static volatile boolean useStax = false;
 
 	// MARK: - Properties
 	private StringBuilder buffer = null;
@@ -34,19 +49,23 @@ public class DmarcFeedback extends DefaultHandler {
 	private DmarcPolicyPublished policyPublished = null;
 	private List<DmarcRecord> records = null;
 	private DmarcRecord currentRecord = null;
+	private DmarcFeedbackListener listener = null;
+	private boolean started = false;
 
 	// MARK: - Constructor
 	/**
 	 * constructor.
+	 * @param listener feedback listener, or null to keep records.
 	 */
-	private DmarcFeedback() {
+	protected DmarcFeedback(DmarcFeedbackListener listener) {
 		super();
 		buffer = new StringBuilder();
 		records = new ArrayList<>();
+		this.listener = listener;
 	}
 
 	/**
-	 * parse XML file.
+	 * parse XML file. the file can be compressed with gzip or zip.
 	 * @param filePath XML file path.
 	 * @return response object.
 	 * @throws SAXException 
@@ -54,35 +73,160 @@ public class DmarcFeedback extends DefaultHandler {
 	 * @throws IOException 
 	 */
 	public static DmarcFeedback parse(String filePath) throws ParserConfigurationException, SAXException, IOException {
+		return parse(filePath, null);
+	}
+
+	/**
+	 * parse XML file and pass records to listener while parsing.
+	 * the file can be compressed with gzip or zip.
+	 * @param filePath XML file path.
+	 * @param listener feedback listener. records are not kept when not null.
+	 * @return response object.
+	 * @throws ParserConfigurationException
+	 * @throws SAXException
+	 * @throws IOException
+	 */
+	public static DmarcFeedback parse(String filePath, DmarcFeedbackListener listener) throws ParserConfigurationException, SAXException, IOException {
 		File file = new File(filePath);
 		if (file.exists() == false) {
 			throw new IOException("File '" + filePath + "' not Found!");
 		}
-		return parseXML(file);
+		try (InputStream in = new FileInputStream(file)) {
+			return parse(in, listener);
+		}
+	}
+
+	/**
+	 * parse XML stream.
+	 * gzip and zip are detected by magic bytes and decompressed while parsing.
+	 * for zip, the first file entry is parsed.
+	 * @param in XML, gzip or zip stream. not closed by this method.
+	 * @return response object.
+	 * @throws ParserConfigurationException
+	 * @throws SAXException
+	 * @throws IOException
+	 */
+	public static DmarcFeedback parse(InputStream in) throws ParserConfigurationException, SAXException, IOException {
+		return parse(in, null);
+	}
+
+	/**
+	 * parse XML stream and pass records to listener while parsing.
+	 * gzip and zip are detected by magic bytes and decompressed while parsing.
+	 * @param in XML, gzip or zip stream. not closed by this method.
+	 * @param listener feedback listener. records are not kept when not null.
+	 * @return response object.
+	 * @throws ParserConfigurationException
+	 * @throws SAXException
+	 * @throws IOException
+	 */
+	public static DmarcFeedback parse(InputStream in, DmarcFeedbackListener listener) throws ParserConfigurationException, SAXException, IOException {
+		BufferedInputStream buffered = new BufferedInputStream(in);
+		buffered.mark(ZIP_MAGIC.length);
+		byte[] magic = new byte[ZIP_MAGIC.length];
+		int length = 0;
+		while (length < magic.length) {
+			int read = buffered.read(magic, length, magic.length - length);
+			if (read < 0) {
+				break;
+			}
+			length += read;
+		}
+		buffered.reset();
+
+		if (startsWith(magic, length, GZIP_MAGIC)) {
+			return parseXML(new GZIPInputStream(buffered), listener);
+		}
+		else if (startsWith(magic, length, ZIP_MAGIC)) {
+			ZipInputStream zip = new ZipInputStream(buffered);
+			ZipEntry entry = zip.getNextEntry();
+			while ((entry != null) && entry.isDirectory()) {
+				entry = zip.getNextEntry();
+			}
+			if (entry == null) {
+				throw new IOException("no file in zip.");
+			}
+			return parseXML(zip, listener);
+		}
+		return parseXML(buffered, listener);
 	}
 
 	/**
-	 * parse XML file.
-	 * @param file XML file.
+	 * check magic bytes.
+	 * @param bytes bytes read from stream.
+	 * @param length number of bytes read.
+	 * @param magic magic bytes.
+	 * @return true if bytes start with magic bytes.
+	 */
+	private static boolean startsWith(byte[] bytes, int length, byte[] magic) {
+		if (length < magic.length) {
+			return false;
+		}
+		for (int i = 0; i < magic.length; i++) {
+			if (bytes[i] != magic[i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * parse XML stream.
+	 * thread safe. each thread uses its own parser.
+	 * @param in XML stream.
+	 * @param listener feedback listener, or null to keep records.
 	 * @return response object.
 	 * @throws ParserConfigurationException
 	 * @throws SAXException
 	 * @throws IOException
 	 */
-	private static synchronized DmarcFeedback parseXML(File file) throws ParserConfigurationException, SAXException, IOException {
-		DmarcFeedback response = new DmarcFeedback();
-		SAXParserFactory factory = SAXParserFactory.newInstance();
-		SAXParser parser = factory.newSAXParser();
-		parser.parse(file, response);
+	private static DmarcFeedback parseXML(InputStream in, DmarcFeedbackListener listener) throws ParserConfigurationException, SAXException, IOException {
+		if (useStax) {
+			return DmarcStaxParser.parse(in, listener);
+		}
+
+		DmarcFeedback response = new DmarcFeedback(listener);
+		SAXParser parser = getParser();
+		try {
+			parser.parse(new InputSource(new NonClosingInputStream(in)), response);
+		}
+		finally {
+			parser.reset();
+		}
 		return response;
 	}
 
+	/**
+	 * select XML parser.
+	 * @param parser PARSER_SAX or PARSER_STAX. SAX is used for unknown name.
+	 */
+	public static void setParser(String parser) {
+		useStax = PARSER_STAX.equalsIgnoreCase(parser);
+	}
+
+	/**
+	 * get SAX parser of current thread.
+	 * @return SAX parser.
+	 * @throws ParserConfigurationException
+	 * @throws SAXException
+	 */
+	private static SAXParser getParser() throws ParserConfigurationException, SAXException {
+		SAXParser parser = PARSERS.get();
+		if (parser == null) {
+			synchronized (PARSER_FACTORY) {	// factory is not thread safe.
+				parser = PARSER_FACTORY.newSAXParser();
+			}
+			PARSERS.set(parser);
+		}
+		return parser;
+	}
+
 	// MARK: - XML Parser
 	/**
 	 * start of element.
 	 */
 	@Override
-	public void startElement(String namespaceURI, String localName, String qName, Attributes atts) {
+	public void startElement(String namespaceURI, String localName, String qName, Attributes atts) throws SAXException {
 		if (FEEDBACK.equals(qName) == false) {
 			assert(open);
 		}
@@ -111,6 +255,7 @@ public class DmarcFeedback extends DefaultHandler {
 					policyPublished.startElement(namespaceURI, localName, qName, atts);
 					break;
 				case RECORD:
+					notifyStarted();	// metadata and policy are before records.
 					currentRecord = new DmarcRecord();
 					currentRecord.startElement(namespaceURI, localName, qName, atts);
 					break;
@@ -130,20 +275,20 @@ public class DmarcFeedback extends DefaultHandler {
 	 * end of element.
 	 */
 	@Override
-	public void endElement(String namespaceURI, String localName, String qName) {
+	public void endElement(String namespaceURI, String localName, String qName) throws SAXException {
 		boolean metadataOpen = (metadata != null) && metadata.open;
 		if (metadataOpen) {
-			metadata.endElement(namespaceURI, localName, qName, buffer.toString());
+			metadata.endElement(namespaceURI, localName, qName, buffer);
 		}
 		boolean policyPublishedOpen = (policyPublished != null) && policyPublished.isOpen();
 		if (policyPublishedOpen) {
-			policyPublished.endElement(namespaceURI, localName, qName, buffer.toString());
+			policyPublished.endElement(namespaceURI, localName, qName, buffer);
 		}
 		boolean recordOpen = (currentRecord != null) && currentRecord.isOpen();
 		if (recordOpen) {
-			currentRecord.endElement(namespaceURI, localName, qName, buffer.toString());
+			currentRecord.endElement(namespaceURI, localName, qName, buffer);
 			if (currentRecord.isOpen() == false) {
-				records.add(currentRecord);
+				recordParsed(currentRecord);
 				currentRecord = null;
 			}
 		}
@@ -152,6 +297,7 @@ public class DmarcFeedback extends DefaultHandler {
 			switch (qName) {
 				case FEEDBACK:
 					open = false;
+					feedbackEnded();
 					break;
 				default:
 					break;
@@ -159,14 +305,65 @@ public class DmarcFeedback extends DefaultHandler {
 		}
 	}
 
+	/**
+	 * set report_metadata. used by StAX parser.
+	 * @param metadata report_metadata element.
+	 */
+	protected void setMetadata(DmarcReportMetadata metadata) {
+		this.metadata = metadata;
+	}
+
+	/**
+	 * set policy_published. used by StAX parser.
+	 * @param policyPublished policy_published element.
+	 */
+	protected void setPolicyPublished(DmarcPolicyPublished policyPublished) {
+		this.policyPublished = policyPublished;
+	}
+
+	/**
+	 * record parsed. keep it, or pass it to listener.
+	 * @param record parsed record.
+	 * @throws SAXException
+	 */
+	protected void recordParsed(DmarcRecord record) throws SAXException {
+		if (listener != null) {
+			notifyStarted();
+			listener.recordParsed(this, record);
+		}
+		else {
+			records.add(record);
+		}
+	}
+
+	/**
+	 * feedback ended.
+	 * @throws SAXException
+	 */
+	protected void feedbackEnded() throws SAXException {
+		notifyStarted();	// feedback without record.
+		if (listener != null) {
+			listener.feedbackEnded(this);
+		}
+	}
+
+	/**
+	 * tell feedback started to listener only once.
+	 * @throws SAXException
+	 */
+	private void notifyStarted() throws SAXException {
+		if ((listener != null) && (started == false)) {
+			started = true;
+			listener.feedbackStarted(this);
+		}
+	}
+
 	/**
 	 * character found.
 	 */
 	@Override
 	public void characters(char[] ch, int start, int length) {
-		char[] cnt = new char[length];
-		System.arraycopy(ch, start, cnt, 0, length);
-		buffer.append(cnt);
+		buffer.append(ch, start, length);
 	}
 
 	// MARK: - Getters
@@ -340,7 +537,7 @@ public class DmarcFeedback extends DefaultHandler {
 	}
 
 	/**
-	 * get record count.
+	 * get record count. always 0 when parsed with listener.
 	 * @return record count.
 	 */
 	public int getRecordCount() {
@@ -355,4 +552,28 @@ public class DmarcFeedback extends DefaultHandler {
 	public DmarcRecord getRecord(int index) {
 		return records.get(index);
 	}
+
+	// MARK: - Stream
+	/**
+	 * input stream which does not close underlying stream.
+	 * SAX parser closes the stream at the end of document, but caller owns it.
+	 */
+	private static class NonClosingInputStream extends FilterInputStream {
+
+		/**
+		 * constructor.
+		 * @param in underlying stream.
+		 */
+		private NonClosingInputStream(InputStream in) {
+			super(in);
+		}
+
+		/**
+		 * close. underlying stream is left open.
+		 */
+		@Override
+		public void close() {
+			// caller closes underlying stream.
+		}
+	}
 }
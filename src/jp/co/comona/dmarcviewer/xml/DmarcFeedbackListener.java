@@ -0,0 +1,34 @@
+package jp.co.comona.dmarcviewer.xml;
+
+import org.xml.sax.SAXException;
+
+/**
+ * DMARC feedback listener to receive records while parsing.
+ * @author kageyama
+ * date: 2025/06/10
+ */
+public interface DmarcFeedbackListener {
+
+	/**
+	 * feedback started. report metadata and policy published are available.
+	 * called once before the first record, or at the end if feedback has no record.
+	 * @param feedback feedback.
+	 * @throws SAXException
+	 */
+	public void feedbackStarted(DmarcFeedback feedback) throws SAXException;
+
+	/**
+	 * record parsed. the record is not kept by feedback.
+	 * @param feedback feedback.
+	 * @param record parsed record.
+	 * @throws SAXException
+	 */
+	public void recordParsed(DmarcFeedback feedback, DmarcRecord record) throws SAXException;
+
+	/**
+	 * feedback ended.
+	 * @param feedback feedback.
+	 * @throws SAXException
+	 */
+	public void feedbackEnded(DmarcFeedback feedback) throws SAXException;
+}
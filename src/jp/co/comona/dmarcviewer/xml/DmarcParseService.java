@@ -0,0 +1,87 @@
+package jp.co.comona.dmarcviewer.xml;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * parse DMARC feedback XML files concurrently.
+ * @author kageyama
+ * date: 2025/06/08
+ */
+public class DmarcParseService implements AutoCloseable {
+
+	// MARK: - Properties
+	private ExecutorService executor = null;
+	private int threadCount = 0;
+
+	// MARK: - Constructor
+	/**
+	 * constructor. uses as many threads as processors.
+	 */
+	public DmarcParseService() {
+		this(0);
+	}
+
+	/**
+	 * constructor.
+	 * @param threadCount number of parser threads, number of processors when 0 or less.
+	 */
+	public DmarcParseService(int threadCount) {
+		super();
+		this.threadCount = (threadCount > 0) ? threadCount : Runtime.getRuntime().availableProcessors();
+		final AtomicInteger threadNumber = new AtomicInteger(1);
+		executor = Executors.newFixedThreadPool(this.threadCount, new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable r) {
+				Thread thread = new Thread(r, "DmarcParser-" + threadNumber.getAndIncrement());
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+	}
+
+	// MARK: - Getters
+	/**
+	 * get number of parser threads.
+	 * @return number of parser threads.
+	 */
+	public int getThreadCount() {
+		return threadCount;
+	}
+
+	// MARK: - Parse
+	/**
+	 * parse XML file on parser thread.
+	 * @param filePath XML file path.
+	 * @return future of parsed feedback.
+	 */
+	public Future<DmarcFeedback> submit(final String filePath) {
+		return executor.submit(new Callable<DmarcFeedback>() {
+			@Override
+			public DmarcFeedback call() throws Exception {
+				return DmarcFeedback.parse(filePath);
+			}
+		});
+	}
+
+	/**
+	 * run parsing task on parser thread.
+	 * @param task parsing task.
+	 * @return future of task result.
+	 */
+	public <T> Future<T> submit(Callable<T> task) {
+		return executor.submit(task);
+	}
+
+	/**
+	 * stop parser threads. submitted files are still parsed.
+	 */
+	@Override
+	public void close() {
+		executor.shutdown();
+	}
+}
@@ -48,28 +48,28 @@ public class DmarcPolicyPublished extends XmlItemBase {
 	 * end of element.
 	 */
 	@Override
-	public void endElement(String namespaceURI, String localName, String qName, String content) {
+	public void endElement(String namespaceURI, String localName, String qName, CharSequence content) {
 		switch (qName) {
 			case DOMAIN:
-				domain = content;
+				domain = content.toString();
 				break;
 			case ADKIM:
-				adkim = content;
+				adkim = content.toString();
 				break;
 			case ASPF:
-				aspf = content;
+				aspf = content.toString();
 				break;
 			case P:
-				p = content;
+				p = content.toString();
 				break;
 			case SP:
-				sp = content;
+				sp = content.toString();
 				break;
 			case PCT:
-				pct = Integer.parseInt(content);
+				pct = parseInt(content);
 				break;
 			case NP:
-				np = content;
+				np = content.toString();
 				break;
 
 			case POLICY_PUBLISHED:
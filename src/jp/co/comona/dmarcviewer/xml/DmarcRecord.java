@@ -68,7 +68,7 @@ public class DmarcRecord extends XmlItemBase {
 	 * end of element.
 	 */
 	@Override
-	public void endElement(String namespaceURI, String localName, String qName, String content) {
+	public void endElement(String namespaceURI, String localName, String qName, CharSequence content) {
 		boolean rowOpen = (row != null) && row.isOpen();
 		if (rowOpen) {
 			row.endElement(namespaceURI, localName, qName, content);
@@ -85,7 +85,7 @@ public class DmarcRecord extends XmlItemBase {
 					break;
 				case HEADER_FROM:
 					assert(inIdentifiers);
-					header_from = content;
+					header_from = content.toString();
 					break;
 
 				case RECORD:
@@ -97,6 +97,23 @@ public class DmarcRecord extends XmlItemBase {
 		}
 	}
 
+	// MARK: - Setters
+	/**
+	 * set row. used by StAX parser.
+	 * @param row row element.
+	 */
+	protected void setRow(DmarcRow row) {
+		this.row = row;
+	}
+
+	/**
+	 * set auth_results. used by StAX parser.
+	 * @param authResults auth_results element.
+	 */
+	protected void setAuthResults(DmarcAuthResults authResults) {
+		this.authResults = authResults;
+	}
+
 	// MARK: - Getters
 	/**
 	 * get header_from.
@@ -52,30 +52,30 @@ public class DmarcReportMetadata extends XmlItemBase {
 	 * end of element.
 	 */
 	@Override
-	public void endElement(String namespaceURI, String localName, String qName, String content) {
+	public void endElement(String namespaceURI, String localName, String qName, CharSequence content) {
 		switch (qName) {
 			case ORG_NAME:
-				org_name = content;
+				org_name = content.toString();
 				break;
 			case EMAIL:
-				email = content;
+				email = content.toString();
 				break;
 			case EXTRA_CONTACT_INFO:
-				extra_contact_info = content;
+				extra_contact_info = content.toString();
 				break;
 			case REPORT_ID:
-				reportId = content;
+				reportId = content.toString();
 				break;
 			case DATE_RANGE:
 				inDateRange = false;
 				break;
 			case BEGIN:
 				assert(inDateRange);
-				begin = Integer.parseInt(content);
+				begin = parseInt(content);
 				break;
 			case END:
 				assert(inDateRange);
-				end = Integer.parseInt(content);
+				end = parseInt(content);
 				break;
 
 			case REPORT_METADATA:
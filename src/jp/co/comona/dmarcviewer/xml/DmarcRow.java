@@ -44,22 +44,22 @@ public class DmarcRow extends XmlItemBase {
 	 * end of element.
 	 */
 	@Override
-	public void endElement(String namespaceURI, String localName, String qName, String content) {
+	public void endElement(String namespaceURI, String localName, String qName, CharSequence content) {
 		switch (qName) {
 			case SOURCE_IP:
-				source_ip = content;
+				source_ip = content.toString();
 				break;
 			case COUNT:
-				count = Integer.parseInt(content);
+				count = parseInt(content);
 				break;
 			case DISPOSITION:
-				disposition = content;
+				disposition = content.toString();
 				break;
 			case DKIM:
-				dkim = content;
+				dkim = content.toString();
 				break;
 			case SPF:
-				spf = content;
+				spf = content.toString();
 				break;
 
 			case ROW:
@@ -38,13 +38,13 @@ public class DmarcSpf extends XmlItemBase {
 	 * end of element.
 	 */
 	@Override
-	public void endElement(String namespaceURI, String localName, String qName, String content) {
+	public void endElement(String namespaceURI, String localName, String qName, CharSequence content) {
 		switch (qName) {
 			case DOMAIN:
-				domain = content;
+				domain = content.toString();
 				break;
 			case RESULT:
-				result = content;
+				result = content.toString();
 				break;
 
 			case SPF:
@@ -0,0 +1,233 @@
+package jp.co.comona.dmarcviewer.xml;
+
+import java.io.InputStream;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import org.xml.sax.SAXException;
+
+/**
+ * DMARC feedback parser using StAX.
+ * walks known element structure directly instead of dispatching every event through all items.
+ * @author kageyama
+ * date: 2025/06/12
+ */
+public class DmarcStaxParser {
+
+	// MARK: - Static Properties
+	private static final XMLInputFactory INPUT_FACTORY = createInputFactory();
+
+	// MARK: - Properties
+	private XMLStreamReader reader = null;
+	private StringBuilder buffer = null;
+
+	// MARK: - Constructor
+	/**
+	 * constructor.
+	 * @param reader XML stream reader.
+	 */
+	private DmarcStaxParser(XMLStreamReader reader) {
+		super();
+		this.reader = reader;
+		buffer = new StringBuilder();
+	}
+
+	// MARK: - Parse
+	/**
+	 * parse XML stream.
+	 * thread safe. stream is not closed.
+	 * @param in XML stream.
+	 * @param listener feedback listener, or null to keep records.
+	 * @return response object.
+	 * @throws SAXException
+	 */
+	protected static DmarcFeedback parse(InputStream in, DmarcFeedbackListener listener) throws SAXException {
+		try {
+			XMLStreamReader reader;
+			synchronized (INPUT_FACTORY) {	// factory is not thread safe.
+				reader = INPUT_FACTORY.createXMLStreamReader(in);
+			}
+			try {
+				DmarcFeedback feedback = new DmarcFeedback(listener);
+				new DmarcStaxParser(reader).parseFeedback(feedback);
+				return feedback;
+			}
+			finally {
+				reader.close();
+			}
+		}
+		catch (XMLStreamException e) {
+			throw new SAXException(e.getMessage(), e);
+		}
+	}
+
+	/**
+	 * create XML input factory.
+	 * @return XML input factory.
+	 */
+	private static XMLInputFactory createInputFactory() {
+		XMLInputFactory factory = XMLInputFactory.newInstance();
+		factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, Boolean.FALSE);
+		factory.setProperty(XMLInputFactory.IS_COALESCING, Boolean.FALSE);
+		return factory;
+	}
+
+	/**
+	 * parse feedback element.
+	 * @param feedback feedback to fill.
+	 * @throws XMLStreamException
+	 * @throws SAXException
+	 */
+	private void parseFeedback(DmarcFeedback feedback) throws XMLStreamException, SAXException {
+		while (reader.hasNext()) {
+			if (reader.next() != XMLStreamConstants.START_ELEMENT) {
+				continue;
+			}
+
+			switch (reader.getLocalName()) {
+				case DmarcFeedback.REPORT_METADATA:
+					DmarcReportMetadata metadata = new DmarcReportMetadata();
+					parseItem(metadata, DmarcFeedback.REPORT_METADATA);
+					feedback.setMetadata(metadata);
+					break;
+				case DmarcFeedback.POLICY_PUBLISHED:
+					DmarcPolicyPublished policyPublished = new DmarcPolicyPublished();
+					parseItem(policyPublished, DmarcFeedback.POLICY_PUBLISHED);
+					feedback.setPolicyPublished(policyPublished);
+					break;
+				case DmarcFeedback.RECORD:
+					feedback.recordParsed(parseRecord());
+					break;
+				default:
+					break;
+			}
+		}
+		feedback.feedbackEnded();
+	}
+
+	/**
+	 * parse record element.
+	 * row and auth_results are parsed here, identifiers are passed to record.
+	 * @return record.
+	 * @throws XMLStreamException
+	 */
+	private DmarcRecord parseRecord() throws XMLStreamException {
+		DmarcRecord record = new DmarcRecord();
+		while (reader.hasNext()) {
+			switch (reader.next()) {
+				case XMLStreamConstants.START_ELEMENT:
+					String startName = reader.getLocalName();
+					switch (startName) {
+						case DmarcRecord.ROW:
+							DmarcRow row = new DmarcRow();
+							parseItem(row, DmarcRecord.ROW);
+							record.setRow(row);
+							break;
+						case DmarcRecord.AUTH_RESULTS:
+							record.setAuthResults(parseAuthResults());
+							break;
+						default:
+							buffer.setLength(0);
+							record.startElement(null, startName, startName, null);
+							break;
+					}
+					break;
+				case XMLStreamConstants.CHARACTERS:
+				case XMLStreamConstants.CDATA:
+					appendText();
+					break;
+				case XMLStreamConstants.END_ELEMENT:
+					String endName = reader.getLocalName();
+					record.endElement(null, endName, endName, buffer);
+					if (DmarcFeedback.RECORD.equals(endName)) {
+						return record;
+					}
+					break;
+				default:
+					break;
+			}
+		}
+		return record;
+	}
+
+	/**
+	 * parse auth_results element.
+	 * @return auth_results.
+	 * @throws XMLStreamException
+	 */
+	private DmarcAuthResults parseAuthResults() throws XMLStreamException {
+		DmarcAuthResults authResults = new DmarcAuthResults();
+		while (reader.hasNext()) {
+			switch (reader.next()) {
+				case XMLStreamConstants.START_ELEMENT:
+					switch (reader.getLocalName()) {
+						case DmarcAuthResults.DKIM:
+							DmarcDkim dkim = new DmarcDkim();
+							parseItem(dkim, DmarcAuthResults.DKIM);
+							authResults.addDkim(dkim);
+							break;
+						case DmarcAuthResults.SPF:
+							DmarcSpf spf = new DmarcSpf();
+							parseItem(spf, DmarcAuthResults.SPF);
+							authResults.addSpf(spf);
+							break;
+						default:
+							break;
+					}
+					break;
+				case XMLStreamConstants.END_ELEMENT:
+					String endName = reader.getLocalName();
+					if (DmarcRecord.AUTH_RESULTS.equals(endName)) {
+						authResults.endElement(null, endName, endName, buffer);	// close it.
+						return authResults;
+					}
+					break;
+				default:
+					break;
+			}
+		}
+		return authResults;
+	}
+
+	/**
+	 * parse item which has only leaf elements, until its end element.
+	 * @param item item to fill.
+	 * @param qName element name of item.
+	 * @throws XMLStreamException
+	 */
+	private void parseItem(XmlItemBase item, String qName) throws XMLStreamException {
+		buffer.setLength(0);
+		while (reader.hasNext()) {
+			switch (reader.next()) {
+				case XMLStreamConstants.START_ELEMENT:
+					String startName = reader.getLocalName();
+					buffer.setLength(0);
+					item.startElement(null, startName, startName, null);
+					break;
+				case XMLStreamConstants.CHARACTERS:
+				case XMLStreamConstants.CDATA:
+					appendText();
+					break;
+				case XMLStreamConstants.END_ELEMENT:
+					String endName = reader.getLocalName();
+					item.endElement(null, endName, endName, buffer);
+					if (qName.equals(endName)) {
+						return;
+					}
+					break;
+				default:
+					break;
+			}
+		}
+	}
+
+	/**
+	 * append current text to buffer without creating string.
+	 */
+	private void appendText() {
+		buffer.append(reader.getTextCharacters(), reader.getTextStart(), reader.getTextLength());
+	}
+}
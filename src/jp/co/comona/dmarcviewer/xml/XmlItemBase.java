@@ -44,7 +44,45 @@ public abstract class XmlItemBase {
 	 * @param namespaceURI name space URI.
 	 * @param localName local name.
 	 * @param qName qualified name.
+	 * @param content content of element. valid only in this call, call toString() to keep it.
+	 */
+	abstract public void endElement(String namespaceURI, String localName, String qName, CharSequence content);
+
+	// MARK: - Content
+	/**
+	 * parse content as decimal integer without creating string.
 	 * @param content content of element.
+	 * @return integer value.
+	 * @throws NumberFormatException
 	 */
-	abstract public void endElement(String namespaceURI, String localName, String qName, String content);
+	protected static int parseInt(CharSequence content) {
+		int length = content.length();
+		int index = 0;
+		boolean negative = false;
+		if ((length > 0) && ((content.charAt(0) == '-') || (content.charAt(0) == '+'))) {
+			negative = content.charAt(0) == '-';
+			index++;
+		}
+		if (index >= length) {
+			throw new NumberFormatException("For input string: \"" + content + "\"");
+		}
+		long value = 0;
+		for (; index < length; index++) {
+			int digit = Character.digit(content.charAt(index), 10);
+			if (digit < 0) {
+				throw new NumberFormatException("For input string: \"" + content + "\"");
+			}
+			value = value * 10 + digit;
+			if (value > (long) Integer.MAX_VALUE + 1) {
+				throw new NumberFormatException("For input string: \"" + content + "\"");
+			}
+		}
+		if (negative) {
+			value = -value;
+		}
+		if ((value < Integer.MIN_VALUE) || (value > Integer.MAX_VALUE)) {
+			throw new NumberFormatException("For input string: \"" + content + "\"");
+		}
+		return (int) value;
+	}
 }